@@ -0,0 +1,455 @@
+/**
+ * YGuard -- an obfuscation library for Java(TM) classfiles.
+ *
+ * Copyright (c) 2002 yWorks GmbH (yguard@yworks.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * The author may be contacted at yguard@yworks.com
+ *
+ * Java and all Java-based marks are trademarks or registered
+ * trademarks of Sun Microsystems, Inc. in the U.S. and other countries.
+ */
+package com.yworks.yguard.obf;
+
+import com.yworks.yguard.obf.classfile.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves external classes by reading the headers and member tables of
+ * their class files, which are looked up as resources of a class loader.
+ * <p>
+ * The classes themselves are never loaded, i.e. resolving does not define
+ * any classes in the running VM and works for classes compiled for a newer
+ * Java version, too. The JDK classes are found the same way, as the
+ * resources of the system class loader include the runtime image.
+ * Like a class loader would, a class is considered unresolvable if any of
+ * its super classes or interfaces cannot be found.
+ * The results are cached, this class may be used by several threads
+ * concurrently.
+ * </p>
+ * <p>
+ * Optionally, the classes of the jars of a class path are looked up in
+ * indices that are kept in a cache directory, see {@link ExtClassIndex}.
+ * This way the class files of the jars are read only once for all
+ * following runs as long as the jars do not change.
+ * </p>
+ */
+public class BytecodeClassResolver implements Cl.ClassResolver, Cl.ClassInfoResolver
+{
+  private static final int MAGIC = 0xCAFEBABE;
+
+  private final ClassLoader loader;
+  private final File[] classPath;
+  private final File cacheDir;
+  // the ExtClassIndex of each jar of the class path, once opened
+  private final Object[] indices;
+  // the ExtClassInfo for each resolved class name,
+  // the ClassNotFoundException for unresolvable class names
+  private final Map cache = new ConcurrentHashMap();
+
+  /**
+   * Creates a new resolver for the class files available as resources of
+   * the given class loader.
+   */
+  public BytecodeClassResolver(ClassLoader loader)
+  {
+    this(loader, new File[0], null);
+  }
+
+  /**
+   * Creates a new resolver for the class files of the given class path.
+   * Like a class loader would, the resources of the parent class loader are
+   * searched first, then the class path in the given order. The indices of
+   * the jars of the class path are kept in the given cache directory.
+   * @param parent the parent class loader, e.g. the system class loader for
+   * finding the JDK classes.
+   * @param classPath the jars and directories of the class path.
+   * @param cacheDir the cache directory for the indices of the jars.
+   */
+  public BytecodeClassResolver(ClassLoader parent, File[] classPath, File cacheDir)
+  {
+    this.loader = parent;
+    this.classPath = (File[])classPath.clone();
+    this.cacheDir = cacheDir;
+    this.indices = new Object[classPath.length];
+  }
+
+  /**
+   * Loads the class with the given name from the (parent) class loader
+   * without initializing it.
+   * This is only provided for compatibility, name spaces are resolved using
+   * {@link #resolveInfo(String)}.
+   */
+  public Class resolve(String className) throws ClassNotFoundException
+  {
+    return Class.forName(className, false, loader);
+  }
+
+  public ExtClassInfo resolveInfo(String className) throws ClassNotFoundException
+  {
+    return resolveInfo(className, new HashSet());
+  }
+
+  private ExtClassInfo resolveInfo(String className, Set pending) throws ClassNotFoundException
+  {
+    Object result = cache.get(className);
+    if (result == null)
+    {
+      if (!pending.add(className))
+      {
+        throw new ClassNotFoundException("Circular class hierarchy: " + className);
+      }
+      try
+      {
+        ExtClassInfo info = className.startsWith("[") ? createArrayInfo(className, pending) : read(className);
+        // the super types must be resolvable, too
+        resolveSuper(info, info.getSuperName(), pending);
+        String[] interfaceNames = info.getInterfaceNames();
+        for (int i = 0; i < interfaceNames.length; i++)
+        {
+          resolveSuper(info, interfaceNames[i], pending);
+        }
+        result = info;
+      }
+      catch (ClassNotFoundException cnfe)
+      {
+        result = cnfe;
+      }
+      pending.remove(className);
+      cache.put(className, result);
+    }
+    if (result instanceof ClassNotFoundException)
+    {
+      throw new ClassNotFoundException(((ClassNotFoundException)result).getMessage());
+    }
+    return (ExtClassInfo)result;
+  }
+
+  // Resolve a super type of the given class, reporting failures like
+  // NoClassDefFoundErrors are reported by a class loader.
+  private void resolveSuper(ExtClassInfo info, String superName, Set pending) throws ClassNotFoundException
+  {
+    if (superName != null)
+    {
+      try
+      {
+        resolveInfo(superName, pending);
+      }
+      catch (ClassNotFoundException cnfe)
+      {
+        String message = cnfe.getMessage();
+        int index = message.indexOf('[');
+        String missing = index < 0 ? message.replace('.', '/') : message.substring(0, index);
+        throw new ClassNotFoundException(missing + "[" + info.getName() + "]");
+      }
+    }
+  }
+
+  // Create the header of an array class like Class.forName does. Array
+  // classes extend java.lang.Object and declare no members, the element type
+  // of an object array must be resolvable, too.
+  private ExtClassInfo createArrayInfo(String className, Set pending) throws ClassNotFoundException
+  {
+    int dimensions = 0;
+    while (dimensions < className.length() && className.charAt(dimensions) == '[')
+    {
+      dimensions++;
+    }
+    String elementType = className.substring(dimensions);
+    int modifiers;
+    if (elementType.length() == 1 && "ZBCSIJFD".indexOf(elementType.charAt(0)) >= 0)
+    {
+      modifiers = Modifier.PUBLIC;
+    }
+    else if (elementType.length() > 2 && elementType.charAt(0) == 'L' && elementType.endsWith(";"))
+    {
+      ExtClassInfo elementInfo = resolveInfo(elementType.substring(1, elementType.length() - 1), pending);
+      modifiers = elementInfo.getModifiers() & (Modifier.PUBLIC | Modifier.PROTECTED | Modifier.PRIVATE);
+    }
+    else
+    {
+      throw new ClassNotFoundException(className);
+    }
+    return new ExtClassInfo(className, modifiers | Modifier.ABSTRACT | Modifier.FINAL,
+                            "java.lang.Object", new String[]{"java.lang.Cloneable", "java.io.Serializable"},
+                            new String[0], new int[0], new String[0], new String[0], new int[0]);
+  }
+
+  // Read the header and the member tables of the class file of the given class.
+  private ExtClassInfo read(String className) throws ClassNotFoundException
+  {
+    String path = className.replace('.', '/') + ".class";
+    InputStream is = loader.getResourceAsStream(path);
+    try
+    {
+      for (int i = 0; is == null && i < classPath.length; i++)
+      {
+        if (classPath[i].isDirectory())
+        {
+          File file = new File(classPath[i], path);
+          if (file.isFile())
+          {
+            is = new FileInputStream(file);
+          }
+        }
+        else
+        {
+          ExtClassInfo info = getFromIndex(i, className);
+          if (info != null)
+          {
+            return info;
+          }
+        }
+      }
+      if (is == null)
+      {
+        throw new ClassNotFoundException(className);
+      }
+      DataInputStream in = new DataInputStream(new BufferedInputStream(is));
+      try
+      {
+        return read(in, className);
+      }
+      finally
+      {
+        in.close();
+      }
+    }
+    catch (IOException ioe)
+    {
+      throw new ClassNotFoundException(className, ioe);
+    }
+  }
+
+  // Look up a class in the index of the jar with the given index in the
+  // class path. A corrupt cached index is created again.
+  private ExtClassInfo getFromIndex(int i, String className) throws IOException
+  {
+    ExtClassIndex index = getIndex(i);
+    if (index == null)
+    {
+      return null;
+    }
+    try
+    {
+      return index.get(className);
+    }
+    catch (IOException ioe)
+    {
+      index = recreateIndex(i, index);
+      return index != null ? index.get(className) : null;
+    }
+  }
+
+  private synchronized ExtClassIndex recreateIndex(int i, ExtClassIndex corrupt)
+  {
+    // another thread may have created the index again already
+    if (indices[i] == corrupt)
+    {
+      indices[i] = Boolean.FALSE;
+      try
+      {
+        indices[i] = ExtClassIndex.recreate(classPath[i], cacheDir);
+      }
+      catch (IOException ioe)
+      {
+        Logger.getInstance().warning("Could not index " + classPath[i] + ": " + ioe.getMessage());
+      }
+    }
+    return indices[i] instanceof ExtClassIndex ? (ExtClassIndex)indices[i] : null;
+  }
+
+  // Open the index of the jar with the given index in the class path.
+  private synchronized ExtClassIndex getIndex(int i)
+  {
+    if (indices[i] == null)
+    {
+      // missing or unreadable class path entries are skipped
+      indices[i] = Boolean.FALSE;
+      if (classPath[i].isFile())
+      {
+        try
+        {
+          indices[i] = ExtClassIndex.open(classPath[i], cacheDir);
+        }
+        catch (IOException ioe)
+        {
+          Logger.getInstance().warning("Could not index " + classPath[i] + ": " + ioe.getMessage());
+        }
+      }
+    }
+    return indices[i] instanceof ExtClassIndex ? (ExtClassIndex)indices[i] : null;
+  }
+
+  /**
+   * Reads the header and the member tables of a class file.
+   * @param className the expected name of the class.
+   */
+  static ExtClassInfo read(DataInput in, String className) throws IOException, ClassNotFoundException
+  {
+    if (in.readInt() != MAGIC)
+    {
+      throw new ClassNotFoundException(className + " (invalid class file)");
+    }
+    in.readUnsignedShort(); // minor version
+    in.readUnsignedShort(); // major version
+
+    // Only the UTF8 entries and the name indices of the class entries are kept
+    int cpCount = in.readUnsignedShort();
+    String[] utf8 = new String[cpCount];
+    int[] classNameIndex = new int[cpCount];
+    for (int i = 1; i < cpCount; i++)
+    {
+      int tag = in.readUnsignedByte();
+      switch (tag)
+      {
+        case 1: // Utf8
+          utf8[i] = in.readUTF();
+          break;
+        case 7: // Class
+          classNameIndex[i] = in.readUnsignedShort();
+          break;
+        case 8: // String
+        case 16: // MethodType
+        case 19: // Module
+        case 20: // Package
+          in.skipBytes(2);
+          break;
+        case 15: // MethodHandle
+          in.skipBytes(3);
+          break;
+        case 3: // Integer
+        case 4: // Float
+        case 9: // Fieldref
+        case 10: // Methodref
+        case 11: // InterfaceMethodref
+        case 12: // NameAndType
+        case 17: // Dynamic
+        case 18: // InvokeDynamic
+          in.skipBytes(4);
+          break;
+        case 5: // Long
+        case 6: // Double
+          in.skipBytes(8);
+          i++;
+          break;
+        default:
+          throw new ClassNotFoundException(className + " (unknown constant pool tag " + tag + ")");
+      }
+    }
+
+    int modifiers = in.readUnsignedShort();
+    String name = getClassName(utf8, classNameIndex, in.readUnsignedShort());
+    if (!className.equals(name))
+    {
+      throw new ClassNotFoundException(className + " (wrong name: " + name + ")");
+    }
+    int superIndex = in.readUnsignedShort();
+    // like Class.getSuperclass(), interfaces have no super class although
+    // their class files name java.lang.Object
+    String superName = superIndex != 0 && (modifiers & Modifier.INTERFACE) == 0 ?
+                       getClassName(utf8, classNameIndex, superIndex) : null;
+    String[] interfaceNames = new String[in.readUnsignedShort()];
+    for (int i = 0; i < interfaceNames.length; i++)
+    {
+      interfaceNames[i] = getClassName(utf8, classNameIndex, in.readUnsignedShort());
+    }
+
+    int fieldCount = in.readUnsignedShort();
+    String[] fieldNames = new String[fieldCount];
+    int[] fieldModifiers = new int[fieldCount];
+    for (int i = 0; i < fieldCount; i++)
+    {
+      fieldModifiers[i] = in.readUnsignedShort();
+      fieldNames[i] = utf8[in.readUnsignedShort()];
+      in.readUnsignedShort(); // descriptor
+      skipAttributes(in);
+    }
+
+    int methodCount = in.readUnsignedShort();
+    List methodNames = new ArrayList(methodCount);
+    List methodDescriptors = new ArrayList(methodCount);
+    int[] methodModifiers = new int[methodCount];
+    for (int i = 0; i < methodCount; i++)
+    {
+      int access = in.readUnsignedShort();
+      String methodName = utf8[in.readUnsignedShort()];
+      String descriptor = utf8[in.readUnsignedShort()];
+      skipAttributes(in);
+      // constructors and static initializers are not methods in the sense of reflection
+      if (!methodName.startsWith("<"))
+      {
+        methodModifiers[methodNames.size()] = access;
+        methodNames.add(methodName);
+        methodDescriptors.add(descriptor);
+      }
+    }
+    int[] modifiersOfMethods = new int[methodNames.size()];
+    System.arraycopy(methodModifiers, 0, modifiersOfMethods, 0, modifiersOfMethods.length);
+
+    // the attributes of the class itself are not needed
+    return new ExtClassInfo(name, modifiers, superName, interfaceNames,
+                            fieldNames, fieldModifiers,
+                            (String[])methodNames.toArray(new String[methodNames.size()]),
+                            (String[])methodDescriptors.toArray(new String[methodDescriptors.size()]),
+                            modifiersOfMethods);
+  }
+
+  private static String getClassName(String[] utf8, int[] classNameIndex, int index)
+  {
+    return utf8[classNameIndex[index]].replace('/', '.');
+  }
+
+  private static void skipAttributes(DataInput in) throws IOException
+  {
+    int count = in.readUnsignedShort();
+    for (int i = 0; i < count; i++)
+    {
+      in.readUnsignedShort(); // name
+      long length = in.readInt() & 0xFFFFFFFFL;
+      while (length > 0)
+      {
+        int skipped = in.skipBytes((int)Math.min(length, Integer.MAX_VALUE));
+        if (skipped <= 0)
+        {
+          throw new IOException("Unexpected end of class file");
+        }
+        length -= skipped;
+      }
+    }
+  }
+
+  /**
+   * Does nothing, the class loader is owned by the caller.
+   */
+  public void close() throws Exception
+  {
+  }
+}
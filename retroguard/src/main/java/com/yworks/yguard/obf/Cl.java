@@ -29,6 +29,7 @@ import com.yworks.yguard.Conversion;
 
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import com.yworks.yguard.obf.classfile.*;
 
 /**
@@ -47,15 +48,49 @@ public class Cl extends PkCl implements NameListUp, NameListDown
     public interface ClassResolver extends AutoCloseable {
       Class resolve(String className) throws ClassNotFoundException;
     }
-    
-    private static final class DefaultClassResolver implements ClassResolver{
-      public Class resolve(String className) throws ClassNotFoundException
+
+    /**
+     * Resolves the headers and declared members of external classes.
+     * If the class resolver implements this interface, it is used for
+     * resolving name spaces and checking the existence of external classes,
+     * otherwise the classes are loaded and inspected using reflection.
+     */
+    public interface ClassInfoResolver {
+      ExtClassInfo resolveInfo(String className) throws ClassNotFoundException;
+    }
+
+    // Uses reflection on the classes of a plain ClassResolver
+    private static final class ReflectionClassInfoResolver implements ClassInfoResolver{
+      private final ClassResolver resolver;
+      private final Map infos = new ConcurrentHashMap();
+
+      ReflectionClassInfoResolver(ClassResolver resolver){
+        this.resolver = resolver;
+      }
+
+      public ExtClassInfo resolveInfo(String className) throws ClassNotFoundException
       {
-        return Class.forName(className, false, this.getClass().getClassLoader());
+        ExtClassInfo info = (ExtClassInfo)infos.get(className);
+        return info != null ? info : createInfo(resolver.resolve(className));
       }
 
-      @Override
-      public void close() throws Exception {
+      // the super types are added, too, as they are not necessarily
+      // resolvable by name
+      private ExtClassInfo createInfo(Class theClass) throws ClassNotFoundException
+      {
+        ExtClassInfo info = (ExtClassInfo)infos.get(theClass.getName());
+        if (info == null){
+          info = ExtClassInfo.create(theClass);
+          if (theClass.getSuperclass() != null){
+            createInfo(theClass.getSuperclass());
+          }
+          Class[] interfaces = theClass.getInterfaces();
+          for (int i = 0; i < interfaces.length; i++){
+            createInfo(interfaces[i]);
+          }
+          infos.put(theClass.getName(), info);
+        }
+        return info;
       }
     }
     
@@ -63,9 +98,10 @@ public class Cl extends PkCl implements NameListUp, NameListDown
   
     // Constants -------------------------------------------------------------
     private static ClassResolver resolver;
+    private static ClassInfoResolver infoResolver;
 
     static {
-      resolver = new DefaultClassResolver();
+      setClassResolver(null);
     }
     
     public static ClassResolver getClassResolver(){
@@ -76,12 +112,31 @@ public class Cl extends PkCl implements NameListUp, NameListDown
       pedantic = val;
     }
     
+    /**
+     * Sets the resolver for classes outside of the obfuscated jars.
+     * By default, the class files are read from the resources of the class
+     * loader of yGuard, see {@link BytecodeClassResolver}.
+     */
     public static void setClassResolver(ClassResolver res){
       if (res != null){
         resolver = res;
       } else {
-        resolver = new DefaultClassResolver();
+        resolver = new BytecodeClassResolver(Cl.class.getClassLoader());
       }
+      infoResolver = resolver instanceof ClassInfoResolver ?
+                     (ClassInfoResolver)resolver :
+                     new ReflectionClassInfoResolver(resolver);
+    }
+
+    /**
+     * Resolves the header and the declared members of a class outside of the
+     * obfuscated jars.
+     * @param className the fully qualified name in the form used by
+     * <code>Class.forName</code>.
+     */
+    public static ExtClassInfo getExtClassInfo(String className) throws ClassNotFoundException
+    {
+      return infoResolver.resolveInfo(className);
     }
 
     // Fields ----------------------------------------------------------------
@@ -99,8 +154,6 @@ public class Cl extends PkCl implements NameListUp, NameListDown
     private Vector nameListUps = new Vector(); // NameListUp interfaces for super-class/interfaces
     private Vector nameListDowns = new Vector(); // NameListDown interfaces for derived class/interfaces
     public static int nameSpace = 0;
-    private static NameMaker methodNameMaker;
-    private static NameMaker fieldNameMaker;
     private Map innerClassModifiers = new HashMap();
     private Set attributesToKeep = new HashSet();
 //    private boolean isPublic = true;
@@ -227,14 +280,15 @@ public class Cl extends PkCl implements NameListUp, NameListDown
                 }
                 else
                 {
-                    Class extSuper = resolver.resolve(ClassFile.translate(superClass));
+                    ExtClassInfo extSuper = getExtClassInfo(ClassFile.translate(superClass));
                     while (extSuper != null)
                     {
                         if (extSuper.getName().equals(ClassFile.translate(queryName)))
                         {
                             return true;
                         }
-                        extSuper = extSuper.getSuperclass();
+                        extSuper = extSuper.getSuperName() != null ?
+                                   getExtClassInfo(extSuper.getSuperName()) : null;
                     }
                     return false;
                 }
@@ -358,38 +412,33 @@ public class Cl extends PkCl implements NameListUp, NameListDown
 
         if (!isResolved)
         {
-            // Get lists of method and field names in inheritance namespace
-            Vector methods = new Vector();
-            Vector fields = new Vector();
+            // Get sets of method and field names in inheritance namespace
+            Set methods = new HashSet();
+            Set fields = new HashSet();
             scanNameSpaceExcept(null, methods, fields);
-            String[] methodNames = new String[methods.size()];
-            for (int i = 0; i < methodNames.length; i++)
-            {
-                methodNames[i] = (String)methods.elementAt(i);
-            }
-            String[] fieldNames = new String[fields.size()];
-            for (int i = 0; i < fieldNames.length; i++)
-            {
-                fieldNames[i] = (String)fields.elementAt(i);
-            }
+            String[] methodNames = (String[])methods.toArray(new String[methods.size()]);
+            String[] fieldNames = (String[])fields.toArray(new String[fields.size()]);
 
             NameMakerFactory nmf = NameMakerFactory.getInstance();
 
             // Create new name-makers for the namespace
-            methodNameMaker = nmf.getMethodNameMaker(methodNames, getFullInName());
-            fieldNameMaker = nmf.getFieldNameMaker(fieldNames, getFullInName());
+            NameMaker methodNameMaker = nmf.getMethodNameMaker(methodNames, getFullInName());
+            NameMaker fieldNameMaker = nmf.getFieldNameMaker(fieldNames, getFullInName());
 
             // Resolve a full name space
-            resolveNameSpaceExcept(null);
+            resolveNameSpaceExcept(null, methodNameMaker, fieldNameMaker);
 
-            // and move to next
-            nameSpace++;
+            // and move to next (name spaces may be resolved concurrently)
+            synchronized (Cl.class)
+            {
+                nameSpace++;
+            }
         }
     }
 
-    // Get lists of method and field names in inheritance namespace
-    private void scanNameSpaceExcept(Cl ignoreCl, Vector methods, 
-                                     Vector fields) throws ClassNotFoundException
+    // Get sets of method and field names in inheritance namespace
+    private void scanNameSpaceExcept(Cl ignoreCl, Set methods, 
+                                     Set fields) throws ClassNotFoundException
     {
 //      System.out.println("Scan: "+getInName());
 
@@ -447,12 +496,12 @@ public class Cl extends PkCl implements NameListUp, NameListDown
     }
 
 
-    // Get lists of method and field names in inheritance namespace
-    private void scanExtSupers(String name, Vector methods,
-                               Vector fields) throws ClassNotFoundException
+    // Get sets of method and field names in inheritance namespace
+    private void scanExtSupers(String name, Set methods,
+                               Set fields) throws ClassNotFoundException
     {
       try {
-        Class extClass = resolver.resolve(ClassFile.translate(name));
+        ExtClassInfo extClass = getExtClassInfo(ClassFile.translate(name));
         scanExtSupers(extClass, methods, fields);
       } catch(ClassNotFoundException cnfe)
       {
@@ -465,60 +514,86 @@ public class Cl extends PkCl implements NameListUp, NameListDown
       }
     }
 
-    // Get lists of method and field names in inheritance namespace
-    private void scanExtSupers(Class extClass, Vector methods, 
-                               Vector fields) throws ClassNotFoundException
+    // Get sets of method and field names in inheritance namespace
+    private void scanExtSupers(ExtClassInfo extClass, Set methods,
+                               Set fields) throws ClassNotFoundException
     {
-      // Get public methods and fields from supers and interfaces up the tree
-      Method[] allPubMethods = extClass.getMethods();
-      if (allPubMethods != null) {
-          for (int i = 0; i < allPubMethods.length; i++) {
-              String methodName = allPubMethods[i].getName();
-              if (methods.indexOf(methodName) == -1) {
-                  methods.addElement(methodName);
-              }
+      // All methods/fields of the class and its supers, like reflection
+      // would report them by getDeclaredMethods/getDeclaredFields up the
+      // super hierarchy ...
+      List extSupers = getExtSuperClasses(extClass);
+      for (int i = 0; i < extSupers.size(); i++) {
+          ExtClassInfo extSuper = (ExtClassInfo)extSupers.get(i);
+          for (int j = 0; j < extSuper.getMethodCount(); j++) {
+              String methodName = extSuper.getMethodName(j);
+              methods.add(methodName);
           }
-      }
-      Field[] allPubFields = extClass.getFields();
-      if (allPubFields != null) {
-          for (int i = 0; i < allPubFields.length; i++) {
-              String fieldName = allPubFields[i].getName();
-              if (fields.indexOf(fieldName) == -1) {
-                  fields.addElement(fieldName);
-              }
+          for (int j = 0; j < extSuper.getFieldCount(); j++) {
+              String fieldName = extSuper.getFieldName(j);
+              fields.add(fieldName);
           }
       }
-      
-      // Go up the super hierarchy, adding all non-public methods/fields
-      while (extClass != null) {
-          Method[] allClassMethods = extClass.getDeclaredMethods();
-          if (allClassMethods != null) {
-              for (int i = 0; i < allClassMethods.length; i++) {
-                  if (!Modifier.isPublic(allClassMethods[i].getModifiers())) {
-                      String methodName = allClassMethods[i].getName();
-                      if (methods.indexOf(methodName) == -1) {
-                          methods.addElement(methodName);
-                      }
-                  }
+
+      // ... and the public methods/fields of the interfaces, like reflection
+      // would report them by getMethods/getFields
+      for (Iterator it = getExtSuperInterfaces(extSupers).iterator(); it.hasNext(); ) {
+          ExtClassInfo extInterface = (ExtClassInfo)it.next();
+          for (int j = 0; j < extInterface.getMethodCount(); j++) {
+              if (isInheritedInterfaceMethod(extInterface.getMethodModifiers(j))) {
+                  String methodName = extInterface.getMethodName(j);
+                  methods.add(methodName);
               }
           }
-          Field[] allClassFields = extClass.getDeclaredFields();
-          if (allClassFields != null) {
-              for (int i = 0; i < allClassFields.length; i++) {
-                  if (!Modifier.isPublic(allClassFields[i].getModifiers())) {
-                      String fieldName = allClassFields[i].getName();
-                      if (fields.indexOf(fieldName) == -1) {
-                          fields.addElement(fieldName);
-                      }
-                  }
+          for (int j = 0; j < extInterface.getFieldCount(); j++) {
+              if (Modifier.isPublic(extInterface.getFieldModifiers(j))) {
+                  String fieldName = extInterface.getFieldName(j);
+                  fields.add(fieldName);
               }
           }
-          extClass = extClass.getSuperclass();
       }
     }
 
-    // Add method and field names from this class to the lists
-    private void scanThis(Vector methods, Vector fields) 
+    // Get an external class and its super classes
+    private static List getExtSuperClasses(ExtClassInfo extClass) throws ClassNotFoundException
+    {
+      List result = new ArrayList();
+      while (extClass != null) {
+          result.add(extClass);
+          extClass = extClass.getSuperName() != null ? getExtClassInfo(extClass.getSuperName()) : null;
+      }
+      return result;
+    }
+
+    // Get all interfaces implemented by the given external classes
+    private static Set getExtSuperInterfaces(List extClasses) throws ClassNotFoundException
+    {
+      Set result = new LinkedHashSet();
+      for (int i = 0; i < extClasses.size(); i++) {
+          addExtSuperInterfaces((ExtClassInfo)extClasses.get(i), result);
+      }
+      return result;
+    }
+
+    private static void addExtSuperInterfaces(ExtClassInfo extClass, Set result) throws ClassNotFoundException
+    {
+      String[] interfaceNames = extClass.getInterfaceNames();
+      for (int i = 0; i < interfaceNames.length; i++) {
+          ExtClassInfo extInterface = getExtClassInfo(interfaceNames[i]);
+          if (result.add(extInterface)) {
+              addExtSuperInterfaces(extInterface, result);
+          }
+      }
+    }
+
+    // Is an interface method inherited by implementing classes, i.e. part of
+    // the public methods reported by reflection?
+    private static boolean isInheritedInterfaceMethod(int modifiers)
+    {
+      return Modifier.isPublic(modifiers) && !Modifier.isStatic(modifiers);
+    }
+
+    // Add method and field names from this class to the sets
+    private void scanThis(Set methods, Set fields) 
     {
         for (Enumeration mdEnum = mds.elements(); mdEnum.hasMoreElements(); )
         {
@@ -526,10 +601,7 @@ public class Cl extends PkCl implements NameListUp, NameListDown
             if (md.isFixed()) 
             {
                 String name = md.getOutName();
-                if (methods.indexOf(name) == -1) 
-                {
-                    methods.addElement(name);
-                }
+                methods.add(name);
             }
         }
         for (Enumeration fdEnum = fds.elements(); fdEnum.hasMoreElements(); )
@@ -538,16 +610,14 @@ public class Cl extends PkCl implements NameListUp, NameListDown
             if (fd.isFixed()) 
             {
                 String name = fd.getOutName();
-                if (fields.indexOf(name) == -1) 
-                {
-                    fields.addElement(name);
-                }
+                fields.add(name);
             }
         }
     }
 
     // Resolve an entire inheritance name space optimally.
-    private void resolveNameSpaceExcept(Cl ignoreCl) throws ClassNotFoundException
+    private void resolveNameSpaceExcept(Cl ignoreCl, NameMaker methodNameMaker,
+                                        NameMaker fieldNameMaker) throws ClassNotFoundException
     {
         // Special case: we are java/lang/Object
         if (superClass == null) return;
@@ -559,14 +629,14 @@ public class Cl extends PkCl implements NameListUp, NameListDown
             Cl superCl = classTree.getCl(superClass);
             if (superCl != null && superCl != ignoreCl)
             {
-                superCl.resolveNameSpaceExcept(this);
+                superCl.resolveNameSpaceExcept(this, methodNameMaker, fieldNameMaker);
             }
             for (int i = 0; i < superInterfaces.length; i++)
             {
                 Cl interfaceItem = classTree.getCl(superInterfaces[i]);
                 if (interfaceItem != null && interfaceItem != ignoreCl)
                 {
-                    interfaceItem.resolveNameSpaceExcept(this);
+                    interfaceItem.resolveNameSpaceExcept(this, methodNameMaker, fieldNameMaker);
                 }
             }
 
@@ -575,7 +645,7 @@ public class Cl extends PkCl implements NameListUp, NameListDown
             {
 //              System.out.println("Resolve: "+getInName());
 //              System.out.println("fds: "+fds);              
-              resolveThis();
+              resolveThis(methodNameMaker, fieldNameMaker);
 
                 // Signal class has been processed
                 isResolved = true;
@@ -587,7 +657,7 @@ public class Cl extends PkCl implements NameListUp, NameListDown
                 Cl cl = (Cl)clEnum.nextElement();
                 if (cl != ignoreCl)
                 {
-                    cl.resolveNameSpaceExcept(this);
+                    cl.resolveNameSpaceExcept(this, methodNameMaker, fieldNameMaker);
                 }
             }
         }
@@ -596,7 +666,7 @@ public class Cl extends PkCl implements NameListUp, NameListDown
     // For each super interface and the super class, if it is outside DB, use reflection
     // to merge its list of public/protected methods/fields --
     // while for those in the DB, resolve to get the name-mapping lists
-    private void resolveThis() throws ClassNotFoundException
+    private void resolveThis(NameMaker methodNameMaker, NameMaker fieldNameMaker) throws ClassNotFoundException
     {
         // Special case: we are java/lang/Object
         if (superClass == null) return;
@@ -616,7 +686,7 @@ public class Cl extends PkCl implements NameListUp, NameListDown
         // Run through each method/field in this class checking for reservations and
         // obfuscating accordingly
         nextMethod:
-        for (Enumeration mdEnum = mds.elements(); mdEnum.hasMoreElements(); )
+        for (Enumeration mdEnum = classTree.getNamingEnum(mds); mdEnum.hasMoreElements(); )
         {
             Md md = (Md)mdEnum.nextElement();
           if (!md.isFixed()) {
@@ -654,7 +724,7 @@ public class Cl extends PkCl implements NameListUp, NameListDown
           }
         }
         nextField:
-        for (Enumeration fdEnum = fds.elements(); fdEnum.hasMoreElements(); )
+        for (Enumeration fdEnum = classTree.getNamingEnum(fds); fdEnum.hasMoreElements(); )
         {
             Fd fd = (Fd)fdEnum.nextElement();
             if (!fd.isFixed())
@@ -894,6 +964,39 @@ public class Cl extends PkCl implements NameListUp, NameListDown
         return null;
     }
 
+    /**
+     * Construct the NameListUp objects for the external super class and
+     * interfaces of this class in advance. This way unresolved external
+     * dependencies are reported in the order of the class tree, even if
+     * the name spaces are resolved concurrently.
+     */
+    public void prepareExtNameListUps()
+    {
+        // Special case: we are java/lang/Object
+        if (superClass == null) return;
+
+        prepareExtNameListUp(superClass);
+        for (int i = 0; i < superInterfaces.length; i++)
+        {
+            prepareExtNameListUp(superInterfaces[i]);
+        }
+    }
+
+    private void prepareExtNameListUp(String name)
+    {
+        if (classTree.getCl(name) == null)
+        {
+            try
+            {
+                getExtNameListUp(name);
+            }
+            catch (ClassNotFoundException cnfe)
+            {
+                // pedantic mode, thrown again when the name space is resolved
+            }
+        }
+    }
+
     // Construct, or retrieve from cache, the NameListUp object for an external class/interface
     private static Hashtable extNameListUpCache = new Hashtable();
     private NameListUp getExtNameListUp(String name) throws ClassNotFoundException
@@ -910,16 +1013,17 @@ public class Cl extends PkCl implements NameListUp, NameListDown
     // NameListUp for class/interface not in the database.
     class ExtNameListUp implements NameListUp
     {
-        // Class's fully qualified name
-        private Class extClass;
-        private Method[] methods = null;
+        // Class's header and declared members
+        private ExtClassInfo extClass;
+        // Names and descriptors of the public/protected/package methods
+        private volatile Set methods = null;
 
         // Ctor.
         public ExtNameListUp(String name) throws ClassNotFoundException
         {
           try
           {
-            extClass = resolver.resolve(ClassFile.translate(name));
+            extClass = getExtClassInfo(ClassFile.translate(name));
           }
           catch (ClassNotFoundException cnfe)
           {
@@ -933,174 +1037,107 @@ public class Cl extends PkCl implements NameListUp, NameListDown
         }
 
         // Ctor.
-        public ExtNameListUp(Class extClass) 
+        public ExtNameListUp(ExtClassInfo extClass) 
         {
             this.extClass = extClass;
         }
 
         // Get obfuscated method name from list, or null if no mapping exists.
-        public String getMethodObfNameUp(String name, String descriptor) 
+        public String getMethodObfNameUp(String name, String descriptor) throws ClassNotFoundException
         {
             return getMethodOutNameUp(name, descriptor);
         }
 
         // Get obfuscated method name from list, or null if no mapping exists.
-        public String getMethodOutNameUp(String name, String descriptor) 
+        public String getMethodOutNameUp(String name, String descriptor) throws ClassNotFoundException
         {
           //RW
           if(extClass == null) return name;
           
-            // Get list of public/protected methods
+            // Get set of public/protected methods
+            // (built in a local set first, as classes may be remapped
+            // concurrently)
+            Set methods = this.methods;
             if (methods == null)
             {
-                methods = getAllDeclaredMethods(extClass);
-                Vector pruned = new Vector();
-                for (int i = 0; i < methods.length; i++)
-                {
-                    int modifiers = methods[i].getModifiers();
-                    if (!Modifier.isPrivate(modifiers))
-                    {
-                        pruned.addElement(methods[i]);
-                    }
-                }
-                methods = new Method[pruned.size()];
-                for (int i = 0; i < methods.length; i++)
-                {
-                    methods[i] = (Method)pruned.elementAt(i);
-                }
-            }
-
-            // Check each public/protected class method against the named one
-            nextMethod:
-            for (int i = 0; i < methods.length; i++)
-            {
-                if (name.equals(methods[i].getName()))
-                {
-                    String[] paramAndReturnNames = ClassFile.parseDescriptor(descriptor);
-                    Class[] paramTypes = methods[i].getParameterTypes();
-                    Class returnType = methods[i].getReturnType();
-                    if (paramAndReturnNames.length == paramTypes.length + 1)
-                    {
-                        for (int j = 0; j < paramAndReturnNames.length - 1; j++)
-                        {
-                            if (!paramAndReturnNames[j].equals(paramTypes[j].getName()))
-                            {
-                                continue nextMethod;
-                            }
-                        }
-                        String returnName = returnType.getName();
-                        if (!paramAndReturnNames[paramAndReturnNames.length - 1].equals(returnName))
-                        {
-                            continue nextMethod;
-                        }
-
-                        // We have a match, and so the derived class method name must be made to match
-                        return name;
-                    }
-                }
+                methods = getAllNonPrivateMethods(extClass);
+                this.methods = methods;
             }
 
-            // Method is not present
-            return null;
+            // If present, the derived class method name must be made to match
+            return methods.contains(name + descriptor) ? name : null;
         }
 
         // Get obfuscated field name from list, or null if no mapping exists.
-        public String getFieldObfNameUp(String name) 
+        public String getFieldObfNameUp(String name) throws ClassNotFoundException
         {
             return getFieldOutNameUp(name);
         }
 
         // Get obfuscated field name from list, or null if no mapping exists.
-        public String getFieldOutNameUp(String name) 
+        public String getFieldOutNameUp(String name) throws ClassNotFoundException
         {
           if(extClass == null) return name;
-            // Use reflection to check class for field
-            Field field = getAllDeclaredField(extClass, name);
-            if (field != null)
+            // Check for field in supers, the first one found must be
+            // public or protected
+            List extSupers = getExtSuperClasses(extClass);
+            for (int i = 0; i < extSupers.size(); i++)
             {
-                // Field must be public or protected
-                int modifiers = field.getModifiers();
-                if (!Modifier.isPrivate(modifiers))
+                ExtClassInfo extSuper = (ExtClassInfo)extSupers.get(i);
+                int index = extSuper.indexOfField(name);
+                if (index >= 0)
                 {
-                    return name;
+                    return Modifier.isPrivate(extSuper.getFieldModifiers(index)) ? null : name;
                 }
             }
 
-            // Field is not present
-            return null;
-        }
-
-        // Get all methods (from supers too) regardless of access level
-        private Method[] getAllDeclaredMethods(Class theClass)
-        {
-            Vector ma = new Vector();
-            int length = 0;
-
-            // Get the public methods from all supers and interfaces up the tree
-            Method[] allPubMethods = theClass.getMethods();
-            ma.addElement(allPubMethods);
-            length += allPubMethods.length;
-
-            // Go up the super hierarchy, getting arrays of all methods (some redundancy
-            // here, but that's okay)
-            while (theClass != null)
+            // Check for public field in interfaces
+            for (Iterator it = getExtSuperInterfaces(extSupers).iterator(); it.hasNext(); )
             {
-                Method[] methods = theClass.getDeclaredMethods();
-                ma.addElement(methods);
-                length += methods.length;
-                theClass = theClass.getSuperclass();
+                ExtClassInfo extInterface = (ExtClassInfo)it.next();
+                int index = extInterface.indexOfField(name);
+                if (index >= 0 && Modifier.isPublic(extInterface.getFieldModifiers(index)))
+                {
+                    return name;
+                }
             }
 
-            // Merge the arrays
-            Method[] allMethods = new Method[length];
-            int pos = 0;
-            for (Enumeration enumeration = ma.elements(); enumeration.hasMoreElements(); )
-            {
-                Method[] methods = (Method[])enumeration.nextElement();
-                System.arraycopy(methods, 0, allMethods, pos, methods.length);
-                pos += methods.length;
-            }
-            return allMethods;
+            // Field is not present
+            return null;
         }
 
-        // Get a specified field (from supers and interfaces too) regardless of access level
-        private Field getAllDeclaredField(Class theClass, String name)
+        // Get the names and descriptors of all non-private methods (from supers too)
+        private Set getAllNonPrivateMethods(ExtClassInfo theClass) throws ClassNotFoundException
         {
-            Class origClass = theClass;
+            Set result = new HashSet();
 
-            // Check for field in supers
-            while (theClass != null)
+            // Go up the super hierarchy, getting all declared methods
+            List extSupers = getExtSuperClasses(theClass);
+            for (int i = 0; i < extSupers.size(); i++)
             {
-                Field field = null;
-                try
-                {
-                    field = theClass.getDeclaredField(name);
-                }
-                catch (Exception e)
-                {
-                    field = null;
-                }
-                if (field != null)
+                ExtClassInfo extSuper = (ExtClassInfo)extSupers.get(i);
+                for (int j = 0; j < extSuper.getMethodCount(); j++)
                 {
-                    return field;
+                    if (!Modifier.isPrivate(extSuper.getMethodModifiers(j)))
+                    {
+                        result.add(extSuper.getMethodName(j) + extSuper.getMethodDescriptor(j));
+                    }
                 }
-                theClass = theClass.getSuperclass();
             }
 
-            // Check for public field in supers and interfaces (some redundancy here,
-            // but that's okay)
-            try
+            // Get the public methods of all interfaces
+            for (Iterator it = getExtSuperInterfaces(extSupers).iterator(); it.hasNext(); )
             {
-                return origClass.getField(name);
-            }
-            catch (SecurityException nsfe)
-            {
-                return null;
-            }
-            catch (NoSuchFieldException nsfe)
-            {
-                return null;
+                ExtClassInfo extInterface = (ExtClassInfo)it.next();
+                for (int j = 0; j < extInterface.getMethodCount(); j++)
+                {
+                    if (isInheritedInterfaceMethod(extInterface.getMethodModifiers(j)))
+                    {
+                        result.add(extInterface.getMethodName(j) + extInterface.getMethodDescriptor(j));
+                    }
+                }
             }
+            return result;
         }
     }
 
@@ -39,12 +39,25 @@ import com.yworks.yguard.obf.classfile.NameMapper;
 import java.io.PrintWriter;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Tree structure of package levels, classes, methods and fields used for obfuscation.
@@ -61,6 +74,39 @@ public class ClassTree implements NameMapper
     // Fields ----------------------------------------------------------------
     private Vector retainAttrs = new Vector();  // List of attributes to retain
     private Pk root = null;   // Root package in database (Java default package)
+    // Results of getCl and findClassForName by name, NOT_FOUND for unknown
+    // names; these are discarded whenever a class file is added to the tree
+    private final Map clIndex = new ConcurrentHashMap();
+    private final Map clForNameIndex = new ConcurrentHashMap();
+    private static final Object NOT_FOUND = new Object();
+    // findClassForName is called for arbitrary tokens of resource files,
+    // so unknown names are only cached up to this number of entries
+    private static final int MAX_CACHED_NAMES = 1 << 16;
+    // Precomputed matches of wildcard patterns, see matchWildcards
+    private WildcardMatcher wildcardMatches = null;
+    // The classes and members referenced by the constant pools of the
+    // class files, by name, see addReferences
+    private Map classReferences = null;
+    private Map memberReferences = null;
+    // Results of mapSignature and mapDescriptor, null unless the mapping
+    // is complete, see cacheMappings
+    private volatile Map signatureCache = null;
+    private volatile Map descriptorCache = null;
+    private static final int MAX_CACHED_MAPPINGS = 1 << 16;
+    // The number of unresolved classes reported on each thread. Mappings
+    // that report unresolved classes are not cached, so that the reports
+    // do not depend on the order the classes are remapped in.
+    private final ThreadLocal unresolvedReports = new ThreadLocal() {
+        protected Object initialValue() {
+            return new int[1];
+        }
+    };
+    // The obfuscated names of the renamed classes of named packages by
+    // their original names, all in Java notation, and the range of the
+    // lengths of the original names, see cacheMappings
+    private Map renamedJavaClasses = null;
+    private int minRenamedLength;
+    private int maxRenamedLength;
 
     // Class methods ---------------------------------------------------------
     /** Return a fully qualified name broken into package/class segments. */
@@ -150,6 +196,19 @@ public class ClassTree implements NameMapper
      * walks the tree of TreeItems in order to find a class forName
      */
     public Cl findClassForName(String name){
+      Object cl = clForNameIndex.get(name);
+      if (cl == null){
+        cl = findClassForNameImpl(name);
+        if (cl != null){
+          clForNameIndex.put(name, cl);
+        } else if (clForNameIndex.size() < MAX_CACHED_NAMES){
+          clForNameIndex.put(name, NOT_FOUND);
+        }
+      }
+      return cl != NOT_FOUND ? (Cl) cl : null;
+    }
+
+    private Cl findClassForNameImpl(String name){
       int dindex = name.indexOf('$');
       String innerClass = null;
       if (dindex>0){
@@ -283,6 +342,16 @@ public class ClassTree implements NameMapper
     /** Add a classfile's package, class, method and field entries to database. */
     public void addClassFile(ClassFile cf)
     {
+        // The tree changes, so previous lookups may be outdated
+        if (!clIndex.isEmpty())
+        {
+            clIndex.clear();
+        }
+        if (!clForNameIndex.isEmpty())
+        {
+            clForNameIndex.clear();
+        }
+
         // Add the fully qualified class name
         TreeItem ti = root;
         char parentTag = PACKAGE_LEVEL;
@@ -343,6 +412,146 @@ public class ClassTree implements NameMapper
         {
             throw new ParseException("Inconsistent class file.");
         }
+
+        if (orderNamesByReferences)
+        {
+            addReferences(cf);
+        }
+    }
+
+    // Record the classes and members a class file refers to, references of a
+    // class to itself and its own members are not recorded
+    private void addReferences(ClassFile cf)
+    {
+        if (classReferences == null)
+        {
+            classReferences = new HashMap();
+            memberReferences = new HashMap();
+        }
+        String name = cf.getName();
+        String[] classes = cf.getReferencedClasses();
+        for (int i = 0; i < classes.length; i++)
+        {
+            if (!classes[i].equals(name))
+            {
+                addReference(classReferences, classes[i], classes[i], null, null);
+            }
+        }
+        String[][] members = cf.getReferencedMembers();
+        for (int i = 0; i < members.length; i++)
+        {
+            String[] member = members[i];
+            if (!member[0].equals(name))
+            {
+                addReference(memberReferences, member[0] + '.' + member[1] + member[2],
+                             member[0], member[1], member[2]);
+            }
+        }
+    }
+
+    private static void addReference(Map references, String key,
+                                     String className, String name, String descriptor)
+    {
+        Reference reference = (Reference)references.get(key);
+        if (reference == null)
+        {
+            reference = new Reference(className, name, descriptor);
+            references.put(key, reference);
+        }
+        reference.count++;
+    }
+
+    /**
+     * Assign the references recorded while adding the class files to the
+     * referenced classes, methods and fields of the tree. A class reference
+     * counts for the enclosing classes and packages, too, since their names
+     * are part of the class name. Member references are assigned to the
+     * declaring class, looked up in the super classes and interfaces.
+     */
+    public void countReferences()
+    {
+        if (classReferences == null)
+        {
+            return;
+        }
+        for (Iterator it = classReferences.values().iterator(); it.hasNext(); )
+        {
+            Reference reference = (Reference)it.next();
+            for (TreeItem ti = getCl(reference.className); ti != null; ti = ti.getParent())
+            {
+                ti.addReferences(reference.count);
+            }
+        }
+        for (Iterator it = memberReferences.values().iterator(); it.hasNext(); )
+        {
+            Reference reference = (Reference)it.next();
+            TreeItem member = findMember(reference.className, reference.name, reference.descriptor);
+            if (member != null)
+            {
+                member.addReferences(reference.count);
+            }
+        }
+        classReferences = null;
+        memberReferences = null;
+    }
+
+    // Find the declaration of a method or field in a class of the tree or in
+    // its super classes and interfaces
+    private TreeItem findMember(String className, String name, String descriptor)
+    {
+        Cl cl = className == null ? null : getCl(className);
+        if (cl == null)
+        {
+            return null;
+        }
+        TreeItem member = descriptor.charAt(0) == '('
+                          ? (TreeItem)cl.getMethod(name, descriptor)
+                          : (TreeItem)cl.getField(name);
+        if (member == null)
+        {
+            member = findMember(cl.getSuperClass(), name, descriptor);
+            String[] interfaces = cl.getInterfaces();
+            for (int i = 0; member == null && interfaces != null && i < interfaces.length; i++)
+            {
+                member = findMember(interfaces[i], name, descriptor);
+            }
+        }
+        return member;
+    }
+
+    /**
+     * Return the items of a name space in the order in which they get their
+     * obfuscated names. If names are ordered by references, the most
+     * referenced items come first and items with the same number of
+     * references are ordered by their keys, otherwise the items are
+     * returned in the order of the table.
+     */
+    Enumeration getNamingEnum(Hashtable items)
+    {
+        if (!orderNamesByReferences)
+        {
+            return items.elements();
+        }
+        Map.Entry[] entries = (Map.Entry[])items.entrySet().toArray(new Map.Entry[items.size()]);
+        Arrays.sort(entries, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                Map.Entry e1 = (Map.Entry)o1;
+                Map.Entry e2 = (Map.Entry)o2;
+                int r1 = ((TreeItem)e1.getValue()).getReferences();
+                int r2 = ((TreeItem)e2.getValue()).getReferences();
+                if (r1 != r2)
+                {
+                    return r1 > r2 ? -1 : 1;
+                }
+                return ((String)e1.getKey()).compareTo((String)e2.getKey());
+            }
+        });
+        Vector vec = new Vector(entries.length);
+        for (int i = 0; i < entries.length; i++)
+        {
+            vec.addElement(entries[i].getValue());
+        }
+        return vec.elements();
     }
 
     /** Mark an attribute type for retention. */
@@ -508,8 +717,77 @@ public class ClassTree implements NameMapper
         });
     }
 
+    /**
+     * Traverse the class tree, generating obfuscated names within each namespace.
+     * The names generated for a namespace depend on the names of its enclosing
+     * namespaces only, so the namespaces of each level of the tree are
+     * processed concurrently on the given executor.
+     * The generated names are the same as with {@link #generateNames()}.
+     */
+    public void generateNames(ExecutorService executor)
+    {
+        // Collect the package and class namespaces by their depth in the tree
+        final List levels = new ArrayList();
+        walkTree(new TreeAction() {
+            public void defaultAction(TreeItem ti)  {
+                int depth = 0;
+                for (TreeItem parent = ti.getParent(); parent != null; parent = parent.getParent())
+                {
+                    depth++;
+                }
+                while (levels.size() <= depth)
+                {
+                    levels.add(new ArrayList());
+                }
+                ((List)levels.get(depth)).add(ti);
+            }
+            public void methodAction(Md md)  {}
+            public void fieldAction(Fd fd)  {}
+        });
+
+        for (int i = 0; i < levels.size(); i++)
+        {
+            List namespaces = (List)levels.get(i);
+            List futures = new ArrayList(namespaces.size());
+            for (int j = 0; j < namespaces.size(); j++)
+            {
+                final PkCl namespace = (PkCl)namespaces.get(j);
+                futures.add(executor.submit(new Callable() {
+                    public Object call()  {
+                        namespace.generateNames();
+                        return null;
+                    }
+                }));
+            }
+            for (int j = 0; j < futures.size(); j++)
+            {
+                try
+                {
+                    waitFor((Future)futures.get(j));
+                }
+                catch (ClassNotFoundException cnfe)
+                {
+                    // cannot happen, generating names does not resolve classes
+                    throw new IllegalStateException(cnfe.getMessage());
+                }
+            }
+        }
+    }
+
     /** Resolve the polymorphic dependencies of each class. */
     public void resolveClasses() throws ClassNotFoundException
+    {
+        resolveClasses(null);
+    }
+
+    /**
+     * Resolve the polymorphic dependencies of each class.
+     * If an executor is given, the independent inheritance name spaces, i.e.
+     * the connected components of the super class, sub class and interface
+     * graph of the classes in the tree, are resolved concurrently on it.
+     * The resulting names and messages are the same as without executor.
+     */
+    public void resolveClasses(ExecutorService executor) throws ClassNotFoundException
     {
         walkTree(new TreeAction() {
             public void classAction(Cl cl)  {cl.resetResolve();}
@@ -517,7 +795,15 @@ public class ClassTree implements NameMapper
         walkTree(new TreeAction() {
             public void classAction(Cl cl)  {cl.setupNameListDowns();}
         });
+        walkTree(new TreeAction() {
+            public void classAction(Cl cl)  {cl.prepareExtNameListUps();}
+        });
         Cl.nameSpace = 0;
+        if (executor != null)
+        {
+            resolveComponents(executor);
+            return;
+        }
         final ClassNotFoundException[] ex = new ClassNotFoundException[1];
         try{
           walkTree(new TreeAction() {
@@ -539,6 +825,172 @@ public class ClassTree implements NameMapper
         }
     }
 
+    // Resolve each connected component of the inheritance graph on the executor.
+    // The messages logged while resolving are passed on in the order of the
+    // components, which is the order they are logged in when resolving the
+    // classes one after the other.
+    private void resolveComponents(ExecutorService executor) throws ClassNotFoundException
+    {
+        List components = getInheritanceComponents();
+        List resolvers = new ArrayList(components.size());
+        List futures = new ArrayList(components.size());
+        for (int i = 0; i < components.size(); i++)
+        {
+            ComponentResolver resolver = new ComponentResolver((List)components.get(i));
+            resolvers.add(resolver);
+            futures.add(executor.submit(resolver));
+        }
+        try
+        {
+            for (int i = 0; i < futures.size(); i++)
+            {
+                try
+                {
+                    waitFor((Future)futures.get(i));
+                }
+                finally
+                {
+                    Logger.replay(((ComponentResolver)resolvers.get(i)).messages);
+                }
+            }
+        }
+        finally
+        {
+            for (int i = 0; i < futures.size(); i++)
+            {
+                ((Future)futures.get(i)).cancel(false);
+            }
+        }
+    }
+
+    // Group the classes of the tree by the connected components of the graph
+    // of super classes and interfaces in the tree. Both the components and the
+    // classes of each component are in the order of the tree.
+    private List getInheritanceComponents()
+    {
+        final List classes = new ArrayList();
+        walkTree(new TreeAction() {
+            public void classAction(Cl cl)  {classes.add(cl);}
+        });
+        Map indices = new HashMap();
+        int[] parents = new int[classes.size()];
+        for (int i = 0; i < parents.length; i++)
+        {
+            indices.put(classes.get(i), new Integer(i));
+            parents[i] = i;
+        }
+        for (int i = 0; i < parents.length; i++)
+        {
+            Cl cl = (Cl)classes.get(i);
+            if (cl.getSuperClass() != null)
+            {
+                union(parents, i, indices.get(getCl(cl.getSuperClass())));
+                String[] interfaces = cl.getInterfaces();
+                for (int j = 0; j < interfaces.length; j++)
+                {
+                    union(parents, i, indices.get(getCl(interfaces[j])));
+                }
+            }
+        }
+        Map components = new LinkedHashMap();
+        for (int i = 0; i < parents.length; i++)
+        {
+            Integer root = new Integer(find(parents, i));
+            List component = (List)components.get(root);
+            if (component == null)
+            {
+                component = new ArrayList();
+                components.put(root, component);
+            }
+            component.add(classes.get(i));
+        }
+        return new ArrayList(components.values());
+    }
+
+    private static void union(int[] parents, int i, Object index)
+    {
+        if (index != null)
+        {
+            int root1 = find(parents, i);
+            int root2 = find(parents, ((Integer)index).intValue());
+            if (root1 != root2)
+            {
+                parents[Math.max(root1, root2)] = Math.min(root1, root2);
+            }
+        }
+    }
+
+    private static int find(int[] parents, int i)
+    {
+        while (parents[i] != i)
+        {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    // Wait for a task, rethrowing its exception, if any.
+    private static void waitFor(Future future) throws ClassNotFoundException
+    {
+        try
+        {
+            future.get();
+        }
+        catch (InterruptedException ie)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for name space");
+        }
+        catch (ExecutionException ee)
+        {
+            Throwable cause = ee.getCause();
+            if (cause instanceof ClassNotFoundException)
+            {
+                throw (ClassNotFoundException)cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error)cause;
+            }
+            throw new IllegalStateException(String.valueOf(cause));
+        }
+    }
+
+    // Resolves the name spaces of one connected component of the inheritance
+    // graph, recording the messages logged meanwhile.
+    private static final class ComponentResolver implements Callable
+    {
+        private final List classes;
+        Object messages;
+
+        ComponentResolver(List classes)
+        {
+            this.classes = classes;
+        }
+
+        public Object call() throws ClassNotFoundException
+        {
+            Logger.startRecording();
+            try
+            {
+                for (int i = 0; i < classes.size(); i++)
+                {
+                    ((Cl)classes.get(i)).resolveOptimally();
+                }
+                return null;
+            }
+            finally
+            {
+                messages = Logger.stopRecording();
+            }
+        }
+    }
+
     /** Return a list of attributes marked to keep. */
     public String[] getAttrsToKeep()
     {
@@ -550,6 +1002,26 @@ public class ClassTree implements NameMapper
         return attrs;
     }
 
+    /**
+     * Match the wildcard patterns of the given rules against the tree in a
+     * single traversal. Until {@link #clearWildcardMatches()} is called,
+     * getClEnum, getMdEnum and getFdEnum use these matches instead of
+     * traversing the tree once for each pattern. The tree must not change
+     * in the meantime.
+     */
+    public void matchWildcards(Collection rules)
+    {
+        WildcardMatcher matcher = new WildcardMatcher(rules);
+        matcher.match(this);
+        wildcardMatches = matcher;
+    }
+
+    /** Discard the matches computed by {@link #matchWildcards(Collection)}. */
+    public void clearWildcardMatches()
+    {
+        wildcardMatches = null;
+    }
+
     /** Get classes in tree from the fully qualified name
         (can be wildcarded). */
     public Enumeration getClEnum(String fullName)
@@ -565,7 +1037,16 @@ public class ClassTree implements NameMapper
 
         // Wildcarded?
         // Then return list of all classes (including inner classes) in package
-        if (fullName.indexOf('*') != -1) {
+        Vector matches = wildcardMatches != null ? wildcardMatches.getClasses(fullName) : null;
+        if (matches != null) {
+            for (Enumeration enumeration = matches.elements(); enumeration.hasMoreElements(); ) {
+                Cl cl = (Cl)enumeration.nextElement();
+                if (modifierMatch(classMode, cl.getModifiers())) {
+                    vec.addElement(cl);
+                }
+            }
+        }
+        else if (fullName.indexOf('*') != -1) {
             // Recursive?
             if (fullName.indexOf('!') == 0) {
                 final String fName = fullName.substring(1);
@@ -616,7 +1097,11 @@ public class ClassTree implements NameMapper
     {
         final Vector vec = new Vector();
         final String fDesc = descriptor;
-        if (fullName.indexOf('*') != -1 ||
+        Vector matches = wildcardMatches != null ? wildcardMatches.getMethods(fullName, descriptor) : null;
+        if (matches != null) {
+            vec.addAll(matches);
+        }
+        else if (fullName.indexOf('*') != -1 ||
             descriptor.indexOf('*') != -1) {
             // Recursive?
             if (fullName.indexOf('!') == 0) {
@@ -656,7 +1141,11 @@ public class ClassTree implements NameMapper
     public Enumeration getFdEnum(String fullName)
     {
         final Vector vec = new Vector();
-        if (fullName.indexOf('*') != -1) {
+        Vector matches = wildcardMatches != null ? wildcardMatches.getFields(fullName) : null;
+        if (matches != null) {
+            vec.addAll(matches);
+        }
+        else if (fullName.indexOf('*') != -1) {
             // Recursive?
             if (fullName.indexOf('!') == 0) {
                 // recursive wildcarding
@@ -692,6 +1181,18 @@ public class ClassTree implements NameMapper
 
     /** Get class in tree from the fully qualified name, returning null if name not found. */
     public Cl getCl(String fullName)
+    {
+        Object cl = clIndex.get(fullName);
+        if (cl == null)
+        {
+            cl = getClImpl(fullName);
+            clIndex.put(fullName, cl != null ? cl : NOT_FOUND);
+        }
+        return cl != NOT_FOUND ? (Cl)cl : null;
+    }
+
+    // Walk the tree to find the class with the given fully qualified name.
+    private Cl getClImpl(String fullName)
     {
         TreeItem ti = root;
         for (Enumeration nameEnum = getNameEnum(fullName); nameEnum.hasMoreElements(); )
@@ -829,16 +1330,14 @@ public class ClassTree implements NameMapper
             Cl cl = getCl(className);
             if (cl == null){
               try {
-                Class aClass = Cl.getClassResolver().resolve(Conversion.toJavaClass(className));
+                Cl.getExtClassInfo(Conversion.toJavaClass(className));
                 // ok class exists...
                 return className;
               } catch (ClassNotFoundException e) {
                 if (pedantic){
                   throw new NoSuchMappingException("Class "+Conversion.toJavaClass(className));
                 } else {
-                  Logger.getInstance().warningToLogfile("Unresolved external dependency: "+Conversion.toJavaClass(className)+
-                                     " not found!");
-                  Logger.getInstance().setUnresolved();
+                  reportUnresolved(className);
                   return className;
                 }
               }
@@ -862,16 +1361,17 @@ public class ClassTree implements NameMapper
         }
       }
       Cl cl = getCl(className);
-      if (cl != null && cl.getMethod(methodName, descriptor) != null)
+      Md md = cl != null ? cl.getMethod(methodName, descriptor) : null;
+      if (md != null)
       {
-        return cl.getMethod(methodName, descriptor).getOutName();
+        return md.getOutName();
       }
       else
       {
         if (cl == null)
         {
           try {
-            Class aClass = Cl.getClassResolver().resolve(Conversion.toJavaClass(className));
+            Cl.getExtClassInfo(Conversion.toJavaClass(className));
           } catch (ClassNotFoundException e) {
             if (pedantic){
               throw new NoSuchMappingException("Class "+Conversion.toJavaClass(className));
@@ -1008,6 +1508,27 @@ public class ClassTree implements NameMapper
      *  @see NameMapper#mapSignature
      */
     public String mapSignature(String signature){
+        Map cache = signatureCache;
+        if (cache == null)
+        {
+            return mapSignatureImpl(signature);
+        }
+        String mapped = (String)cache.get(signature);
+        if (mapped != null)
+        {
+            return mapped;
+        }
+        int[] reports = (int[])unresolvedReports.get();
+        int reported = reports[0];
+        mapped = mapSignatureImpl(signature);
+        if (reports[0] == reported && cache.size() < MAX_CACHED_MAPPINGS)
+        {
+            cache.put(signature, mapped);
+        }
+        return mapped;
+    }
+
+    private String mapSignatureImpl(String signature){
         // Pass everything through unchanged, except for the String between
         // 'L' and ';' -- this is passed through mapClass(String)
 
@@ -1232,16 +1753,14 @@ public class ClassTree implements NameMapper
       Cl cl = getCl(className);
       if (cl == null){
         try {
-          Class aClass = Cl.getClassResolver().resolve(Conversion.toJavaClass(className));
+          Cl.getExtClassInfo(Conversion.toJavaClass(className));
           // ok class exists...
           return classNamePart;
         } catch (ClassNotFoundException e) {
           if (pedantic){
             throw new NoSuchMappingException("Class "+Conversion.toJavaClass(className));
           } else {
-            Logger.getInstance().warningToLogfile("Unresolved external dependency: "+Conversion.toJavaClass(className)+
-                               " not found!");
-            Logger.getInstance().setUnresolved();
+            reportUnresolved(className);
             return classNamePart;
           }
         }
@@ -1251,6 +1770,13 @@ public class ClassTree implements NameMapper
     }
 	}
 
+  private void reportUnresolved(String className) {
+    Logger.getInstance().warningToLogfile("Unresolved external dependency: "+Conversion.toJavaClass(className)+
+                       " not found!");
+    Logger.getInstance().setUnresolved();
+    ((int[])unresolvedReports.get())[0]++;
+  }
+
   private String appendOutName(String retval, String currentClassName) {
     Cl cl = getCl( currentClassName );
     if( null != cl ) {
@@ -1260,16 +1786,14 @@ public class ClassTree implements NameMapper
       retval = retval + cl.getOutName();
     } else {
       try {
-        Class aClass = Cl.getClassResolver().resolve(Conversion.toJavaClass(currentClassName));
+        Cl.getExtClassInfo(Conversion.toJavaClass(currentClassName));
         // ok class exists...
         retval = retval + "." + currentClassName;
       } catch (ClassNotFoundException e) {
         if (pedantic){
           throw new NoSuchMappingException("Class "+Conversion.toJavaClass(currentClassName));
         } else {
-          Logger.getInstance().warningToLogfile("Unresolved external dependency: "+Conversion.toJavaClass(currentClassName)+
-                             " not found!");
-          Logger.getInstance().setUnresolved();
+          reportUnresolved(currentClassName);
           retval = retval + "." + currentClassName;
         }
       }
@@ -1288,8 +1812,12 @@ public class ClassTree implements NameMapper
 
   public boolean mapLineNumberTable(String className, String methodName, String methodSignature, LineNumberTableAttrInfo info) {
     final Cl cl = getCl(className);
-    if (cl.getLineNumberTableMapper() != null){
-      return cl.getLineNumberTableMapper().mapLineNumberTable(className, methodName, methodSignature, info);
+    final LineNumberTableMapper mapper = cl.getLineNumberTableMapper();
+    if (mapper != null){
+      // mappers may be shared between classes that are remapped concurrently
+      synchronized (mapper) {
+        return mapper.mapLineNumberTable(className, methodName, methodSignature, info);
+      }
     } else {
       return true;
     }
@@ -1300,6 +1828,28 @@ public class ClassTree implements NameMapper
      * @see NameMapper#mapDescriptor
      */
     public String mapDescriptor(String descriptor)
+    {
+        Map cache = descriptorCache;
+        if (cache == null)
+        {
+            return mapDescriptorImpl(descriptor);
+        }
+        String mapped = (String)cache.get(descriptor);
+        if (mapped != null)
+        {
+            return mapped;
+        }
+        int[] reports = (int[])unresolvedReports.get();
+        int reported = reports[0];
+        mapped = mapDescriptorImpl(descriptor);
+        if (reports[0] == reported && cache.size() < MAX_CACHED_MAPPINGS)
+        {
+            cache.put(descriptor, mapped);
+        }
+        return mapped;
+    }
+
+    private String mapDescriptorImpl(String descriptor)
     {
         // Pass everything through unchanged, except for the String between
         // 'L' and ';' -- this is passed through mapClass(String)
@@ -1344,6 +1894,79 @@ public class ClassTree implements NameMapper
         return newDesc.toString();
     }
 
+    /**
+     * Start caching the results of {@link #mapSignature(String)} and
+     * {@link #mapDescriptor(String)}. The same descriptors and signatures
+     * occur in many classes, but their mapping can only be cached once
+     * the obfuscated names of all classes are fixed.
+     * Descriptors and signatures that refer to unresolved external classes
+     * are not cached, so that these are reported for every occurrence.
+     */
+    public void cacheMappings()
+    {
+        if (signatureCache == null)
+        {
+            if (replaceClassNameStrings)
+            {
+                indexRenamedJavaClasses();
+            }
+            signatureCache = new ConcurrentHashMap();
+            descriptorCache = new ConcurrentHashMap();
+        }
+    }
+
+    // Collect the renamed classes for mapJavaClassName
+    private void indexRenamedJavaClasses()
+    {
+        final Map renamed = new HashMap();
+        final int[] lengths = {Integer.MAX_VALUE, 0};
+        walkTree(new TreeAction() {
+            public void classAction(Cl cl) {
+                String inName = cl.getFullInName();
+                String outName = cl.getFullOutName();
+                if (!inName.equals(outName) && inName.indexOf('/') > 0)
+                {
+                    renamed.put(inName.replace('/', '.'), outName.replace('/', '.'));
+                    lengths[0] = Math.min(lengths[0], inName.length());
+                    lengths[1] = Math.max(lengths[1], inName.length());
+                }
+            }
+        });
+        minRenamedLength = lengths[0];
+        maxRenamedLength = lengths[1];
+        renamedJavaClasses = renamed;
+    }
+
+    /**
+     * Return the obfuscated name of a renamed class given by its fully
+     * qualified Java name, e.g. <code>com.mycompany.Foo$Bar</code>, or
+     * <code>null</code> if there is no such class or it keeps its name.
+     * Classes of the default package are not considered.
+     * Must not be called before {@link #cacheMappings()}.
+     */
+    public String mapJavaClassName(String name)
+    {
+        if (renamedJavaClasses == null)
+        {
+            if (name.indexOf('.') <= 0)
+            {
+                return null;
+            }
+            Cl cl = findClassForName(name);
+            if (cl == null || cl.getFullInName().equals(cl.getFullOutName()))
+            {
+                return null;
+            }
+            return cl.getFullOutName().replace('/', '.');
+        }
+        int length = name.length();
+        if (length < minRenamedLength || length > maxRenamedLength)
+        {
+            return null;
+        }
+        return (String)renamedJavaClasses.get(name);
+    }
+
     /**
      * Mapping for package names.
      * @see NameMapper#mapPackage(String)
@@ -1481,6 +2104,26 @@ public class ClassTree implements NameMapper
     /** Holds value of property pedantic. */
     private boolean pedantic;
 
+    /** Holds value of property orderNamesByReferences. */
+    private boolean orderNamesByReferences;
+
+    // A class or member referenced by class files and the number of
+    // class files referencing it
+    private static final class Reference
+    {
+        final String className;
+        final String name;
+        final String descriptor;
+        int count;
+
+        Reference(String className, String name, String descriptor)
+        {
+            this.className = className;
+            this.name = name;
+            this.descriptor = descriptor;
+        }
+    }
+
     private static String toHex(int i){
       StringBuffer buf = new StringBuffer(2);
       buf.append(hexChars.charAt((i/16)&15));
@@ -1582,6 +2225,29 @@ public class ClassTree implements NameMapper
       this.pedantic = pedantic;
     }
 
+    /** Getter for property orderNamesByReferences.
+     * @return Value of property orderNamesByReferences.
+     *
+     */
+    public boolean isOrderNamesByReferences()
+    {
+      return this.orderNamesByReferences;
+    }
+
+    /** Setter for property orderNamesByReferences.
+     * If set, the references of the class files to classes, methods and
+     * fields are recorded while adding the class files, and the items of
+     * each name space get their names in the order of their references,
+     * so that the most referenced items get the shortest names.
+     * Must be set before adding class files.
+     * @param orderNamesByReferences New value of property orderNamesByReferences.
+     *
+     */
+    public void setOrderNamesByReferences(boolean orderNamesByReferences)
+    {
+      this.orderNamesByReferences = orderNamesByReferences;
+    }
+
   public void retainSourceFileAttributeMap(String name, String obfName) {
     for (Enumeration clEnum = getClEnum(name); clEnum.hasMoreElements(); )
     {
@@ -0,0 +1,429 @@
+/**
+ * YGuard -- an obfuscation library for Java(TM) classfiles.
+ *
+ * Copyright (c) 2002 yWorks GmbH (yguard@yworks.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * The author may be contacted at yguard@yworks.com
+ *
+ * Java and all Java-based marks are trademarks or registered
+ * trademarks of Sun Microsystems, Inc. in the U.S. and other countries.
+ */
+package com.yworks.yguard.obf;
+
+import com.yworks.yguard.obf.classfile.ClassFileInput;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A compact binary index of the headers and declared members of all classes
+ * in a jar, see {@link ExtClassInfo}.
+ * <p>
+ * The indices are stored in a cache directory under the SHA-1 hash of the
+ * jar contents. Later runs map the index file into memory instead of reading
+ * the class files of the jar again, as long as the jar does not change.
+ * The entries are decoded on demand.
+ * </p>
+ */
+final class ExtClassIndex
+{
+  private static final int MAGIC = 0x59474349; // YGCI
+  // version 2: no super class for interfaces
+  private static final int VERSION = 2;
+  private static final String SUFFIX = ".ycx";
+  private static final String CLASS_EXT = ".class";
+
+  private final ByteBuffer data;
+  private final int[] stringOffsets;
+  private final String[] strings;
+  // the offset of the entry for each class name
+  private final Map entries;
+
+  // Read the header of the index. The offsets of all strings and entries
+  // are checked, the strings and entries themselves are checked when they
+  // are decoded.
+  private ExtClassIndex(ByteBuffer data) throws IOException
+  {
+    this.data = data;
+    ClassFileInput in = new ClassFileInput(data);
+    if (in.readInt() != MAGIC || in.readInt() != VERSION)
+    {
+      throw new IOException("Invalid class index");
+    }
+    stringOffsets = new int[readCount(in, 4)];
+    for (int i = 0; i < stringOffsets.length; i++)
+    {
+      stringOffsets[i] = checkOffset(in.readInt());
+    }
+    strings = new String[stringOffsets.length];
+    int classCount = readCount(in, 8);
+    entries = new HashMap(classCount * 2);
+    for (int i = 0; i < classCount; i++)
+    {
+      int name = in.readInt();
+      entries.put(getString(name), new Integer(checkOffset(in.readInt())));
+    }
+  }
+
+  // Read the number of the following items of the given size.
+  private static int readCount(ClassFileInput in, int itemSize) throws IOException
+  {
+    int count = in.readInt();
+    if (count < 0 || count > in.remaining() / itemSize)
+    {
+      throw new IOException("Corrupt class index");
+    }
+    return count;
+  }
+
+  private int checkOffset(int offset) throws IOException
+  {
+    if (offset < 0 || offset >= data.limit())
+    {
+      throw new IOException("Corrupt class index");
+    }
+    return offset;
+  }
+
+  /**
+   * Returns the index of the given jar. The index is read from the cache
+   * directory if it has been created before, otherwise the jar is indexed
+   * and the index is stored in the cache directory.
+   */
+  static ExtClassIndex open(File jar, File cacheDir) throws IOException
+  {
+    return open(jar, cacheDir, false);
+  }
+
+  /**
+   * Indexes the given jar again and replaces its index in the cache
+   * directory, e.g. if the cached index turned out to be corrupt.
+   */
+  static ExtClassIndex recreate(File jar, File cacheDir) throws IOException
+  {
+    return open(jar, cacheDir, true);
+  }
+
+  private static ExtClassIndex open(File jar, File cacheDir, boolean recreate) throws IOException
+  {
+    File indexFile = new File(cacheDir, hash(jar) + SUFFIX);
+    if (!recreate && indexFile.isFile())
+    {
+      try
+      {
+        return new ExtClassIndex(map(indexFile));
+      }
+      catch (IOException ioe)
+      {
+        // corrupt or outdated index, create it again
+      }
+    }
+
+    byte[] index = createIndex(jar);
+    try
+    {
+      // write to a temporary file first, as several builds may use the
+      // same cache directory concurrently
+      cacheDir.mkdirs();
+      File tmp = File.createTempFile("yguard_index_", ".tmp", cacheDir);
+      OutputStream os = new FileOutputStream(tmp);
+      try
+      {
+        os.write(index);
+      }
+      finally
+      {
+        os.close();
+      }
+      if (recreate)
+      {
+        indexFile.delete();
+      }
+      if (!tmp.renameTo(indexFile))
+      {
+        tmp.delete();
+      }
+    }
+    catch (IOException ioe)
+    {
+      // the index is used nevertheless, it just has to be created again
+      // by the next run
+    }
+    return new ExtClassIndex(ByteBuffer.wrap(index));
+  }
+
+  /**
+   * Returns the header and declared members of the class with the given name
+   * or <code>null</code> if the jar does not contain such a class.
+   * @throws IOException if the entry of the class is corrupt.
+   */
+  ExtClassInfo get(String className) throws IOException
+  {
+    Integer offset = (Integer)entries.get(className);
+    if (offset == null)
+    {
+      return null;
+    }
+    ClassFileInput in = new ClassFileInput(at(offset.intValue()));
+    int modifiers = in.readUnsignedShort();
+    int superName = in.readInt();
+    if (superName < -1)
+    {
+      throw new IOException("Corrupt class index");
+    }
+    String[] interfaceNames = new String[in.readUnsignedShort()];
+    for (int i = 0; i < interfaceNames.length; i++)
+    {
+      interfaceNames[i] = getString(in.readInt());
+    }
+    int fieldCount = in.readUnsignedShort();
+    String[] fieldNames = new String[fieldCount];
+    int[] fieldModifiers = new int[fieldCount];
+    for (int i = 0; i < fieldCount; i++)
+    {
+      fieldModifiers[i] = in.readUnsignedShort();
+      fieldNames[i] = getString(in.readInt());
+    }
+    int methodCount = in.readUnsignedShort();
+    String[] methodNames = new String[methodCount];
+    String[] methodDescriptors = new String[methodCount];
+    int[] methodModifiers = new int[methodCount];
+    for (int i = 0; i < methodCount; i++)
+    {
+      methodModifiers[i] = in.readUnsignedShort();
+      methodNames[i] = getString(in.readInt());
+      methodDescriptors[i] = getString(in.readInt());
+    }
+    return new ExtClassInfo(className, modifiers, superName < 0 ? null : getString(superName), interfaceNames,
+                            fieldNames, fieldModifiers, methodNames, methodDescriptors, methodModifiers);
+  }
+
+  private String getString(int index) throws IOException
+  {
+    if (index < 0 || index >= strings.length)
+    {
+      throw new IOException("Corrupt class index");
+    }
+    synchronized (strings)
+    {
+      String s = strings[index];
+      if (s == null)
+      {
+        s = new ClassFileInput(at(stringOffsets[index])).readUTF();
+        strings[index] = s;
+      }
+      return s;
+    }
+  }
+
+  private ByteBuffer at(int offset) throws IOException
+  {
+    checkOffset(offset);
+    // the buffer itself is shared between threads, so it is never moved
+    ByteBuffer buffer = data.duplicate();
+    buffer.position(offset);
+    return buffer;
+  }
+
+  private static ByteBuffer map(File file) throws IOException
+  {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try
+    {
+      FileChannel channel = raf.getChannel();
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    finally
+    {
+      // the mapping stays valid
+      raf.close();
+    }
+  }
+
+  private static String hash(File jar) throws IOException
+  {
+    MessageDigest md;
+    try
+    {
+      md = MessageDigest.getInstance("SHA-1");
+    }
+    catch (NoSuchAlgorithmException nsae)
+    {
+      throw new IOException(nsae.getMessage());
+    }
+    InputStream is = new FileInputStream(jar);
+    try
+    {
+      byte[] buffer = new byte[65536];
+      for (int n = is.read(buffer); n >= 0; n = is.read(buffer))
+      {
+        md.update(buffer, 0, n);
+      }
+    }
+    finally
+    {
+      is.close();
+    }
+    byte[] digest = md.digest();
+    StringBuffer sb = new StringBuffer(digest.length * 2);
+    for (int i = 0; i < digest.length; i++)
+    {
+      sb.append(Character.forDigit((digest[i] >> 4) & 0xF, 16));
+      sb.append(Character.forDigit(digest[i] & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+  // Read the class files of the jar and create the index data.
+  private static byte[] createIndex(File jar) throws IOException
+  {
+    List infos = new ArrayList();
+    ZipFile zip = new ZipFile(jar);
+    try
+    {
+      for (Enumeration en = zip.entries(); en.hasMoreElements();)
+      {
+        ZipEntry entry = (ZipEntry)en.nextElement();
+        String name = entry.getName();
+        // versioned entries of multi-release jars are not indexed
+        if (entry.isDirectory() || !name.endsWith(CLASS_EXT) || name.startsWith("META-INF/"))
+        {
+          continue;
+        }
+        String className = name.substring(0, name.length() - CLASS_EXT.length()).replace('/', '.');
+        DataInputStream in = new DataInputStream(new BufferedInputStream(zip.getInputStream(entry)));
+        try
+        {
+          infos.add(BytecodeClassResolver.read(in, className));
+        }
+        catch (ClassNotFoundException cnfe)
+        {
+          // not a valid class file, it could not be resolved either
+        }
+        finally
+        {
+          in.close();
+        }
+      }
+    }
+    finally
+    {
+      zip.close();
+    }
+
+    // the strings are stored once, the entries refer to them by index
+    Map stringIndices = new HashMap();
+    List stringList = new ArrayList();
+    ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+    DataOutputStream entryOut = new DataOutputStream(entryBytes);
+    int[] entryOffsets = new int[infos.size()];
+    int[] nameIndices = new int[infos.size()];
+    for (int i = 0; i < infos.size(); i++)
+    {
+      ExtClassInfo info = (ExtClassInfo)infos.get(i);
+      nameIndices[i] = indexOf(info.getName(), stringIndices, stringList);
+      entryOffsets[i] = entryOut.size();
+      entryOut.writeShort(info.getModifiers());
+      entryOut.writeInt(info.getSuperName() == null ? -1 : indexOf(info.getSuperName(), stringIndices, stringList));
+      String[] interfaceNames = info.getInterfaceNames();
+      entryOut.writeShort(interfaceNames.length);
+      for (int j = 0; j < interfaceNames.length; j++)
+      {
+        entryOut.writeInt(indexOf(interfaceNames[j], stringIndices, stringList));
+      }
+      entryOut.writeShort(info.getFieldCount());
+      for (int j = 0; j < info.getFieldCount(); j++)
+      {
+        entryOut.writeShort(info.getFieldModifiers(j));
+        entryOut.writeInt(indexOf(info.getFieldName(j), stringIndices, stringList));
+      }
+      entryOut.writeShort(info.getMethodCount());
+      for (int j = 0; j < info.getMethodCount(); j++)
+      {
+        entryOut.writeShort(info.getMethodModifiers(j));
+        entryOut.writeInt(indexOf(info.getMethodName(j), stringIndices, stringList));
+        entryOut.writeInt(indexOf(info.getMethodDescriptor(j), stringIndices, stringList));
+      }
+    }
+    entryOut.flush();
+
+    ByteArrayOutputStream stringBytes = new ByteArrayOutputStream();
+    DataOutputStream stringOut = new DataOutputStream(stringBytes);
+    int[] stringOffsets = new int[stringList.size()];
+    for (int i = 0; i < stringOffsets.length; i++)
+    {
+      stringOffsets[i] = stringOut.size();
+      stringOut.writeUTF((String)stringList.get(i));
+    }
+    stringOut.flush();
+
+    // header: magic, version, string offsets, class names and entry offsets
+    int stringsStart = 4 + 4 + 4 + 4 * stringOffsets.length + 4 + 8 * infos.size();
+    int entriesStart = stringsStart + stringBytes.size();
+    ByteArrayOutputStream result = new ByteArrayOutputStream(entriesStart + entryBytes.size());
+    DataOutputStream out = new DataOutputStream(result);
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(stringOffsets.length);
+    for (int i = 0; i < stringOffsets.length; i++)
+    {
+      out.writeInt(stringsStart + stringOffsets[i]);
+    }
+    out.writeInt(infos.size());
+    for (int i = 0; i < infos.size(); i++)
+    {
+      out.writeInt(nameIndices[i]);
+      out.writeInt(entriesStart + entryOffsets[i]);
+    }
+    stringBytes.writeTo(out);
+    entryBytes.writeTo(out);
+    out.flush();
+    return result.toByteArray();
+  }
+
+  private static int indexOf(String s, Map stringIndices, List stringList)
+  {
+    Integer index = (Integer)stringIndices.get(s);
+    if (index == null)
+    {
+      index = new Integer(stringList.size());
+      stringIndices.put(s, index);
+      stringList.add(s);
+    }
+    return index.intValue();
+  }
+}
@@ -0,0 +1,234 @@
+/**
+ * YGuard -- an obfuscation library for Java(TM) classfiles.
+ *
+ * Copyright (c) 2002 yWorks GmbH (yguard@yworks.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * The author may be contacted at yguard@yworks.com
+ *
+ * Java and all Java-based marks are trademarks or registered
+ * trademarks of Sun Microsystems, Inc. in the U.S. and other countries.
+ */
+package com.yworks.yguard.obf;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * The header and the declared members of a class that is not part of the
+ * obfuscated jars, as needed for resolving the name spaces of the classes
+ * that extend or implement it.
+ * <p>
+ * Class names are given in the form used by <code>Class.getName()</code>,
+ * method descriptors in the form used by class files. Constructors and
+ * static initializers are not included, just like in
+ * <code>Class.getDeclaredMethods()</code>.
+ * </p>
+ */
+public final class ExtClassInfo
+{
+  private final String name;
+  private final int modifiers;
+  private final String superName;
+  private final String[] interfaceNames;
+  private final String[] fieldNames;
+  private final int[] fieldModifiers;
+  private final String[] methodNames;
+  private final String[] methodDescriptors;
+  private final int[] methodModifiers;
+
+  /**
+   * Creates a new instance.
+   * @param superName the name of the super class, <code>null</code> for
+   * <code>java.lang.Object</code> and interfaces.
+   */
+  public ExtClassInfo(String name, int modifiers, String superName, String[] interfaceNames,
+                      String[] fieldNames, int[] fieldModifiers,
+                      String[] methodNames, String[] methodDescriptors, int[] methodModifiers)
+  {
+    this.name = name;
+    this.modifiers = modifiers;
+    this.superName = superName;
+    this.interfaceNames = interfaceNames;
+    this.fieldNames = fieldNames;
+    this.fieldModifiers = fieldModifiers;
+    this.methodNames = methodNames;
+    this.methodDescriptors = methodDescriptors;
+    this.methodModifiers = methodModifiers;
+  }
+
+  /**
+   * Creates a new instance from the given class using reflection.
+   * @throws ClassNotFoundException if the types of the members of the class
+   * cannot be resolved.
+   */
+  public static ExtClassInfo create(Class theClass) throws ClassNotFoundException
+  {
+    try
+    {
+      Class superClass = theClass.getSuperclass();
+      Class[] interfaces = theClass.getInterfaces();
+      String[] interfaceNames = new String[interfaces.length];
+      for (int i = 0; i < interfaces.length; i++)
+      {
+        interfaceNames[i] = interfaces[i].getName();
+      }
+      Field[] fields = theClass.getDeclaredFields();
+      String[] fieldNames = new String[fields.length];
+      int[] fieldModifiers = new int[fields.length];
+      for (int i = 0; i < fields.length; i++)
+      {
+        fieldNames[i] = fields[i].getName();
+        fieldModifiers[i] = fields[i].getModifiers();
+      }
+      Method[] methods = theClass.getDeclaredMethods();
+      String[] methodNames = new String[methods.length];
+      String[] methodDescriptors = new String[methods.length];
+      int[] methodModifiers = new int[methods.length];
+      for (int i = 0; i < methods.length; i++)
+      {
+        methodNames[i] = methods[i].getName();
+        methodModifiers[i] = methods[i].getModifiers();
+        StringBuffer sb = new StringBuffer("(");
+        Class[] parameterTypes = methods[i].getParameterTypes();
+        for (int j = 0; j < parameterTypes.length; j++)
+        {
+          appendDescriptor(sb, parameterTypes[j]);
+        }
+        sb.append(')');
+        appendDescriptor(sb, methods[i].getReturnType());
+        methodDescriptors[i] = sb.toString();
+      }
+      return new ExtClassInfo(theClass.getName(), theClass.getModifiers(),
+                              superClass != null ? superClass.getName() : null, interfaceNames,
+                              fieldNames, fieldModifiers, methodNames, methodDescriptors, methodModifiers);
+    }
+    catch (LinkageError le)
+    {
+      throw new ClassNotFoundException(theClass.getName(), le);
+    }
+  }
+
+  private static void appendDescriptor(StringBuffer sb, Class type)
+  {
+    if (type.isArray())
+    {
+      // array class names are descriptors already, except for the separator
+      sb.append(type.getName().replace('.', '/'));
+    }
+    else if (type.isPrimitive())
+    {
+      if (type == Void.TYPE) sb.append('V');
+      else if (type == Boolean.TYPE) sb.append('Z');
+      else if (type == Byte.TYPE) sb.append('B');
+      else if (type == Character.TYPE) sb.append('C');
+      else if (type == Short.TYPE) sb.append('S');
+      else if (type == Integer.TYPE) sb.append('I');
+      else if (type == Long.TYPE) sb.append('J');
+      else if (type == Float.TYPE) sb.append('F');
+      else sb.append('D');
+    }
+    else
+    {
+      sb.append('L').append(type.getName().replace('.', '/')).append(';');
+    }
+  }
+
+  /** Returns the fully qualified name of the class. */
+  public String getName()
+  {
+    return name;
+  }
+
+  /** Returns the access flags of the class. */
+  public int getModifiers()
+  {
+    return modifiers;
+  }
+
+  /**
+   * Returns the name of the super class or <code>null</code> if there is
+   * none.
+   */
+  public String getSuperName()
+  {
+    return superName;
+  }
+
+  /** Returns the names of the directly implemented interfaces. */
+  public String[] getInterfaceNames()
+  {
+    return interfaceNames;
+  }
+
+  /** Returns the number of declared fields. */
+  public int getFieldCount()
+  {
+    return fieldNames.length;
+  }
+
+  /** Returns the name of the declared field with the given index. */
+  public String getFieldName(int index)
+  {
+    return fieldNames[index];
+  }
+
+  /** Returns the access flags of the declared field with the given index. */
+  public int getFieldModifiers(int index)
+  {
+    return fieldModifiers[index];
+  }
+
+  /**
+   * Returns the index of the declared field with the given name or
+   * <code>-1</code> if there is no such field.
+   */
+  public int indexOfField(String name)
+  {
+    for (int i = 0; i < fieldNames.length; i++)
+    {
+      if (fieldNames[i].equals(name))
+      {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Returns the number of declared methods. */
+  public int getMethodCount()
+  {
+    return methodNames.length;
+  }
+
+  /** Returns the name of the declared method with the given index. */
+  public String getMethodName(int index)
+  {
+    return methodNames[index];
+  }
+
+  /** Returns the descriptor of the declared method with the given index. */
+  public String getMethodDescriptor(int index)
+  {
+    return methodDescriptors[index];
+  }
+
+  /** Returns the access flags of the declared method with the given index. */
+  public int getMethodModifiers(int index)
+  {
+    return methodModifiers[index];
+  }
+}
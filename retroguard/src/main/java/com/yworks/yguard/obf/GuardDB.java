@@ -26,10 +26,12 @@
 package com.yworks.yguard.obf;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.zip.*;
 import java.util.jar.*;
 import java.security.*;
+import java.util.concurrent.*;
 
 import com.yworks.yguard.*;
 import com.yworks.yguard.obf.classfile.*;
@@ -47,7 +49,6 @@ public class GuardDB implements ClassConstants
   // Constants -------------------------------------------------------------
   private static final String STREAM_NAME_MANIFEST = "META-INF/MANIFEST.MF";
   private static final String MANIFEST_NAME_TAG = "Name";
-  private static final String MANIFEST_DIGESTALG_TAG = "Digest-Algorithms";
   private static final String CLASS_EXT = ".class";
   private static final String SIGNATURE_PREFIX = "META-INF/";
   private static final String SIGNATURE_EXT = ".SF";
@@ -76,6 +77,17 @@ public class GuardDB implements ClassConstants
 
   private ResourceHandler resourceHandler;
   private String[] digestStrings;
+  private ManifestDigests manifestDigests;
+  private int threads = 1;
+
+  /** Holds value of property reuseParsedClasses. */
+  private boolean reuseParsedClasses;
+
+  /** Holds value of property orderNamesByReferences. */
+  private boolean orderNamesByReferences;
+
+  // The class files parsed in buildClassTree, keyed by entry name per jar
+  private Map[] parsedClassFiles;
 
   // Has the mapping been generated already?
 
@@ -221,6 +233,19 @@ public class GuardDB implements ClassConstants
   }
 
   private void retainByRule(Collection rgsEntries, PrintWriter log) {
+    // match all wildcard patterns in one pass instead of one pass per rule
+    classTree.matchWildcards(rgsEntries);
+    try
+    {
+      retainByRuleImpl(rgsEntries, log);
+    }
+    finally
+    {
+      classTree.clearWildcardMatches();
+    }
+  }
+
+  private void retainByRuleImpl(Collection rgsEntries, PrintWriter log) {
     for (Iterator it = rgsEntries.iterator(); it.hasNext();)
     {
       YGuardRule entry = (YGuardRule)it.next();
@@ -304,7 +329,19 @@ public class GuardDB implements ClassConstants
     StringBuffer replaceNameLog = new StringBuffer();
     StringBuffer replaceContentsLog = new StringBuffer();
 
-    JarOutputStream outJar = null;
+    if (digestStrings == null){
+      digestStrings = new String[]{"SHA-1", "MD5"};
+    }
+    try
+    {
+      manifestDigests = new ManifestDigests(digestStrings);
+    }
+    catch (NoSuchAlgorithmException nsae)
+    {
+      throw new IOException("Unknown digest algorithm: " + nsae.getMessage());
+    }
+
+    JarWriter outJar = null;
     // Open the entry and prepare to process it
     DataInputStream inStream = null;
     OutputStream os = null;
@@ -312,17 +349,30 @@ public class GuardDB implements ClassConstants
     {
       os = null;
       outJar = null;
-      //store the whole jar in memory, I known this might be alot, but anyway
-      //this is the best option, if you want to create correct jar files...
-      List jarEntries = new ArrayList();
+      // spool the entries to disk first, as the jar entries have to be
+      // written in ascending order to create correct jar files...
+      JarEntrySpool jarEntries = null;
+      // the compressed data of the input entries, for copying unchanged ones as they are
+      RawJarEntries rawEntries = null;
+      // the remapped entries (or the futures thereof) in the order of the input jar
+      LinkedList pending = new LinkedList();
+      ExecutorService executor = null;
+      int maxPending = 0;
       try
       {
+        jarEntries = new JarEntrySpool();
+        rawEntries = new RawJarEntries(new File(inJar[i].getName()));
+        if (threads > 1)
+        {
+          executor = Executors.newFixedThreadPool(threads);
+          maxPending = threads * 4;
+        }
         // Go through the input Jar, removing attributes and remapping the Constant Pool
         // for each class file. Other files are copied through unchanged, except for manifest
         // and any signature files - these are deleted and the manifest is regenerated.
         Enumeration entries = inJar[i].entries();
         fireObfuscatingJar(inJar[i].getName(), out[i].getName());
-        ByteArrayOutputStream baos = new ByteArrayOutputStream(2048);
+        byte[] buffer = new byte[8192];
         while (entries.hasMoreElements())
         {
           // Get the next entry from the input Jar
@@ -334,43 +384,37 @@ public class GuardDB implements ClassConstants
             continue;
           }
 
-          inStream = new DataInputStream(
-            new BufferedInputStream(
-            inJar[i].getInputStream(inEntry)));
+          if (inStream != null)
+          {
+            inStream.close();
+            inStream = null;
+          }
           String inName = inEntry.getName();
+          ClassFile cf = null;
+          if (parsedClassFiles != null)
+          {
+            cf = (ClassFile) parsedClassFiles[i].remove(inName);
+          }
+          if (cf == null)
+          {
+            inStream = new DataInputStream(
+              new BufferedInputStream(
+              inJar[i].getInputStream(inEntry)));
+          }
           if (inName.endsWith(CLASS_EXT))
           {
             if (fileFilter == null || fileFilter.accepts(inName)){
-              // Write the obfuscated version of the class to the output Jar
-              ClassFile cf = ClassFile.create(inStream);
-              fireObfuscatingClass(Conversion.toJavaClass(cf.getName()));
-              cf.remap(classTree, replaceClassNameStrings, log);
-              JarEntry outEntry = new JarEntry(cf.getName() + CLASS_EXT);
-
-              DataOutputStream classOutputStream;
-              MessageDigest[] digests;
-              if (digestStrings == null){
-                digestStrings = new String[]{"SHA-1", "MD5"};
+              // Remap the class, either right away or on one of the worker threads
+              ClassRemapper remapper = new ClassRemapper(inName, inStream, inEntry.getSize(), cf);
+              inStream = null;
+              if (executor != null)
+              {
+                pending.add(executor.submit(remapper));
               }
-              digests = new MessageDigest[digestStrings.length];
-              OutputStream stream = baos;
-              // Create an OutputStream piped through a number of digest generators for the manifest
-
-              for (int j = 0; j < digestStrings.length; j++) {
-                String digestString = digestStrings[j];
-                MessageDigest digest = MessageDigest.getInstance(digestString);
-                digests[j] = digest;
-                stream = new DigestOutputStream(stream, digest);
+              else
+              {
+                pending.add(remapper.call());
               }
-              classOutputStream = new DataOutputStream(stream);
-
-              // Dump the classfile, while creating the digests
-              cf.write(classOutputStream);
-              classOutputStream.flush();
-              jarEntries.add(new Object[]{outEntry, baos.toByteArray()});
-              baos.reset();
-              // Now update the manifest entry for the class with new name and new digests
-              updateManifest(i, inName, cf.getName() + CLASS_EXT, digests);
             }
           }
           else if (STREAM_NAME_MANIFEST.equals(inName.toUpperCase()) ||
@@ -388,14 +432,6 @@ public class GuardDB implements ClassConstants
             if (size != -1)
             {
 
-              // Create an OutputStream piped through a number of digest generators for the manifest
-              MessageDigest shaDigest = MessageDigest.getInstance("SHA");
-              MessageDigest md5Digest = MessageDigest.getInstance("MD5");
-              DataOutputStream dataOutputStream =
-              new DataOutputStream(new DigestOutputStream(new DigestOutputStream(baos,
-              shaDigest),
-              md5Digest));
-
               String outName;
 
               StringBuffer outNameBuffer = new StringBuffer(80);
@@ -417,79 +453,73 @@ public class GuardDB implements ClassConstants
                 outName = classTree.getOutName(inName);
               }
 
+              // Create an OutputStream that creates the digests for the manifest
+              ManifestDigests.DigestStream digestStream =
+              manifestDigests.createStream(jarEntries.putNextEntry(outName));
+              DataOutputStream dataOutputStream = new DataOutputStream(digestStream);
+
+              String[] digests;
               if(resourceHandler == null || !resourceHandler.filterContent(inStream, dataOutputStream, inName))
               {
-                byte[] bytes = new byte[(int)size];
-                inStream.readFully(bytes);
-
-                // outName = classTree.getOutName(inName);
-                // Dump the data, while creating the digests
-                dataOutputStream.write(bytes, 0, bytes.length);
+                RawJarEntries.Entry rawEntry = rawEntries.getEntry(inEntry);
+                if (rawEntry != null)
+                {
+                  // Copy the compressed data as is, without inflating and deflating it again
+                  jarEntries.setRaw(rawEntry);
+                  // Reuse the digests of the input manifest, or read the data once to compute them
+                  digests = manifestDigests.getDigests(oldManifest[i].getAttributes(inName));
+                  if (digests == null)
+                  {
+                    digests = manifestDigests.digest(inStream);
+                  }
+                }
+                else
+                {
+                  // Dump the data, while creating the digests
+                  int n;
+                  while ((n = inStream.read(buffer)) > -1)
+                  {
+                    dataOutputStream.write(buffer, 0, n);
+                  }
+                  digests = digestStream.getDigests();
+                }
               }
               else
               {
                 replaceContentsLog.append("  <resource name=\"");
                 replaceContentsLog.append(ClassTree.toUtf8XmlString(inName));
                 replaceContentsLog.append("\"/>\n");
+                digests = digestStream.getDigests();
               }
 
               dataOutputStream.flush();
-              JarEntry outEntry = new JarEntry(outName);
-
-
-              jarEntries.add(new Object[]{outEntry, baos.toByteArray()});
-              baos.reset();
-              // Now update the manifest entry for the entry with new name and new digests
-              MessageDigest[] digests =
-              {shaDigest, md5Digest};
-              updateManifest(i , inName, outName, digests);
+              jarEntries.closeEntry();
+              // The manifest entry is updated in order together with the classes
+              pending.add(new RemappedEntry(inName, outName, null, digests));
             }
           }
+          // Don't let the finished entries pile up
+          while (pending.size() > maxPending)
+          {
+            writeRemappedEntry(i, jarEntries, pending.removeFirst(), log);
+          }
+        }
+        while (!pending.isEmpty())
+        {
+          writeRemappedEntry(i, jarEntries, pending.removeFirst(), log);
         }
 
         os = new FileOutputStream(out[i]);
+        outJar = new JarWriter(new BufferedOutputStream(os));
+        outJar.setComment( Version.getJarComment());
         if (conserveManifest){
-          outJar = new JarOutputStream(new BufferedOutputStream(os),oldManifest[i]);
+          outJar.putManifest(oldManifest[i]);
         } else {
-          outJar = new JarOutputStream(new BufferedOutputStream(os),newManifest[i]);
+          outJar.putManifest(newManifest[i]);
         }
-        outJar.setComment( Version.getJarComment());
 
-        // sort the entries in ascending order
-        Collections.sort(jarEntries, new Comparator(){
-          public int compare(Object a, Object b){
-                Object[] array1 = (Object[]) a;
-                JarEntry entry1 = (JarEntry) array1[0];
-                Object[] array2 = (Object[]) b;
-                JarEntry entry2 = (JarEntry) array2[0];
-                return entry1.getName().compareTo(entry2.getName());
-          }
-        });
-        // Finally, write the big bunch of data
-        Set directoriesWritten = new HashSet();
-        for (int j = 0; j < jarEntries.size(); j++){
-          Object[] array = (Object[]) jarEntries.get(j);
-          JarEntry entry = (JarEntry) array[0];
-          String name = entry.getName();
-          // make sure the directory entries are written to the jar file
-          if (!entry.isDirectory()){
-                int index = 0;
-                while ((index = name.indexOf("/", index + 1))>= 0){
-                  String directory = name.substring(0, index+1);
-                  if (!directoriesWritten.contains(directory)){
-                        directoriesWritten.add(directory);
-                        JarEntry directoryEntry = new JarEntry(directory);
-                        outJar.putNextEntry(directoryEntry);
-                        outJar.closeEntry();
-                  }
-                }
-          }
-          // write the entry itself
-          byte[] bytes = (byte[]) array[1];
-          outJar.putNextEntry(entry);
-          outJar.write(bytes);
-          outJar.closeEntry();
-        }
+        // Finally, write the big bunch of data in ascending order
+        jarEntries.writeTo(outJar);
 
       }
       catch (Exception e)
@@ -508,7 +538,23 @@ public class GuardDB implements ClassConstants
       }
       finally
       {
+        if (executor != null)
+        {
+          executor.shutdownNow();
+        }
+        if (parsedClassFiles != null)
+        {
+          parsedClassFiles[i] = null;
+        }
         inJar[i].close();
+        if (jarEntries != null)
+        {
+          jarEntries.close();
+        }
+        if (rawEntries != null)
+        {
+          rawEntries.close();
+        }
         if (inStream != null)
         {
           inStream.close();
@@ -522,6 +568,8 @@ public class GuardDB implements ClassConstants
         }
       }
     }
+    parsedClassFiles = null;
+
     // Write the mapping table to the log file
     classTree.dump(log);
     if(replaceContentsLog.length() > 0 || replaceNameLog.length() > 0)
@@ -544,6 +592,177 @@ public class GuardDB implements ClassConstants
 
   }
 
+  // Reads the remaining data of the given stream into an array.
+  // The expected size is used for allocating the array, if it is known.
+  private static byte[] readFully(InputStream in, long size) throws IOException
+  {
+    byte[] data = new byte[size > 0 && size < Integer.MAX_VALUE ? (int) size : 8192];
+    int length = 0;
+    while (true)
+    {
+      int n = in.read(data, length, data.length - length);
+      if (n < 0)
+      {
+        break;
+      }
+      length += n;
+      if (length == data.length)
+      {
+        int b = in.read();
+        if (b < 0)
+        {
+          break;
+        }
+        byte[] newData = new byte[data.length * 2];
+        System.arraycopy(data, 0, newData, 0, length);
+        data = newData;
+        data[length++] = (byte) b;
+      }
+    }
+    if (length < data.length)
+    {
+      byte[] result = new byte[length];
+      System.arraycopy(data, 0, result, 0, length);
+      data = result;
+    }
+    return data;
+  }
+
+  // Writes a remapped entry to the spool and updates the manifest.
+  private void writeRemappedEntry(int manifestIndex, JarEntrySpool jarEntries, Object pendingEntry, PrintWriter log)
+    throws Exception
+  {
+    RemappedEntry entry;
+    if (pendingEntry instanceof Future)
+    {
+      try
+      {
+        entry = (RemappedEntry)((Future)pendingEntry).get();
+      }
+      catch (ExecutionException ee)
+      {
+        Throwable cause = ee.getCause();
+        if (cause instanceof Exception)
+        {
+          throw (Exception)cause;
+        }
+        throw ee;
+      }
+    }
+    else
+    {
+      entry = (RemappedEntry)pendingEntry;
+    }
+
+    if (entry.data != null)
+    {
+      fireObfuscatingClass(entry.className);
+      Logger.replay(entry.messages);
+      log.print(entry.log);
+      OutputStream stream = jarEntries.putNextEntry(entry.outName);
+      stream.write(entry.data);
+      jarEntries.closeEntry();
+    }
+    // Now update the manifest entry with new name and new digests
+    updateManifest(manifestIndex, entry.inName, entry.outName, entry.digests);
+  }
+
+  // Remaps a single class file, possibly on a worker thread.
+  // The remapped class file and the messages logged while remapping it are kept
+  // in memory until the class file is written to the spool in the order of the
+  // input jar, so that logs and manifests do not depend on
+  // the number of threads used.
+  private class ClassRemapper implements Callable
+  {
+    private final String inName;
+    private final InputStream inStream;
+    private final long size;
+    private ClassFile cf;
+
+    ClassRemapper(String inName, InputStream inStream, long size, ClassFile cf)
+    {
+      this.inName = inName;
+      this.inStream = inStream;
+      this.size = size;
+      this.cf = cf;
+    }
+
+    public Object call() throws Exception
+    {
+      Logger.startRecording();
+      RemappedEntry entry = null;
+      try
+      {
+        entry = remap();
+        return entry;
+      }
+      finally
+      {
+        Object messages = Logger.stopRecording();
+        if (entry != null)
+        {
+          entry.messages = messages;
+        }
+        else
+        {
+          Logger.replay(messages);
+        }
+      }
+    }
+
+    private RemappedEntry remap() throws Exception
+    {
+      try
+      {
+        if (cf == null)
+        {
+          cf = ClassFile.create(ByteBuffer.wrap(readFully(inStream, size)));
+        }
+      }
+      finally
+      {
+        if (inStream != null)
+        {
+          inStream.close();
+        }
+      }
+      String className = Conversion.toJavaClass(cf.getName());
+      StringWriter sw = new StringWriter();
+      PrintWriter classLog = new PrintWriter(sw);
+      cf.remap(classTree, replaceClassNameStrings, classLog);
+      classLog.flush();
+
+      // Dump the classfile and create the digests for the manifest
+      byte[] data = cf.toByteArray();
+
+      RemappedEntry entry = new RemappedEntry(inName, cf.getName() + CLASS_EXT, data, manifestDigests.digest(data));
+      entry.className = className;
+      entry.log = sw.toString();
+      return entry;
+    }
+  }
+
+  // A remapped jar entry waiting to be written.
+  // Resources are spooled right away, in this case data is null.
+  private static final class RemappedEntry
+  {
+    final String inName;
+    final String outName;
+    final byte[] data;
+    final String[] digests;
+    String className;
+    String log;
+    Object messages;
+
+    RemappedEntry(String inName, String outName, byte[] data, String[] digests)
+    {
+      this.inName = inName;
+      this.outName = outName;
+      this.data = data;
+      this.digests = digests;
+    }
+  }
+
   /** Close input JAR file. */
   public void close() throws java.io.IOException
   {
@@ -600,7 +819,7 @@ public class GuardDB implements ClassConstants
   }
 
   // Update an entry in the manifest file
-  private void updateManifest(int manifestIndex, String inName, String outName, MessageDigest[] digests)
+  private void updateManifest(int manifestIndex, String inName, String outName, String[] digests)
   {
     // Create fresh section for entry, and enter "Name" header
 
@@ -626,27 +845,7 @@ public class GuardDB implements ClassConstants
     }
 
     // Create fresh digest entries in the new section
-    if (digests != null && digests.length > 0)
-    {
-      // Digest-Algorithms header
-      StringBuffer sb = new StringBuffer();
-      for (int i = 0; i < digests.length; i++)
-      {
-        sb.append(digests[i].getAlgorithm());
-        if (i < digests.length -1){
-          sb.append(", ");
-        }
-      }
-      newAtts.remove(MANIFEST_DIGESTALG_TAG);
-      newAtts.putValue(MANIFEST_DIGESTALG_TAG, sb.toString());
-
-      // *-Digest headers
-      for (int i = 0; i < digests.length; i++)
-      {
-        newAtts.remove(digests[i].getAlgorithm() + "-Digest");
-        newAtts.putValue(digests[i].getAlgorithm() + "-Digest", Tools.toBase64(digests[i].digest()));
-      }
-    }
+    manifestDigests.putDigests(newAtts, digests);
 
     if (!newAtts.isEmpty()) {
       // Append the new section to the new manifest
@@ -661,72 +860,67 @@ public class GuardDB implements ClassConstants
     classTree = new ClassTree();
     classTree.setPedantic(isPedantic());
     classTree.setReplaceClassNameStrings(replaceClassNameStrings);
+    classTree.setOrderNamesByReferences(orderNamesByReferences);
     ClassFile.resetDangerHeader();
     
     Map parsedClasses = new HashMap();
-    for(int i = 0; i < inJar.length; i++)
+    parsedClassFiles = reuseParsedClasses ? new Map[inJar.length] : null;
+    // the parsed class files (or the futures thereof) in the order of the
+    // input jars - jar indices mark the start of a new jar
+    LinkedList pending = new LinkedList();
+    ExecutorService executor = null;
+    int maxPending = 0;
+    if (threads > 1)
+    {
+      executor = Executors.newFixedThreadPool(threads);
+      maxPending = threads * 4;
+    }
+    try
     {
-      Enumeration entries = inJar[i].entries();
-      fireParsingJar(inJar[i].getName());
-      while (entries.hasMoreElements())
+      for(int i = 0; i < inJar.length; i++)
       {
-        // Get the next entry from the input Jar
-        ZipEntry inEntry = (ZipEntry)entries.nextElement();
-        String name = inEntry.getName();
-        if (name.endsWith(CLASS_EXT))
+        if (parsedClassFiles != null)
         {
-          fireParsingClass(Conversion.toJavaClass(name));
-          // Create a full internal representation of the class file
-          DataInputStream inStream = new DataInputStream(
-          new BufferedInputStream(
-          inJar[i].getInputStream(inEntry)));
-          ClassFile cf = null;
-          try
-          {
-            cf = ClassFile.create(inStream);
-          }
-          catch (Exception e)
+          parsedClassFiles[i] = new HashMap();
+        }
+        pending.add(new Integer(i));
+        Enumeration entries = inJar[i].entries();
+        while (entries.hasMoreElements())
+        {
+          // Get the next entry from the input Jar
+          ZipEntry inEntry = (ZipEntry)entries.nextElement();
+          String name = inEntry.getName();
+          if (name.endsWith(CLASS_EXT))
           {
-            log.println(ERROR_CORRUPT_CLASS + createJarName(inJar[i], name) + " -->");
-            e.printStackTrace(log);
-            throw new ParseException( e );
+            // Create a full internal representation of the class file,
+            // either right away or on one of the worker threads
+            ClassParser parser = new ClassParser(i, inEntry);
+            if (executor != null)
+            {
+              pending.add(new Object[]{parser, executor.submit(parser)});
+            }
+            else
+            {
+              pending.add(new Object[]{parser, null});
+            }
           }
-          finally
+          while (pending.size() > maxPending)
           {
-            inStream.close();
+            addParsedClass(pending.removeFirst(), parsedClasses, log);
           }
-
-          if (cf != null){
-            final String cfn = cf.getName();
-            final String key =
-                    "module-info".equals(cfn) ? createModuleKey(cf) : cfn;
-
-            Object[] old = (Object[]) parsedClasses.get(key);
-            if (old != null){
-              int jarIndex = ((Integer)old[0]).intValue();
-              String warning = "yGuard detected a duplicate class definition " +
-                "for \n    " + Conversion.toJavaClass(cfn) +
-              "\n    [" + createJarName(inJar[jarIndex], old[1].toString()) + "] in \n    [" +
-                createJarName(inJar[i], name) + "]";
-              log.write("<!-- \n" + warning + "\n-->\n");
-              if (jarIndex == i){
-                throw new IOException(warning + "\nPlease remove inappropriate duplicates first!");
-              } else {
-                if (pedantic){
-                  throw new IOException(warning + "\nMake sure these files are of the same version!");
-                } 
-              }
-            } else {
-              parsedClasses.put(key, new Object[]{new Integer(i), name});
-            }
-
-            // Check the classfile for references to 'dangerous' methods
-            cf.logDangerousMethods(log, replaceClassNameStrings);
-            classTree.addClassFile(cf);
-          }
-
         }
       }
+      while (!pending.isEmpty())
+      {
+        addParsedClass(pending.removeFirst(), parsedClasses, log);
+      }
+    }
+    finally
+    {
+      if (executor != null)
+      {
+        executor.shutdownNow();
+      }
     }
 
     // set the java access modifiers from the containing class (muellese)
@@ -742,6 +936,128 @@ public class GuardDB implements ClassConstants
         }
       }
     });
+    ct.countReferences();
+  }
+
+  // Adds a parsed class file to the class tree, checking for duplicates.
+  // This is always done on the calling thread in the order of the input jars,
+  // so that the log does not depend on the number of threads used.
+  private void addParsedClass(Object pendingEntry, Map parsedClasses, PrintWriter log)
+    throws java.io.IOException
+  {
+    if (pendingEntry instanceof Integer)
+    {
+      fireParsingJar(inJar[((Integer)pendingEntry).intValue()].getName());
+      return;
+    }
+
+    Object[] parserAndFuture = (Object[])pendingEntry;
+    ClassParser parser = (ClassParser)parserAndFuture[0];
+    Future future = (Future)parserAndFuture[1];
+    int i = parser.jarIndex;
+    String name = parser.inEntry.getName();
+
+    fireParsingClass(Conversion.toJavaClass(name));
+    ClassFile cf = null;
+    try
+    {
+      if (future != null)
+      {
+        try
+        {
+          cf = (ClassFile)future.get();
+        }
+        catch (ExecutionException ee)
+        {
+          Throwable cause = ee.getCause();
+          throw cause instanceof Exception ? (Exception)cause : ee;
+        }
+      }
+      else
+      {
+        cf = (ClassFile)parser.call();
+      }
+    }
+    catch (Exception e)
+    {
+      Logger.replay(parser.messages);
+      log.println(ERROR_CORRUPT_CLASS + createJarName(inJar[i], name) + " -->");
+      e.printStackTrace(log);
+      throw new ParseException( e );
+    }
+
+    Logger.replay(parser.messages);
+
+    if (cf != null){
+      final String cfn = cf.getName();
+      final String key =
+              "module-info".equals(cfn) ? createModuleKey(cf) : cfn;
+
+      Object[] old = (Object[]) parsedClasses.get(key);
+      if (old != null){
+        int jarIndex = ((Integer)old[0]).intValue();
+        String warning = "yGuard detected a duplicate class definition " +
+          "for \n    " + Conversion.toJavaClass(cfn) +
+        "\n    [" + createJarName(inJar[jarIndex], old[1].toString()) + "] in \n    [" +
+          createJarName(inJar[i], name) + "]";
+        log.write("<!-- \n" + warning + "\n-->\n");
+        if (jarIndex == i){
+          throw new IOException(warning + "\nPlease remove inappropriate duplicates first!");
+        } else {
+          if (pedantic){
+            throw new IOException(warning + "\nMake sure these files are of the same version!");
+          }
+        }
+      } else {
+        parsedClasses.put(key, new Object[]{new Integer(i), name});
+      }
+
+      // Check the classfile for references to 'dangerous' methods
+      cf.logDangerousMethods(log, replaceClassNameStrings);
+      classTree.addClassFile(cf);
+
+      if (parsedClassFiles != null)
+      {
+        // keep the class file for remapTo
+        parsedClassFiles[i].put(name, cf);
+      }
+    }
+  }
+
+  // Parses a single class file, possibly on a worker thread.
+  private class ClassParser implements Callable
+  {
+    final int jarIndex;
+    final ZipEntry inEntry;
+    // the messages logged while parsing
+    Object messages;
+
+    ClassParser(int jarIndex, ZipEntry inEntry)
+    {
+      this.jarIndex = jarIndex;
+      this.inEntry = inEntry;
+    }
+
+    public Object call() throws Exception
+    {
+      Logger.startRecording();
+      try
+      {
+        InputStream inStream = inJar[jarIndex].getInputStream(inEntry);
+        try
+        {
+          return ClassFile.create(ByteBuffer.wrap(readFully(inStream, inEntry.getSize())));
+        }
+        finally
+        {
+          inStream.close();
+        }
+      }
+      finally
+      {
+        messages = Logger.stopRecording();
+      }
+    }
   }
 
   private static String createJarName(JarFile jar, String name){
@@ -755,16 +1071,37 @@ public class GuardDB implements ClassConstants
   // Generate a mapping table for obfuscation.
   private void createMap(PrintWriter log) throws ClassNotFoundException
   {
-    // Traverse the class tree, generating obfuscated names within
-    // package and class namespaces
-    classTree.generateNames();
+    // Independent namespaces are processed concurrently if there are several
+    // threads, this does not change the generated names
+    ExecutorService executor = threads > 1 ? new ForkJoinPool(threads) : null;
+    try
+    {
+      // Traverse the class tree, generating obfuscated names within
+      // package and class namespaces
+      if (executor != null)
+      {
+        classTree.generateNames(executor);
+      }
+      else
+      {
+        classTree.generateNames();
+      }
 
-    // Resolve the polymorphic dependencies of each class, generating
-    // non-private method and field names for each namespace
-    classTree.resolveClasses();
+      // Resolve the polymorphic dependencies of each class, generating
+      // non-private method and field names for each namespace
+      classTree.resolveClasses(executor);
+    }
+    finally
+    {
+      if (executor != null)
+      {
+        executor.shutdownNow();
+      }
+    }
 
     // Signal that the namespace maps have been created
     hasMap = true;
+    classTree.cacheMappings();
 
     // Write the memory usage at this point to the log file
     Runtime rt = Runtime.getRuntime();
@@ -843,6 +1180,69 @@ public class GuardDB implements ClassConstants
   }
 
 
+  /** Getter for property reuseParsedClasses.
+   * @return Value of property reuseParsedClasses.
+   *
+   */
+  public boolean isReuseParsedClasses()
+  {
+    return this.reuseParsedClasses;
+  }
+
+  /** Setter for property reuseParsedClasses.
+   * If set, the class files parsed while building the class tree are kept in
+   * memory and remapped directly instead of being read and parsed again.
+   * @param reuseParsedClasses New value of property reuseParsedClasses.
+   *
+   */
+  public void setReuseParsedClasses(boolean reuseParsedClasses)
+  {
+    this.reuseParsedClasses = reuseParsedClasses;
+  }
+
+
+  /** Getter for property orderNamesByReferences.
+   * @return Value of property orderNamesByReferences.
+   *
+   */
+  public boolean isOrderNamesByReferences()
+  {
+    return this.orderNamesByReferences;
+  }
+
+  /** Setter for property orderNamesByReferences.
+   * If set, the classes, methods and fields that are referenced by the most
+   * class files are named first, so that they get the shortest names.
+   * @param orderNamesByReferences New value of property orderNamesByReferences.
+   *
+   */
+  public void setOrderNamesByReferences(boolean orderNamesByReferences)
+  {
+    this.orderNamesByReferences = orderNamesByReferences;
+  }
+
+
+  /** Getter for property threads.
+   * @return Value of property threads.
+   *
+   */
+  public int getThreads()
+  {
+    return this.threads;
+  }
+
+  /** Setter for property threads.
+   * The number of threads used for parsing and remapping the class files
+   * and for generating the names of independent name spaces.
+   * @param threads New value of property threads.
+   *
+   */
+  public void setThreads(int threads)
+  {
+    this.threads = threads;
+  }
+
+
   /** Getter for property pedantic.
    * @return Value of property pedantic.
    *
@@ -0,0 +1,224 @@
+/**
+ * YGuard -- an obfuscation library for Java(TM) classfiles.
+ *
+ * Copyright (c) 2002 yWorks GmbH (yguard@yworks.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * The author may be contacted at yguard@yworks.com
+ *
+ * Java and all Java-based marks are trademarks or registered
+ * trademarks of Sun Microsystems, Inc. in the U.S. and other countries.
+ */
+package com.yworks.yguard.obf;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects the entries of an output jar in a temporary file and writes them
+ * to the final jar in ascending name order.
+ * <p>
+ * Only the name, offset and length of each entry are kept in memory, i.e.
+ * the heap needed for writing a jar does not depend on the size of the jar.
+ * Entries that are copied unchanged from an input jar are not spooled at
+ * all, their compressed data is copied when the jar is written.
+ * </p>
+ */
+class JarEntrySpool
+{
+  private static final int BUFFER_SIZE = 8192;
+
+  private final File file;
+  private final List entries;
+  private final OutputStream entryStream;
+  private OutputStream os;
+  private long length;
+  private Entry current;
+
+  /**
+   * Creates a new spool backed by a fresh temporary file.
+   */
+  JarEntrySpool() throws IOException
+  {
+    file = File.createTempFile("yguard_spool_", ".tmp");
+    file.deleteOnExit();
+    os = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE * 8);
+    entries = new ArrayList();
+    entryStream = new OutputStream()
+    {
+      public void write(int b) throws IOException
+      {
+        os.write(b);
+        ++length;
+      }
+
+      public void write(byte[] b, int off, int len) throws IOException
+      {
+        os.write(b, off, len);
+        length += len;
+      }
+    };
+  }
+
+  /**
+   * Starts a new entry with the given name.
+   * All data written to the returned stream until {@link #closeEntry()} is
+   * called is stored as content of the new entry.
+   */
+  OutputStream putNextEntry(String name) throws IOException
+  {
+    if (current != null)
+    {
+      closeEntry();
+    }
+    current = new Entry(name, length);
+    return entryStream;
+  }
+
+  /**
+   * Specifies that the entry started by the last call to
+   * {@link #putNextEntry(String)} is copied as is from the given entry of
+   * an input jar instead, i.e. its data is neither inflated nor deflated
+   * again. No data must be written to the entry in this case.
+   * The input jar must stay open until {@link #writeTo(JarWriter)} is done.
+   */
+  void setRaw(RawJarEntries.Entry source)
+  {
+    if (current != null)
+    {
+      current.source = source;
+    }
+  }
+
+  /**
+   * Finishes the entry started by the last call to
+   * {@link #putNextEntry(String)}.
+   */
+  void closeEntry()
+  {
+    if (current != null)
+    {
+      current.size = length - current.offset;
+      entries.add(current);
+      current = null;
+    }
+  }
+
+  /**
+   * Writes all spooled entries sorted by name to the given jar.
+   * Directory entries are created for all parent directories of the
+   * spooled entries.
+   */
+  void writeTo(JarWriter outJar) throws IOException
+  {
+    closeEntry();
+    os.close();
+    os = null;
+
+    // sort the entries in ascending order
+    Collections.sort(entries, new Comparator(){
+      public int compare(Object a, Object b){
+        return ((Entry) a).name.compareTo(((Entry) b).name);
+      }
+    });
+
+    RandomAccessFile in = new RandomAccessFile(file, "r");
+    try
+    {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      Set directoriesWritten = new HashSet();
+      for (int i = 0; i < entries.size(); i++){
+        Entry entry = (Entry) entries.get(i);
+        String name = entry.name;
+        // make sure the directory entries are written to the jar file
+        int index = 0;
+        while ((index = name.indexOf("/", index + 1))>= 0){
+          String directory = name.substring(0, index+1);
+          if (!directoriesWritten.contains(directory)){
+            directoriesWritten.add(directory);
+            outJar.putDirectory(directory);
+          }
+        }
+        // write the entry itself
+        if (entry.source != null)
+        {
+          outJar.copyEntry(name, entry.source);
+          continue;
+        }
+        outJar.putNextEntry(name);
+        in.seek(entry.offset);
+        long remaining = entry.size;
+        while (remaining > 0){
+          int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+          if (n < 0){
+            throw new IOException("Unexpected end of spool file " + file);
+          }
+          outJar.write(buffer, 0, n);
+          remaining -= n;
+        }
+        outJar.closeEntry();
+      }
+    }
+    finally
+    {
+      in.close();
+    }
+  }
+
+  /**
+   * Discards the spooled data and deletes the temporary file.
+   */
+  void close() throws IOException
+  {
+    try
+    {
+      if (os != null)
+      {
+        os.close();
+        os = null;
+      }
+    }
+    finally
+    {
+      entries.clear();
+      file.delete();
+    }
+  }
+
+  private static final class Entry
+  {
+    final String name;
+    final long offset;
+    long size;
+    RawJarEntries.Entry source;
+
+    Entry(String name, long offset)
+    {
+      this.name = name;
+      this.offset = offset;
+    }
+  }
+}
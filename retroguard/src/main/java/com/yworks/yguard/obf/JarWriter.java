@@ -0,0 +1,477 @@
+/**
+ * YGuard -- an obfuscation library for Java(TM) classfiles.
+ *
+ * Copyright (c) 2002 yWorks GmbH (yguard@yworks.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * The author may be contacted at yguard@yworks.com
+ *
+ * Java and all Java-based marks are trademarks or registered
+ * trademarks of Sun Microsystems, Inc. in the U.S. and other countries.
+ */
+package com.yworks.yguard.obf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Writes a jar file like <code>JarOutputStream</code> does, but can also
+ * copy the compressed data of an entry of another jar as it is, see
+ * {@link #copyEntry(String, RawJarEntries.Entry)}.
+ * <p>
+ * Entries are written by {@link #putNextEntry(String)}, the data written to
+ * this stream and {@link #closeEntry()}. Their data is deflated and their
+ * sizes and checksum are written after the data. Directory entries and
+ * copied entries are written with all sizes known in advance. Zip64
+ * extensions are used where the sizes, offsets or number of entries
+ * require it.
+ * </p>
+ */
+class JarWriter extends OutputStream
+{
+  private static final int LOC_SIG = 0x04034b50;
+  private static final int EXT_SIG = 0x08074b50;
+  private static final int CEN_SIG = 0x02014b50;
+  private static final int END_SIG = 0x06054b50;
+  private static final int ZIP64_END_SIG = 0x06064b50;
+  private static final int ZIP64_LOC_SIG = 0x07064b50;
+  private static final int ZIP64_EXTRA = 0x0001;
+  private static final int JAR_MAGIC = 0xCAFE;
+  private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+  private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+  private static final int FLAG_DATA_DESCRIPTOR = 0x08;
+  private static final int FLAG_UTF8 = 0x800;
+  private static final int VERSION_STORED = 10;
+  private static final int VERSION_DEFLATED = 20;
+  private static final int VERSION_ZIP64 = 45;
+  private static final int BUFFER_SIZE = 8192;
+
+  private final OutputStream out;
+  // passes copied data on to the underlying stream and counts it
+  private final OutputStream countingStream;
+  private final Deflater deflater;
+  private final CRC32 crc;
+  private final byte[] buffer;
+  private final List entries;
+  private final Set names;
+  private final int dosTime;
+  private byte[] comment;
+  private Entry current;
+  private long written;
+  private boolean closed;
+
+  /**
+   * Creates a new writer for the given stream.
+   * All entries get the current time as modification time.
+   */
+  JarWriter(OutputStream out)
+  {
+    this.out = out;
+    countingStream = new OutputStream()
+    {
+      public void write(int b) throws IOException
+      {
+        JarWriter.this.out.write(b);
+        ++written;
+      }
+
+      public void write(byte[] b, int off, int len) throws IOException
+      {
+        JarWriter.this.out.write(b, off, len);
+        written += len;
+      }
+    };
+    deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    crc = new CRC32();
+    buffer = new byte[BUFFER_SIZE];
+    entries = new ArrayList();
+    names = new HashSet();
+    comment = new byte[0];
+    dosTime = toDosTime(System.currentTimeMillis());
+  }
+
+  /**
+   * Sets the comment of the jar file.
+   */
+  void setComment(String comment) throws IOException
+  {
+    this.comment = comment == null ? new byte[0] : comment.getBytes("UTF-8");
+    if (this.comment.length > 0xFFFF)
+    {
+      throw new IllegalArgumentException("Jar file comment too long.");
+    }
+  }
+
+  /**
+   * Writes the given manifest as <code>META-INF/MANIFEST.MF</code>.
+   */
+  void putManifest(Manifest manifest) throws IOException
+  {
+    putNextEntry(JarFile.MANIFEST_NAME);
+    manifest.write(this);
+    closeEntry();
+  }
+
+  /**
+   * Writes an empty directory entry with the given name.
+   */
+  void putDirectory(String name) throws IOException
+  {
+    closeEntry();
+    Entry entry = createEntry(name, ZipEntry.STORED, 0);
+    writeLocalHeader(entry);
+  }
+
+  /**
+   * Starts a new entry with the given name. All data written to this stream
+   * until {@link #closeEntry()} is called is deflated into the new entry.
+   */
+  void putNextEntry(String name) throws IOException
+  {
+    closeEntry();
+    Entry entry = createEntry(name, ZipEntry.DEFLATED, FLAG_DATA_DESCRIPTOR);
+    writeLocalHeader(entry);
+    current = entry;
+  }
+
+  /**
+   * Copies the compressed data of the given entry of another jar into a new
+   * entry with the given name. The new entry has the same compression
+   * method, checksum and sizes as the given one.
+   */
+  void copyEntry(String name, RawJarEntries.Entry source) throws IOException
+  {
+    closeEntry();
+    Entry entry = createEntry(name, source.method, 0);
+    entry.crc = source.crc;
+    entry.compressedSize = source.compressedSize;
+    entry.size = source.size;
+    writeLocalHeader(entry);
+    source.copyTo(countingStream, buffer);
+    if (written - entry.offset - entry.localHeaderSize != source.compressedSize)
+    {
+      throw new ZipException("Invalid compressed size of copied entry " + name);
+    }
+  }
+
+  public void write(int b) throws IOException
+  {
+    byte[] single = {(byte) b};
+    write(single, 0, 1);
+  }
+
+  public void write(byte[] b, int off, int len) throws IOException
+  {
+    if (current == null)
+    {
+      throw new ZipException("No current jar entry");
+    }
+    crc.update(b, off, len);
+    deflater.setInput(b, off, len);
+    while (!deflater.needsInput())
+    {
+      deflate();
+    }
+  }
+
+  /**
+   * Finishes the entry started by the last call to
+   * {@link #putNextEntry(String)}.
+   */
+  void closeEntry() throws IOException
+  {
+    if (current != null)
+    {
+      Entry entry = current;
+      current = null;
+      deflater.finish();
+      while (!deflater.finished())
+      {
+        deflate();
+      }
+      entry.crc = crc.getValue();
+      entry.compressedSize = deflater.getBytesWritten();
+      entry.size = deflater.getBytesRead();
+      deflater.reset();
+      crc.reset();
+
+      writeInt(EXT_SIG);
+      writeInt(entry.crc);
+      if (entry.compressedSize >= ZIP64_MAGIC || entry.size >= ZIP64_MAGIC)
+      {
+        writeLong(entry.compressedSize);
+        writeLong(entry.size);
+      }
+      else
+      {
+        writeInt(entry.compressedSize);
+        writeInt(entry.size);
+      }
+    }
+  }
+
+  /**
+   * Finishes the current entry, writes the central directory and closes
+   * the underlying stream.
+   */
+  public void close() throws IOException
+  {
+    if (closed)
+    {
+      return;
+    }
+    closed = true;
+    try
+    {
+      closeEntry();
+      writeCentralDirectory();
+      out.flush();
+    }
+    finally
+    {
+      deflater.end();
+      out.close();
+    }
+  }
+
+  private void deflate() throws IOException
+  {
+    int n = deflater.deflate(buffer, 0, buffer.length);
+    if (n > 0)
+    {
+      out.write(buffer, 0, n);
+      written += n;
+    }
+  }
+
+  private Entry createEntry(String name, int method, int flags) throws IOException
+  {
+    if (closed)
+    {
+      throw new IOException("Jar file already closed");
+    }
+    if (!names.add(name))
+    {
+      throw new ZipException("duplicate entry: " + name);
+    }
+    byte[] bytes = name.getBytes("UTF-8");
+    if (bytes.length > 0xFFFF)
+    {
+      throw new IllegalArgumentException("Jar entry name too long: " + name);
+    }
+    Entry entry = new Entry(bytes, method, flags | FLAG_UTF8, written);
+    // like JarOutputStream, mark the first entry as the one of a jar file
+    entry.jarMagic = entries.isEmpty();
+    entries.add(entry);
+    return entry;
+  }
+
+  private void writeLocalHeader(Entry entry) throws IOException
+  {
+    writeInt(LOC_SIG);
+    writeShort(entry.method == ZipEntry.STORED ? VERSION_STORED : VERSION_DEFLATED);
+    writeShort(entry.flags);
+    writeShort(entry.method);
+    writeInt(dosTime);
+    if ((entry.flags & FLAG_DATA_DESCRIPTOR) != 0)
+    {
+      // written after the data
+      writeInt(0);
+      writeInt(0);
+      writeInt(0);
+    }
+    else
+    {
+      writeInt(entry.crc);
+      writeInt(entry.compressedSize);
+      writeInt(entry.size);
+    }
+    writeShort(entry.name.length);
+    writeShort(entry.jarMagic ? 4 : 0);
+    writeBytes(entry.name);
+    if (entry.jarMagic)
+    {
+      writeShort(JAR_MAGIC);
+      writeShort(0);
+    }
+    entry.localHeaderSize = written - entry.offset;
+  }
+
+  private void writeCentralDirectory() throws IOException
+  {
+    long start = written;
+    for (int i = 0; i < entries.size(); i++)
+    {
+      writeCentralHeader((Entry) entries.get(i));
+    }
+    long length = written - start;
+    long count = entries.size();
+
+    if (count >= ZIP64_MAGIC_COUNT || start >= ZIP64_MAGIC || length >= ZIP64_MAGIC)
+    {
+      long zip64End = written;
+      writeInt(ZIP64_END_SIG);
+      writeLong(44);
+      writeShort(VERSION_ZIP64);
+      writeShort(VERSION_ZIP64);
+      writeInt(0);
+      writeInt(0);
+      writeLong(count);
+      writeLong(count);
+      writeLong(length);
+      writeLong(start);
+
+      writeInt(ZIP64_LOC_SIG);
+      writeInt(0);
+      writeLong(zip64End);
+      writeInt(1);
+    }
+
+    writeInt(END_SIG);
+    writeShort(0);
+    writeShort(0);
+    writeShort((int) Math.min(count, ZIP64_MAGIC_COUNT));
+    writeShort((int) Math.min(count, ZIP64_MAGIC_COUNT));
+    writeInt(Math.min(length, ZIP64_MAGIC));
+    writeInt(Math.min(start, ZIP64_MAGIC));
+    writeShort(comment.length);
+    writeBytes(comment);
+  }
+
+  private void writeCentralHeader(Entry entry) throws IOException
+  {
+    boolean zip64Size = entry.size >= ZIP64_MAGIC;
+    boolean zip64CompressedSize = entry.compressedSize >= ZIP64_MAGIC;
+    boolean zip64Offset = entry.offset >= ZIP64_MAGIC;
+    int zip64Length = (zip64Size ? 8 : 0) + (zip64CompressedSize ? 8 : 0) + (zip64Offset ? 8 : 0);
+    int version = zip64Length > 0 ? VERSION_ZIP64
+            : entry.method == ZipEntry.STORED ? VERSION_STORED : VERSION_DEFLATED;
+
+    writeInt(CEN_SIG);
+    writeShort(version);
+    writeShort(version);
+    writeShort(entry.flags);
+    writeShort(entry.method);
+    writeInt(dosTime);
+    writeInt(entry.crc);
+    writeInt(zip64CompressedSize ? ZIP64_MAGIC : entry.compressedSize);
+    writeInt(zip64Size ? ZIP64_MAGIC : entry.size);
+    writeShort(entry.name.length);
+    writeShort((entry.jarMagic ? 4 : 0) + (zip64Length > 0 ? 4 + zip64Length : 0));
+    writeShort(0);
+    writeShort(0);
+    writeShort(0);
+    writeInt(0);
+    writeInt(zip64Offset ? ZIP64_MAGIC : entry.offset);
+    writeBytes(entry.name);
+    if (entry.jarMagic)
+    {
+      writeShort(JAR_MAGIC);
+      writeShort(0);
+    }
+    if (zip64Length > 0)
+    {
+      writeShort(ZIP64_EXTRA);
+      writeShort(zip64Length);
+      if (zip64Size)
+      {
+        writeLong(entry.size);
+      }
+      if (zip64CompressedSize)
+      {
+        writeLong(entry.compressedSize);
+      }
+      if (zip64Offset)
+      {
+        writeLong(entry.offset);
+      }
+    }
+  }
+
+  private void writeShort(int v) throws IOException
+  {
+    out.write(v & 0xFF);
+    out.write((v >>> 8) & 0xFF);
+    written += 2;
+  }
+
+  private void writeInt(long v) throws IOException
+  {
+    writeShort((int) (v & 0xFFFF));
+    writeShort((int) ((v >>> 16) & 0xFFFF));
+  }
+
+  private void writeLong(long v) throws IOException
+  {
+    writeInt(v & 0xFFFFFFFFL);
+    writeInt(v >>> 32);
+  }
+
+  private void writeBytes(byte[] b) throws IOException
+  {
+    out.write(b, 0, b.length);
+    written += b.length;
+  }
+
+  private static int toDosTime(long time)
+  {
+    Calendar calendar = Calendar.getInstance();
+    calendar.setTimeInMillis(time);
+    int year = calendar.get(Calendar.YEAR);
+    if (year < 1980)
+    {
+      return (1 << 21) | (1 << 16);
+    }
+    return (year - 1980) << 25 |
+           (calendar.get(Calendar.MONTH) + 1) << 21 |
+           calendar.get(Calendar.DAY_OF_MONTH) << 16 |
+           calendar.get(Calendar.HOUR_OF_DAY) << 11 |
+           calendar.get(Calendar.MINUTE) << 5 |
+           calendar.get(Calendar.SECOND) >> 1;
+  }
+
+  private static final class Entry
+  {
+    final byte[] name;
+    final int method;
+    final int flags;
+    final long offset;
+    long localHeaderSize;
+    long crc;
+    long compressedSize;
+    long size;
+    boolean jarMagic;
+
+    Entry(byte[] name, int method, int flags, long offset)
+    {
+      this.name = name;
+      this.method = method;
+      this.flags = flags;
+      this.offset = offset;
+    }
+  }
+}
@@ -45,7 +45,7 @@ public class KeywordNameMaker implements NameMaker
     private int skipped = 0; // Names skipped in the sequence
     private Vector namesToDate = new Vector();
     private Hashtable argCount = new Hashtable();
-    private String[] noObfNames = null; // List of names not to be obfuscated
+    private Set noObfNames = null; // Set of names not to be obfuscated
     private String[] keywordsToUse;
     private String[] keywordsToExclude;
     private String[] firstLetter;
@@ -127,7 +127,7 @@ public class KeywordNameMaker implements NameMaker
     /** Ctor - block names not to be obfuscated from the mapping target space. */
     public KeywordNameMaker(String[] noObfNames, boolean useKeywords, boolean lowerCaseOnly)
     {
-        this.noObfNames = noObfNames == null ? new String[0] : noObfNames;
+        this.noObfNames = noObfNames == null ? Collections.EMPTY_SET : new HashSet(Arrays.asList(noObfNames));
         if (useKeywords) 
         {
             keywordsToUse = someKeywords;
@@ -196,7 +196,7 @@ public class KeywordNameMaker implements NameMaker
             for (;;)
             {
                 name = getNewName(index + skipped);
-                if (!Tools.isInArray(name, noObfNames) &&
+                if (!noObfNames.contains(name) &&
                     (index + skipped < keywordsToUse.length || 
                      !Tools.isInArray(name, keywordsToExclude)))
                 {
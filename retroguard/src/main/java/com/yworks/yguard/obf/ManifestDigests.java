@@ -0,0 +1,291 @@
+/**
+ * YGuard -- an obfuscation library for Java(TM) classfiles.
+ *
+ * Copyright (c) 2002 yWorks GmbH (yguard@yworks.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * The author may be contacted at yguard@yworks.com
+ *
+ * Java and all Java-based marks are trademarks or registered
+ * trademarks of Sun Microsystems, Inc. in the U.S. and other countries.
+ */
+package com.yworks.yguard.obf;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.jar.Attributes;
+
+/**
+ * Computes the digests of jar entries for the manifest.
+ * <p>
+ * The <code>MessageDigest</code> instances are created once per thread and
+ * reused for all entries digested on that thread, i.e. the same instance
+ * of this class may be used by several threads concurrently.
+ * An instance without algorithms does not compute anything.
+ * </p>
+ */
+public class ManifestDigests
+{
+  private static final String DIGEST_ALGORITHMS = "Digest-Algorithms";
+  private static final String DIGEST_SUFFIX = "-Digest";
+
+  private final String[] algorithms;
+  private final String algorithmList;
+  private final ThreadLocal digests;
+
+  /**
+   * Creates a new instance for the given digest algorithms.
+   * @param algorithms the names of the algorithms, may be empty.
+   * @throws NoSuchAlgorithmException if one of the algorithms is not
+   * available.
+   */
+  public ManifestDigests(String[] algorithms) throws NoSuchAlgorithmException
+  {
+    // the canonical names are used for the manifest attributes
+    MessageDigest[] initial = createDigests(algorithms);
+    this.algorithms = new String[initial.length];
+    StringBuffer sb = new StringBuffer();
+    for (int i = 0; i < initial.length; i++)
+    {
+      this.algorithms[i] = initial[i].getAlgorithm();
+      if (i > 0)
+      {
+        sb.append(", ");
+      }
+      sb.append(this.algorithms[i]);
+    }
+    this.algorithmList = sb.toString();
+    this.digests = new ThreadLocal()
+    {
+      protected Object initialValue()
+      {
+        try
+        {
+          return createDigests(ManifestDigests.this.algorithms);
+        }
+        catch (NoSuchAlgorithmException nsae)
+        {
+          // cannot happen, the algorithms have been checked already
+          throw new IllegalStateException(nsae.getMessage());
+        }
+      }
+    };
+  }
+
+  private static MessageDigest[] createDigests(String[] algorithms) throws NoSuchAlgorithmException
+  {
+    MessageDigest[] result = new MessageDigest[algorithms.length];
+    for (int i = 0; i < algorithms.length; i++)
+    {
+      result[i] = MessageDigest.getInstance(algorithms[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the names of the digest algorithms.
+   */
+  public String[] getAlgorithms()
+  {
+    return (String[]) algorithms.clone();
+  }
+
+  /**
+   * Returns <code>true</code> if no digests are computed at all.
+   */
+  public boolean isEmpty()
+  {
+    return algorithms.length == 0;
+  }
+
+  /**
+   * Computes the Base64 encoded digests of the given data.
+   * @return the digests in the order of {@link #getAlgorithms()}.
+   */
+  public String[] digest(byte[] data)
+  {
+    return digest(data, 0, data.length);
+  }
+
+  /**
+   * Computes the Base64 encoded digests of the given part of the data.
+   * @return the digests in the order of {@link #getAlgorithms()}.
+   */
+  public String[] digest(byte[] data, int offset, int length)
+  {
+    if (isEmpty())
+    {
+      return new String[0];
+    }
+    MessageDigest[] md = (MessageDigest[]) digests.get();
+    String[] result = new String[md.length];
+    for (int i = 0; i < md.length; i++)
+    {
+      md[i].reset();
+      md[i].update(data, offset, length);
+      result[i] = Tools.toBase64(md[i].digest());
+    }
+    return result;
+  }
+
+  /**
+   * Computes the Base64 encoded digests of the remaining data of the given
+   * stream. Nothing is read if no digests are computed.
+   * A stream created by {@link #createStream(OutputStream)} on the same
+   * thread must not be used afterwards.
+   * @return the digests in the order of {@link #getAlgorithms()}.
+   */
+  public String[] digest(InputStream in) throws IOException
+  {
+    if (isEmpty())
+    {
+      return new String[0];
+    }
+    MessageDigest[] md = (MessageDigest[]) digests.get();
+    for (int i = 0; i < md.length; i++)
+    {
+      md[i].reset();
+    }
+    byte[] buffer = new byte[8192];
+    int n;
+    while ((n = in.read(buffer)) > -1)
+    {
+      for (int i = 0; i < md.length; i++)
+      {
+        md[i].update(buffer, 0, n);
+      }
+    }
+    String[] result = new String[md.length];
+    for (int i = 0; i < md.length; i++)
+    {
+      result[i] = Tools.toBase64(md[i].digest());
+    }
+    return result;
+  }
+
+  /**
+   * Returns the digests of the given manifest attributes, if there is one
+   * for each algorithm.
+   * @param attributes the attributes of a manifest entry, may be
+   * <code>null</code>.
+   * @return the digests in the order of {@link #getAlgorithms()}, or
+   * <code>null</code> if one of them is missing.
+   */
+  public String[] getDigests(Attributes attributes)
+  {
+    String[] result = new String[algorithms.length];
+    for (int i = 0; i < algorithms.length; i++)
+    {
+      result[i] = attributes == null ? null : attributes.getValue(algorithms[i] + DIGEST_SUFFIX);
+      if (result[i] == null)
+      {
+        return null;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Creates a stream that computes the digests of all data written through
+   * it. Only one such stream may be in use per thread at a time.
+   */
+  public DigestStream createStream(OutputStream out)
+  {
+    MessageDigest[] md = isEmpty() ? new MessageDigest[0] : (MessageDigest[]) digests.get();
+    for (int i = 0; i < md.length; i++)
+    {
+      md[i].reset();
+    }
+    return new DigestStream(out, md);
+  }
+
+  /**
+   * Replaces the digest attributes in the given attributes with the given
+   * digests.
+   * If no digests are computed, the existing digest attributes are removed.
+   * @param attributes the attributes of a manifest entry.
+   * @param values the digests as returned by {@link #digest(byte[])}.
+   */
+  public void putDigests(Attributes attributes, String[] values)
+  {
+    for (Iterator it = attributes.keySet().iterator(); it.hasNext();)
+    {
+      if (it.next().toString().indexOf("Digest") != -1)
+      {
+        it.remove();
+      }
+    }
+    if (!isEmpty())
+    {
+      attributes.putValue(DIGEST_ALGORITHMS, algorithmList);
+      for (int i = 0; i < algorithms.length; i++)
+      {
+        attributes.putValue(algorithms[i] + DIGEST_SUFFIX, values[i]);
+      }
+    }
+  }
+
+  /**
+   * An output stream that computes the digests of all data written to it.
+   */
+  public static final class DigestStream extends FilterOutputStream
+  {
+    private final MessageDigest[] md;
+
+    DigestStream(OutputStream out, MessageDigest[] md)
+    {
+      super(out);
+      this.md = md;
+    }
+
+    public void write(int b) throws IOException
+    {
+      out.write(b);
+      for (int i = 0; i < md.length; i++)
+      {
+        md[i].update((byte) b);
+      }
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+      out.write(b, off, len);
+      for (int i = 0; i < md.length; i++)
+      {
+        md[i].update(b, off, len);
+      }
+    }
+
+    /**
+     * Finishes the digests of the data written so far.
+     * @return the Base64 encoded digests.
+     */
+    public String[] getDigests()
+    {
+      String[] result = new String[md.length];
+      for (int i = 0; i < md.length; i++)
+      {
+        result[i] = Tools.toBase64(md[i].digest());
+      }
+      return result;
+    }
+  }
+}
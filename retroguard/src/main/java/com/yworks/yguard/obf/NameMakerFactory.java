@@ -24,8 +24,11 @@
  */
 package com.yworks.yguard.obf;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  *
@@ -77,7 +80,7 @@ public abstract class NameMakerFactory
     private Map innerClassNameMap = new HashMap();
     private Map packageNameMap = new HashMap();
     
-    public NameMaker getClassNameMaker(String[] reservedNames, String fqClassName)
+    public synchronized NameMaker getClassNameMaker(String[] reservedNames, String fqClassName)
     {
       NameMaker res = (NameMaker) classNameMap.get(fqClassName);
       if (res == null){
@@ -91,7 +94,7 @@ public abstract class NameMakerFactory
       return new KeywordNameMaker(reservedNames); 
     }
     
-    public NameMaker getFieldNameMaker(String[] reservedNames, String fqClassName)
+    public synchronized NameMaker getFieldNameMaker(String[] reservedNames, String fqClassName)
     {
       NameMaker res = (NameMaker) fieldNameMap.get(fqClassName);
       if (res == null){
@@ -105,7 +108,7 @@ public abstract class NameMakerFactory
       return new KeywordNameMaker(reservedNames, false, true); 
     }
     
-    public NameMaker getInnerClassNameMaker(String[] reservedNames, String fqInnerClassName)
+    public synchronized NameMaker getInnerClassNameMaker(String[] reservedNames, String fqInnerClassName)
     {
       NameMaker res = (NameMaker) innerClassNameMap.get(fqInnerClassName);
       if (res == null){
@@ -115,14 +118,15 @@ public abstract class NameMakerFactory
       return res;
     }
     
-    protected NameMaker createInnerClassNameMaker(final String[] reservedNames, String fqInnerClassName){
+    protected NameMaker createInnerClassNameMaker(String[] reservedNames, String fqInnerClassName){
       final NameMaker inner = new KeywordNameMaker(null);
+      final Set reserved = reservedNames == null ? null : new HashSet(Arrays.asList(reservedNames));
       //JBuilder7 incompatability workaround
       return new NameMaker(){
         public String nextName(String sig){
           while(true){
             String name = '_' + inner.nextName(sig);
-            if (reservedNames == null || !Tools.isInArray(name, reservedNames)){
+            if (reserved == null || !reserved.contains(name)){
               return name;
             }
           }
@@ -130,7 +134,7 @@ public abstract class NameMakerFactory
       };
     }
 
-    public NameMaker getMethodNameMaker(String[] reservedNames, String fqClassName)
+    public synchronized NameMaker getMethodNameMaker(String[] reservedNames, String fqClassName)
     {
       NameMaker res = (NameMaker) methodNameMap.get(fqClassName);
       if (res == null){
@@ -144,7 +148,7 @@ public abstract class NameMakerFactory
       return new KeywordNameMaker(reservedNames, false, true); 
     }
     
-    public NameMaker getPackageNameMaker(String[] reservedNames, String packageName)
+    public synchronized NameMaker getPackageNameMaker(String[] reservedNames, String packageName)
     {
       NameMaker res = (NameMaker) packageNameMap.get(packageName);
       if (res == null){
@@ -167,7 +167,7 @@ abstract public class PkCl extends TreeItem
             noObfNames[i] = (String)vec.elementAt(i);
         }
         NameMakerFactory nmf = NameMakerFactory.getInstance();
-        for (Enumeration enumeration = hash.elements(); enumeration.hasMoreElements(); )
+        for (Enumeration enumeration = classTree.getNamingEnum(hash); enumeration.hasMoreElements(); )
         {
             TreeItem ti = (TreeItem)enumeration.nextElement();
             if (!ti.isFixed())
@@ -187,12 +187,11 @@ abstract public class PkCl extends TreeItem
                   } else {
                     NameMaker classNameMaker = nmf.getClassNameMaker(noObfNames, getFullInName());
                     boolean newNameFound = true;
-                    Cl.ClassResolver resolver = Cl.getClassResolver();
                     do {
                       ti.setOutName(classNameMaker.nextName(null));
                       String newName = ti.getFullOutName();
                       try{
-                        resolver.resolve(Conversion.toJavaClass(newName));
+                        Cl.getExtClassInfo(Conversion.toJavaClass(newName));
                         newNameFound = false;
                       } catch (ClassNotFoundException cnfe){
                         newNameFound = true;
@@ -0,0 +1,258 @@
+/**
+ * YGuard -- an obfuscation library for Java(TM) classfiles.
+ *
+ * Copyright (c) 2002 yWorks GmbH (yguard@yworks.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * The author may be contacted at yguard@yworks.com
+ *
+ * Java and all Java-based marks are trademarks or registered
+ * trademarks of Sun Microsystems, Inc. in the U.S. and other countries.
+ */
+package com.yworks.yguard.obf;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Locates the compressed data of the entries of a jar file, so that
+ * unchanged entries can be copied to another jar as they are, see
+ * {@link JarWriter#copyEntry(String, RawJarEntries.Entry)}.
+ * <p>
+ * The locations are read from the central directory of the jar. Entries
+ * that cannot be copied this way are not listed, i.e. encrypted entries,
+ * entries that are neither stored nor deflated, and entries of jars that
+ * need Zip64 extensions. These have to be read and written the usual way.
+ * </p>
+ */
+class RawJarEntries
+{
+  private static final int LOC_SIG = 0x04034b50;
+  private static final int CEN_SIG = 0x02014b50;
+  private static final int END_SIG = 0x06054b50;
+  private static final int LOC_HEADER = 30;
+  private static final int CEN_HEADER = 46;
+  private static final int END_HEADER = 22;
+  private static final int MAX_COMMENT = 0xFFFF;
+  private static final int FLAG_ENCRYPTED = 1;
+  private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+  private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+  private final File file;
+  private final RandomAccessFile in;
+  private final Map entries;
+  private final byte[] header = new byte[LOC_HEADER];
+
+  /**
+   * Reads the central directory of the given jar file. The file is kept
+   * open for copying the entries until {@link #close()} is called.
+   */
+  RawJarEntries(File jar) throws IOException
+  {
+    file = jar;
+    in = new RandomAccessFile(jar, "r");
+    entries = new HashMap();
+    try
+    {
+      readCentralDirectory();
+    }
+    catch (IOException ioe)
+    {
+      in.close();
+      throw ioe;
+    }
+  }
+
+  private void readCentralDirectory() throws IOException
+  {
+    long length = in.length();
+    int tailLength = (int) Math.min(length, END_HEADER + MAX_COMMENT);
+    byte[] tail = new byte[tailLength];
+    in.seek(length - tailLength);
+    in.readFully(tail);
+
+    // the end record is followed by the archive comment only
+    int end = -1;
+    for (int i = tailLength - END_HEADER; i >= 0; i--)
+    {
+      if (getInt(tail, i) == END_SIG && i + END_HEADER + getShort(tail, i + 20) == tailLength)
+      {
+        end = i;
+        break;
+      }
+    }
+    if (end < 0)
+    {
+      return;
+    }
+    int count = getShort(tail, end + 10);
+    long cenLength = getUnsignedInt(tail, end + 12);
+    long cenOffset = getUnsignedInt(tail, end + 16);
+    if (count == ZIP64_MAGIC_COUNT || cenLength == ZIP64_MAGIC || cenOffset == ZIP64_MAGIC ||
+        cenLength > Integer.MAX_VALUE)
+    {
+      return;
+    }
+    // data prepended to the archive shifts all offsets
+    long endOffset = length - tailLength + end;
+    long base = endOffset - cenLength - cenOffset;
+    if (base < 0)
+    {
+      return;
+    }
+
+    byte[] cen = new byte[(int) cenLength];
+    in.seek(base + cenOffset);
+    in.readFully(cen);
+    Set duplicates = new HashSet();
+    int pos = 0;
+    for (int i = 0; i < count; i++)
+    {
+      if (pos + CEN_HEADER > cen.length || getInt(cen, pos) != CEN_SIG)
+      {
+        throw new ZipException("Invalid central directory header in " + file);
+      }
+      int flags = getShort(cen, pos + 8);
+      int method = getShort(cen, pos + 10);
+      long crc = getUnsignedInt(cen, pos + 16);
+      long compressedSize = getUnsignedInt(cen, pos + 20);
+      long size = getUnsignedInt(cen, pos + 24);
+      int nameLength = getShort(cen, pos + 28);
+      int extraLength = getShort(cen, pos + 30);
+      int commentLength = getShort(cen, pos + 32);
+      long offset = getUnsignedInt(cen, pos + 42);
+      if (pos + CEN_HEADER + nameLength > cen.length)
+      {
+        throw new ZipException("Invalid central directory header in " + file);
+      }
+      // jar files use UTF-8 names regardless of the language encoding flag
+      String name = new String(cen, pos + CEN_HEADER, nameLength, "UTF-8");
+      pos += CEN_HEADER + nameLength + extraLength + commentLength;
+
+      if ((flags & FLAG_ENCRYPTED) != 0 ||
+          (method != ZipEntry.STORED && method != ZipEntry.DEFLATED) ||
+          (method == ZipEntry.STORED && compressedSize != size) ||
+          compressedSize == ZIP64_MAGIC || size == ZIP64_MAGIC || offset == ZIP64_MAGIC)
+      {
+        continue;
+      }
+      // ambiguous names are left to the usual way
+      if (entries.put(name, new Entry(method, crc, compressedSize, size, base + offset)) != null)
+      {
+        duplicates.add(name);
+      }
+    }
+    entries.keySet().removeAll(duplicates);
+  }
+
+  /**
+   * Returns the location of the compressed data of the given entry, or
+   * <code>null</code> if the entry cannot be copied as is.
+   * The entry must belong to the jar this instance has been created for.
+   */
+  Entry getEntry(ZipEntry zipEntry)
+  {
+    Entry entry = (Entry) entries.get(zipEntry.getName());
+    if (entry != null &&
+        entry.method == zipEntry.getMethod() &&
+        entry.crc == zipEntry.getCrc() &&
+        entry.compressedSize == zipEntry.getCompressedSize() &&
+        entry.size == zipEntry.getSize())
+    {
+      return entry;
+    }
+    return null;
+  }
+
+  /**
+   * Closes the jar file.
+   */
+  void close() throws IOException
+  {
+    entries.clear();
+    in.close();
+  }
+
+  private static int getShort(byte[] data, int offset)
+  {
+    return (data[offset] & 0xFF) | ((data[offset + 1] & 0xFF) << 8);
+  }
+
+  private static int getInt(byte[] data, int offset)
+  {
+    return getShort(data, offset) | (getShort(data, offset + 2) << 16);
+  }
+
+  private static long getUnsignedInt(byte[] data, int offset)
+  {
+    return getInt(data, offset) & 0xFFFFFFFFL;
+  }
+
+  /**
+   * The compressed data of an entry of the jar.
+   */
+  final class Entry
+  {
+    final int method;
+    final long crc;
+    final long compressedSize;
+    final long size;
+    private final long headerOffset;
+
+    Entry(int method, long crc, long compressedSize, long size, long headerOffset)
+    {
+      this.method = method;
+      this.crc = crc;
+      this.compressedSize = compressedSize;
+      this.size = size;
+      this.headerOffset = headerOffset;
+    }
+
+    /**
+     * Writes the compressed data of this entry to the given stream.
+     */
+    void copyTo(OutputStream out, byte[] buffer) throws IOException
+    {
+      // the local header may have other extra fields than the central one
+      in.seek(headerOffset);
+      in.readFully(header);
+      if (getInt(header, 0) != LOC_SIG)
+      {
+        throw new ZipException("Invalid local header in " + file);
+      }
+      in.seek(headerOffset + LOC_HEADER + getShort(header, 26) + getShort(header, 28));
+      long remaining = compressedSize;
+      while (remaining > 0)
+      {
+        int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+        if (n < 0)
+        {
+          throw new ZipException("Unexpected end of " + file);
+        }
+        out.write(buffer, 0, n);
+        remaining -= n;
+      }
+    }
+  }
+}
@@ -53,6 +53,7 @@ public class TreeItem
     private boolean isFixed = false; // Has the name been fixed in some way?
     private boolean isFromScript = false; // Is this script constrained?
     private boolean isFromScriptMap = false; // Is this script_map constrained?
+    private int references = 0; // Number of class files referencing this item
 
 
     // Class Methods ---------------------------------------------------------
@@ -207,6 +208,12 @@ public class TreeItem
     /** Is this constrained by a map script line? */
     public boolean isFromScriptMap() {return isFromScriptMap;}
 
+    /** Return the number of class files referencing this item, see {@link ClassTree#countReferences()}. */
+    public int getReferences() {return references;}
+
+    /** Add to the number of class files referencing this item. */
+    void addReferences(int count) {references += count;}
+
     /** Is a method or field Synthetic? */
     public boolean isSynthetic() {return isSynthetic;}
 
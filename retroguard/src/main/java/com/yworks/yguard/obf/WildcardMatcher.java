@@ -0,0 +1,327 @@
+/**
+ * YGuard -- an obfuscation library for Java(TM) classfiles.
+ *
+ * Copyright (c) 2002 yWorks GmbH (yguard@yworks.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * The author may be contacted at yguard@yworks.com
+ *
+ * Java and all Java-based marks are trademarks or registered
+ * trademarks of Sun Microsystems, Inc. in the U.S. and other countries.
+ */
+package com.yworks.yguard.obf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+ * Matches the wildcard patterns of a set of rules against all classes,
+ * methods and fields of a {@link ClassTree} in a single traversal.
+ * <p>
+ * The patterns are indexed by their literal prefix, i.e. the part before
+ * the first wildcard, in a trie. For each item of the tree, only the
+ * patterns whose prefix is a prefix of the item's name are actually
+ * matched.
+ * The matching itself is done by {@link TreeItem#isMatch(String, String)}
+ * and {@link TreeItem#isNRMatch(String, String)}, so the results are exactly
+ * the same as matching each pattern separately.
+ * </p>
+ */
+class WildcardMatcher
+{
+  private final PatternTrie classPatterns = new PatternTrie();
+  private final PatternTrie methodPatterns = new PatternTrie();
+  private final PatternTrie fieldPatterns = new PatternTrie();
+  // the matches by pattern, in the order of ClassTree.walkTree
+  private final Map classMatches = new HashMap();
+  private final Map methodMatches = new HashMap();
+  private final Map fieldMatches = new HashMap();
+
+  /**
+   * Creates a matcher for the wildcard patterns of the given rules.
+   * @param rules a collection of {@link YGuardRule}s.
+   */
+  WildcardMatcher(Collection rules)
+  {
+    for (Iterator it = rules.iterator(); it.hasNext();)
+    {
+      YGuardRule rule = (YGuardRule) it.next();
+      switch (rule.type)
+      {
+        case YGuardRule.TYPE_CLASS:
+        case YGuardRule.TYPE_SOURCE_ATTRIBUTE_MAP:
+        case YGuardRule.TYPE_LINE_NUMBER_MAPPER:
+          addClassPattern(rule.name);
+          break;
+        case YGuardRule.TYPE_ATTR2:
+          addClassPattern(rule.descriptor);
+          break;
+        case YGuardRule.TYPE_METHOD:
+          addMethodPattern(rule.name, rule.descriptor);
+          break;
+        case YGuardRule.TYPE_FIELD:
+          addFieldPattern(rule.name);
+          break;
+      }
+    }
+  }
+
+  private void addClassPattern(String name)
+  {
+    if (name != null && name.indexOf('*') != -1 && !classMatches.containsKey(name))
+    {
+      Vector matches = new Vector();
+      classMatches.put(name, matches);
+      classPatterns.add(new Pattern(name, null, matches));
+    }
+  }
+
+  private void addMethodPattern(String name, String descriptor)
+  {
+    if (name == null || descriptor == null)
+    {
+      return;
+    }
+    List key = Arrays.asList(new String[]{name, descriptor});
+    if ((name.indexOf('*') != -1 || descriptor.indexOf('*') != -1) && !methodMatches.containsKey(key))
+    {
+      Vector matches = new Vector();
+      methodMatches.put(key, matches);
+      methodPatterns.add(new Pattern(name, descriptor, matches));
+    }
+  }
+
+  private void addFieldPattern(String name)
+  {
+    if (name != null && name.indexOf('*') != -1 && !fieldMatches.containsKey(name))
+    {
+      Vector matches = new Vector();
+      fieldMatches.put(name, matches);
+      fieldPatterns.add(new Pattern(name, null, matches));
+    }
+  }
+
+  /**
+   * Matches all patterns against the given tree.
+   */
+  void match(ClassTree classTree)
+  {
+    if (classMatches.isEmpty() && methodMatches.isEmpty() && fieldMatches.isEmpty())
+    {
+      return;
+    }
+    final List candidates = new ArrayList();
+    classTree.walkTree(new TreeAction()
+    {
+      private Cl lastClass;
+      private String lastClassName;
+
+      public void classAction(Cl cl)
+      {
+        if (!classMatches.isEmpty())
+        {
+          match(classPatterns, cl, cl.getFullInName(), null);
+        }
+      }
+
+      public void methodAction(Md md)
+      {
+        if (!methodMatches.isEmpty())
+        {
+          match(methodPatterns, md, getFullInName(md), md.getDescriptor());
+        }
+      }
+
+      public void fieldAction(Fd fd)
+      {
+        if (!fieldMatches.isEmpty())
+        {
+          match(fieldPatterns, fd, getFullInName(fd), null);
+        }
+      }
+
+      // the same as TreeItem.getFullInName, without building the class name for every member
+      private String getFullInName(TreeItem member)
+      {
+        if (member.parent != lastClass)
+        {
+          lastClass = (Cl) member.parent;
+          lastClassName = lastClass.getFullInName();
+        }
+        return lastClassName + member.sep + member.getInName();
+      }
+
+      private void match(PatternTrie patterns, TreeItem item, String name, String descriptor)
+      {
+        candidates.clear();
+        patterns.collect(name, candidates);
+        for (int i = 0; i < candidates.size(); i++)
+        {
+          Pattern pattern = (Pattern) candidates.get(i);
+          if (pattern.matches(name, descriptor))
+          {
+            pattern.matches.addElement(item);
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Returns the classes matching the given wildcard pattern, or
+   * <code>null</code> if the pattern is unknown to this matcher.
+   */
+  Vector getClasses(String name)
+  {
+    return (Vector) classMatches.get(name);
+  }
+
+  /**
+   * Returns the methods matching the given wildcard patterns, or
+   * <code>null</code> if the patterns are unknown to this matcher.
+   */
+  Vector getMethods(String name, String descriptor)
+  {
+    return (Vector) methodMatches.get(Arrays.asList(new String[]{name, descriptor}));
+  }
+
+  /**
+   * Returns the fields matching the given wildcard pattern, or
+   * <code>null</code> if the pattern is unknown to this matcher.
+   */
+  Vector getFields(String name)
+  {
+    return (Vector) fieldMatches.get(name);
+  }
+
+  // A name pattern, possibly with a descriptor pattern
+  private static final class Pattern
+  {
+    final boolean recursive;
+    final String name;
+    final String descriptor;
+    final Vector matches;
+
+    Pattern(String name, String descriptor, Vector matches)
+    {
+      this.recursive = name.indexOf('!') == 0;
+      this.name = recursive ? name.substring(1) : name;
+      this.descriptor = descriptor;
+      this.matches = matches;
+    }
+
+    // Returns the part of the name that has to be a prefix of all matching names.
+    // Non-recursive patterns are matched segment by segment, where consecutive
+    // inner class separators are collapsed, so the prefix ends before the first one.
+    String getPrefix()
+    {
+      int end = name.indexOf('*');
+      if (end == -1)
+      {
+        end = name.length();
+      }
+      if (!recursive)
+      {
+        int inner = name.indexOf(ClassTree.CLASS_LEVEL);
+        if (inner != -1 && inner < end)
+        {
+          end = inner;
+        }
+      }
+      return name.substring(0, end);
+    }
+
+    boolean matches(String fullName, String fullDescriptor)
+    {
+      if (recursive ? !TreeItem.isMatch(name, fullName) : !TreeItem.isNRMatch(name, fullName))
+      {
+        return false;
+      }
+      return descriptor == null || TreeItem.isMatch(descriptor, fullDescriptor);
+    }
+  }
+
+  // Patterns indexed by their prefix
+  private static final class PatternTrie
+  {
+    private final Node root = new Node();
+
+    void add(Pattern pattern)
+    {
+      String prefix = pattern.getPrefix();
+      Node node = root;
+      for (int i = 0; i < prefix.length(); i++)
+      {
+        node = node.getChild(prefix.charAt(i), true);
+      }
+      node.patterns.add(pattern);
+    }
+
+    // Adds all patterns whose prefix is a prefix of the given name to the result.
+    void collect(String name, List result)
+    {
+      Node node = root;
+      result.addAll(node.patterns);
+      for (int i = 0; i < name.length(); i++)
+      {
+        node = node.getChild(name.charAt(i), false);
+        if (node == null)
+        {
+          return;
+        }
+        result.addAll(node.patterns);
+      }
+    }
+  }
+
+  private static final class Node
+  {
+    private char[] keys = new char[0];
+    private Node[] children = new Node[0];
+    final List patterns = new ArrayList(1);
+
+    Node getChild(char c, boolean create)
+    {
+      for (int i = 0; i < keys.length; i++)
+      {
+        if (keys[i] == c)
+        {
+          return children[i];
+        }
+      }
+      if (!create)
+      {
+        return null;
+      }
+      Node child = new Node();
+      char[] newKeys = new char[keys.length + 1];
+      System.arraycopy(keys, 0, newKeys, 0, keys.length);
+      newKeys[keys.length] = c;
+      Node[] newChildren = new Node[children.length + 1];
+      System.arraycopy(children, 0, newChildren, 0, children.length);
+      newChildren[children.length] = child;
+      keys = newKeys;
+      children = newChildren;
+      return child;
+    }
+  }
+}
@@ -45,6 +45,8 @@ public class AttrInfo implements ClassConstants
     private int u2attrNameIndex;
     protected int u4attrLength;
     private byte info[];
+    // the data following the header of an attribute that has not been parsed yet
+    private byte rawInfo[];
 
     protected ClassFile owner;
 
@@ -183,7 +185,16 @@ public class AttrInfo implements ClassConstants
         }
 
 //      ai.readInfo(new DataInputStream(new ByteArrayInputStream(buffer)));
-        ai.readInfo(din);
+        if (ai.isLazy())
+        {
+            // Keep the data as is until it is actually needed
+            ai.rawInfo = new byte[attrLength];
+            din.readFully(ai.rawInfo);
+        }
+        else
+        {
+            ai.readInfo(din);
+        }
         return ai;
     }
 
@@ -212,6 +223,40 @@ public class AttrInfo implements ClassConstants
         return ATTR_Unknown;
     }
 
+    /**
+     * Return whether the data following the header may be kept as raw bytes
+     * until it is needed; over-ride this in sub-classes.
+     * Attributes that are never parsed are written back unchanged.
+     */
+    protected boolean isLazy()
+    {
+        return false;
+    }
+
+    /** Return whether the data following the header has been parsed. */
+    protected final boolean isParsed()
+    {
+        return rawInfo == null;
+    }
+
+    /** Parse the data following the header, if this has not been done yet. */
+    protected final void ensureParsed()
+    {
+        if (rawInfo != null)
+        {
+            byte[] data = rawInfo;
+            rawInfo = null;
+            try
+            {
+                readInfo(new DataInputStream(new ByteArrayInputStream(data)));
+            }
+            catch (IOException ioe)
+            {
+                throw new ParseException(ioe);
+            }
+        }
+    }
+
     /**
      * Trim attributes from the classfile except those in the String[].
      */
@@ -242,8 +287,22 @@ public class AttrInfo implements ClassConstants
     {
         if (dout == null) throw new IOException("No output stream was provided.");
         dout.writeShort(u2attrNameIndex);
-        dout.writeInt(getAttrInfoLength());
-        writeInfo(dout);
+        if (rawInfo != null)
+        {
+            dout.writeInt(rawInfo.length);
+            dout.write(rawInfo);
+        }
+        else
+        {
+            dout.writeInt(getAttrInfoLength());
+            writeInfo(dout);
+        }
+    }
+
+    /** Return the number of bytes written by {@link #write(DataOutput)}. */
+    protected final int getSize()
+    {
+        return CONSTANT_FIELD_SIZE + (rawInfo != null ? rawInfo.length : getAttrInfoLength());
     }
 
     /** Export data following the header to a DataOutput stream; over-ride this in sub-classes. */
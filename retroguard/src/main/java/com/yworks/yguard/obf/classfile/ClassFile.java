@@ -26,6 +26,7 @@
 package com.yworks.yguard.obf.classfile;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.*;
 import com.yworks.yguard.obf.*;
 import java.lang.reflect.Modifier;
@@ -137,6 +138,30 @@ public class ClassFile implements ClassConstants
         return cf;
     }
 
+    /**
+     * Create a new ClassFile from the class file format data between position
+     * and limit of the given buffer, e.g. a slice of a byte array or a
+     * memory-mapped file.
+     *
+     * @throws IOException if class file is corrupt or incomplete
+     */
+    public static ClassFile create(ByteBuffer data) throws java.io.IOException
+    {
+        if (data == null) throw new NullPointerException("No data was provided.");
+        return create(new ClassFileInput(data));
+    }
+
+    /**
+     * Create a new ClassFile from the class file format data in the given
+     * part of the array.
+     *
+     * @throws IOException if class file is corrupt or incomplete
+     */
+    public static ClassFile create(byte[] data, int offset, int length) throws java.io.IOException
+    {
+        return create(ByteBuffer.wrap(data, offset, length));
+    }
+
     /** Parse a method or field descriptor into a list of parameter names (for methods)
      *  and a return type, in same format as the Class.forName() method returns . */
     public static String[] parseDescriptor(String descriptor) 
@@ -459,6 +484,60 @@ public class ClassFile implements ClassConstants
         return constantPool;
     }
 
+    /**
+     * Return the names of the classes referenced by CONSTANT_Class entries of
+     * the constant pool. Array classes are replaced by their element class,
+     * arrays of primitive types are omitted.
+     */
+    public String[] getReferencedClasses()
+    {
+        List names = new ArrayList();
+        for (Enumeration enumeration = constantPool.elements(); enumeration.hasMoreElements(); )
+        {
+            Object o = enumeration.nextElement();
+            if (o instanceof ClassCpInfo)
+            {
+                String name = getUtf8(((ClassCpInfo)o).getNameIndex());
+                if (name.charAt(0) == '[')
+                {
+                    int start = name.lastIndexOf('[') + 1;
+                    if (name.charAt(start) != 'L')
+                    {
+                        continue;
+                    }
+                    name = name.substring(start + 1, name.length() - 1);
+                }
+                names.add(name);
+            }
+        }
+        return (String[])names.toArray(new String[names.size()]);
+    }
+
+    /**
+     * Return the class name, simple name and descriptor of each
+     * CONSTANT_Fieldref, CONSTANT_Methodref and CONSTANT_InterfaceMethodref
+     * entry of the constant pool.
+     */
+    public String[][] getReferencedMembers()
+    {
+        List members = new ArrayList();
+        for (Enumeration enumeration = constantPool.elements(); enumeration.hasMoreElements(); )
+        {
+            Object o = enumeration.nextElement();
+            if (o instanceof RefCpInfo)
+            {
+                RefCpInfo entry = (RefCpInfo)o;
+                ClassCpInfo classEntry = (ClassCpInfo)getCpEntry(entry.getClassIndex());
+                NameAndTypeCpInfo ntEntry = (NameAndTypeCpInfo)getCpEntry(entry.getNameAndTypeIndex());
+                members.add(new String[]{
+                    getUtf8(classEntry.getNameIndex()),
+                    getUtf8(ntEntry.getNameIndex()),
+                    getUtf8(ntEntry.getDescriptorIndex())});
+            }
+        }
+        return (String[][])members.toArray(new String[members.size()][]);
+    }
+
     /** Check for methods which can break the obfuscated code, and log them to a String[]. */
     public String[] logDangerousMethods(boolean replaceClassNameStrings) 
     {
@@ -903,6 +982,7 @@ public class ClassFile implements ClassConstants
                   remapSignature(nm, (SignatureAttrInfo) attrInfo);
                 } else if (attrInfo instanceof CodeAttrInfo) {
                     CodeAttrInfo codeAttrInfo = (CodeAttrInfo)attrInfo;
+                    codeAttrInfo.ensureParsed();
                     for (int k = 0; k < codeAttrInfo.u2attributesCount; k++)
                     {
                         AttrInfo innerAttrInfo = codeAttrInfo.attributes[k];
@@ -1400,17 +1480,13 @@ public class ClassFile implements ClassConstants
             s = s.substring(2, s.length()-1);
             jikes = true;
           }
-          if (s.length()>2 && Character.isJavaIdentifierPart(s.charAt(s.length()-1)) &&
-            s.indexOf(' ')<0 && s.indexOf('.')>0){
-            Cl cl = ct.findClassForName(s);
-            if (cl != null){
-              if (!cl.getFullInName().equals(cl.getFullOutName())){
-                if (jikes){
-                  ui.setString("[L"+cl.getFullOutName().replace('/','.')+";");
-                } else {
-                  ui.setString(cl.getFullOutName().replace('/','.'));
-                }
-              }
+          // a single lookup in the names of the renamed classes
+          String outName = ct.mapJavaClassName(s);
+          if (outName != null){
+            if (jikes){
+              ui.setString("[L"+outName+";");
+            } else {
+              ui.setString(outName);
             }
           }
         }
@@ -1461,6 +1537,50 @@ public class ClassFile implements ClassConstants
         }
     }
 
+    /** Return the number of bytes written by {@link #write(DataOutput)}. */
+    public int getSize()
+    {
+        int size = 24;
+        for (Enumeration enumeration = constantPool.elements(); enumeration.hasMoreElements(); )
+        {
+            CpInfo cpInfo = (CpInfo)enumeration.nextElement();
+            if (cpInfo != null)
+            {
+                size += cpInfo.getSize();
+            }
+        }
+        if (writeIdString)
+        {
+            size += cpIdString.getSize();
+        }
+        size += 2 * u2interfacesCount;
+        for (int i = 0; i < u2fieldsCount; i++)
+        {
+            size += fields[i].getSize();
+        }
+        for (int i = 0; i < u2methodsCount; i++)
+        {
+            size += methods[i].getSize();
+        }
+        for (int i = 0; i < u2attributesCount; i++)
+        {
+            size += attributes[i].getSize();
+        }
+        return size;
+    }
+
+    /**
+     * Export the representation to a byte array.
+     * The size of the class file is computed first, i.e. the data is
+     * written to an array of the final size right away.
+     */
+    public byte[] toByteArray() throws java.io.IOException
+    {
+        ClassFileOutput out = new ClassFileOutput(getSize());
+        write(out);
+        return out.toByteArray();
+    }
+
     /** Dump the content of the class file to the specified file (used for debugging). */
     public void dump(PrintWriter pw) 
     {
@@ -1531,6 +1651,7 @@ public class ClassFile implements ClassConstants
                 if (info.attributes[j] instanceof CodeAttrInfo){
                   pw.println(info.attributes[j]);
                   CodeAttrInfo cai = (CodeAttrInfo) info.attributes[j];
+                  cai.ensureParsed();
                   for (int k = 0; k < cai.u2attributesCount; k++){
                     pw.println(cai.attributes[k]);
                   }
@@ -0,0 +1,165 @@
+/**
+ * YGuard -- an obfuscation library for Java(TM) classfiles.
+ *
+ * Original Copyright (c) 1999 Mark Welsh (markw@retrologic.com)
+ * Modifications Copyright (c) 2002 yWorks GmbH (yguard@yworks.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * The author may be contacted at yguard@yworks.com 
+ *
+ * Java and all Java-based marks are trademarks or registered 
+ * trademarks of Sun Microsystems, Inc. in the U.S. and other countries.
+ */
+package com.yworks.yguard.obf.classfile;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A <code>DataInput</code> that reads class file data directly from a
+ * <code>ByteBuffer</code>, e.g. a slice of a byte array or a memory-mapped
+ * file.
+ * <p>
+ * In contrast to a <code>DataInputStream</code> stacked on buffered input
+ * streams, each read is a single bounds check followed by a buffer access.
+ * </p>
+ */
+public class ClassFileInput implements DataInput
+{
+    // Fields ----------------------------------------------------------------
+    private final ByteBuffer buffer;
+
+
+    // Instance Methods ------------------------------------------------------
+    /** Read the data between position and limit of the given buffer. */
+    public ClassFileInput(ByteBuffer buffer)
+    {
+        // class files are big-endian, like the default order of new buffers
+        this.buffer = buffer.slice();
+    }
+
+    /** Read the given part of the given array. */
+    public ClassFileInput(byte[] data, int offset, int length)
+    {
+        this(ByteBuffer.wrap(data, offset, length));
+    }
+
+    /** Return the number of bytes that have not been read yet. */
+    public int remaining()
+    {
+        return buffer.remaining();
+    }
+
+    // Make sure the given number of bytes can be read.
+    private void require(int n) throws EOFException
+    {
+        if (buffer.remaining() < n)
+        {
+            throw new EOFException();
+        }
+    }
+
+    public void readFully(byte[] b) throws IOException
+    {
+        readFully(b, 0, b.length);
+    }
+
+    public void readFully(byte[] b, int off, int len) throws IOException
+    {
+        require(len);
+        buffer.get(b, off, len);
+    }
+
+    public int skipBytes(int n)
+    {
+        int skipped = Math.max(0, Math.min(n, buffer.remaining()));
+        buffer.position(buffer.position() + skipped);
+        return skipped;
+    }
+
+    public boolean readBoolean() throws IOException
+    {
+        return readByte() != 0;
+    }
+
+    public byte readByte() throws IOException
+    {
+        require(1);
+        return buffer.get();
+    }
+
+    public int readUnsignedByte() throws IOException
+    {
+        require(1);
+        return buffer.get() & 0xFF;
+    }
+
+    public short readShort() throws IOException
+    {
+        require(2);
+        return buffer.getShort();
+    }
+
+    public int readUnsignedShort() throws IOException
+    {
+        require(2);
+        return buffer.getShort() & 0xFFFF;
+    }
+
+    public char readChar() throws IOException
+    {
+        require(2);
+        return buffer.getChar();
+    }
+
+    public int readInt() throws IOException
+    {
+        require(4);
+        return buffer.getInt();
+    }
+
+    public long readLong() throws IOException
+    {
+        require(8);
+        return buffer.getLong();
+    }
+
+    public float readFloat() throws IOException
+    {
+        require(4);
+        return buffer.getFloat();
+    }
+
+    public double readDouble() throws IOException
+    {
+        require(8);
+        return buffer.getDouble();
+    }
+
+    /** Not supported, class files do not contain lines of text. */
+    public String readLine()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    public String readUTF() throws IOException
+    {
+        return DataInputStream.readUTF(this);
+    }
+}
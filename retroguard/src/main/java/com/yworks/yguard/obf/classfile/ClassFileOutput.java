@@ -0,0 +1,207 @@
+/**
+ * YGuard -- an obfuscation library for Java(TM) classfiles.
+ *
+ * Original Copyright (c) 1999 Mark Welsh (markw@retrologic.com)
+ * Modifications Copyright (c) 2002 yWorks GmbH (yguard@yworks.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * The author may be contacted at yguard@yworks.com 
+ *
+ * Java and all Java-based marks are trademarks or registered 
+ * trademarks of Sun Microsystems, Inc. in the U.S. and other countries.
+ */
+package com.yworks.yguard.obf.classfile;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+
+/**
+ * A <code>DataOutput</code> that writes class file data directly to a
+ * byte array.
+ * <p>
+ * The array is allocated with the expected size of the data, i.e. if the
+ * size is known in advance, no data is copied at all. The array grows if
+ * more data is written, though.
+ * </p>
+ */
+public class ClassFileOutput implements DataOutput
+{
+    // Fields ----------------------------------------------------------------
+    private byte[] data;
+    private int size;
+
+
+    // Instance Methods ------------------------------------------------------
+    /** Write to an array of the given expected size. */
+    public ClassFileOutput(int expectedSize)
+    {
+        data = new byte[Math.max(expectedSize, 0)];
+    }
+
+    /** Return the number of bytes written so far. */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Return the data written so far. If exactly the expected number of bytes
+     * has been written, the internal array is returned as is.
+     */
+    public byte[] toByteArray()
+    {
+        if (size == data.length)
+        {
+            return data;
+        }
+        byte[] result = new byte[size];
+        System.arraycopy(data, 0, result, 0, size);
+        return result;
+    }
+
+    // Make sure the given number of bytes can be written.
+    private void ensureCapacity(int n)
+    {
+        if (size + n > data.length)
+        {
+            byte[] newData = new byte[Math.max(size + n, data.length * 2)];
+            System.arraycopy(data, 0, newData, 0, size);
+            data = newData;
+        }
+    }
+
+    public void write(int b)
+    {
+        ensureCapacity(1);
+        data[size++] = (byte) b;
+    }
+
+    public void write(byte[] b)
+    {
+        write(b, 0, b.length);
+    }
+
+    public void write(byte[] b, int off, int len)
+    {
+        ensureCapacity(len);
+        System.arraycopy(b, off, data, size, len);
+        size += len;
+    }
+
+    public void writeBoolean(boolean v)
+    {
+        write(v ? 1 : 0);
+    }
+
+    public void writeByte(int v)
+    {
+        write(v);
+    }
+
+    public void writeShort(int v)
+    {
+        ensureCapacity(2);
+        data[size++] = (byte) (v >>> 8);
+        data[size++] = (byte) v;
+    }
+
+    public void writeChar(int v)
+    {
+        writeShort(v);
+    }
+
+    public void writeInt(int v)
+    {
+        ensureCapacity(4);
+        data[size++] = (byte) (v >>> 24);
+        data[size++] = (byte) (v >>> 16);
+        data[size++] = (byte) (v >>> 8);
+        data[size++] = (byte) v;
+    }
+
+    public void writeLong(long v)
+    {
+        writeInt((int) (v >>> 32));
+        writeInt((int) v);
+    }
+
+    public void writeFloat(float v)
+    {
+        writeInt(Float.floatToIntBits(v));
+    }
+
+    public void writeDouble(double v)
+    {
+        writeLong(Double.doubleToLongBits(v));
+    }
+
+    public void writeBytes(String s)
+    {
+        int len = s.length();
+        ensureCapacity(len);
+        for (int i = 0; i < len; i++)
+        {
+            data[size++] = (byte) s.charAt(i);
+        }
+    }
+
+    public void writeChars(String s)
+    {
+        int len = s.length();
+        for (int i = 0; i < len; i++)
+        {
+            writeChar(s.charAt(i));
+        }
+    }
+
+    public void writeUTF(String s) throws IOException
+    {
+        // modified UTF-8, as written by DataOutputStream
+        int len = s.length();
+        int utflen = 0;
+        for (int i = 0; i < len; i++)
+        {
+            char c = s.charAt(i);
+            utflen += (c >= 0x0001 && c <= 0x007F) ? 1 : (c > 0x07FF ? 3 : 2);
+        }
+        if (utflen > 0xFFFF)
+        {
+            throw new UTFDataFormatException("encoded string too long: " + utflen + " bytes");
+        }
+        writeShort(utflen);
+        ensureCapacity(utflen);
+        for (int i = 0; i < len; i++)
+        {
+            char c = s.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F)
+            {
+                data[size++] = (byte) c;
+            }
+            else if (c > 0x07FF)
+            {
+                data[size++] = (byte) (0xE0 | ((c >> 12) & 0x0F));
+                data[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                data[size++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else
+            {
+                data[size++] = (byte) (0xC0 | ((c >> 6) & 0x1F));
+                data[size++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+}
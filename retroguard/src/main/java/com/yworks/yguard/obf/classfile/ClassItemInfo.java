@@ -230,6 +230,17 @@ abstract public class ClassItemInfo implements ClassConstants
         }
     }
 
+    /** Return the number of bytes written by {@link #write(DataOutput)}. */
+    protected int getSize()
+    {
+        int size = 8;
+        for (int i = 0; i < u2attributesCount; i++)
+        {
+            size += attributes[i].getSize();
+        }
+        return size;
+    }
+
   public ObfuscationConfig getObfuscationConfig() {
     if (obfuscationConfig == DUMMY){
       obfuscationConfig = getObfuscationConfig(attributes);
@@ -63,6 +63,10 @@ public class CodeAttrInfo extends AttrInfo
     /** Return the length in bytes of the attribute. */
     protected int getAttrInfoLength() 
     {
+        if (!isParsed())
+        {
+            return super.getAttrInfoLength();
+        }
         int length = CONSTANT_FIELD_SIZE + u4codeLength +
                         u2exceptionTableLength * ExceptionInfo.CONSTANT_FIELD_SIZE;
         for (int i = 0; i < u2attributesCount; i++)
@@ -78,12 +82,19 @@ public class CodeAttrInfo extends AttrInfo
         return ATTR_Code;
     }
 
+    /** The code is parsed only if the nested attributes are needed. */
+    protected boolean isLazy()
+    {
+        return true;
+    }
+
     /**
      * Trim attributes from the classfile ('Code', 'Exceptions', 'ConstantValue'
      * are preserved, all others except the list in the String[] are killed).
      */
     protected void trimAttrsExcept(String[] keepAttrs) 
     {
+        ensureParsed();
         // Traverse all attributes, removing all except those on 'keep' list
         for (int i = 0; i < attributes.length; i++)
         {
@@ -115,6 +126,7 @@ public class CodeAttrInfo extends AttrInfo
     /** Check for references in the 'info' data to the constant pool and mark them. */
     protected void markUtf8RefsInInfo(ConstantPool pool) 
     {
+        ensureParsed();
         for (int i = 0; i < attributes.length; i++)
         {
             attributes[i].markUtf8Refs(pool);
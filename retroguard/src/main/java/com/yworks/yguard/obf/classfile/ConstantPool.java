@@ -31,6 +31,12 @@ import java.util.*;
 /**
  * A representation of the data in a Java class-file's Constant Pool.
  * Constant Pool entries are managed by reference counting.
+ * <p>
+ * Utf8 entries are indexed by their encoded bytes, i.e. the index does not
+ * require decoding the entries, and Utf8 entries without
+ * references are kept in a free list, so adding a Utf8 entry does not
+ * require scanning the whole pool.
+ * </p>
  *
  * @author      Mark Welsh
  */
@@ -41,7 +47,13 @@ public class ConstantPool
 
     // Fields ----------------------------------------------------------------
     private ClassFile myClassFile;
-    private Vector pool;
+    private CpInfo[] pool;
+    private int size;
+    // Maps encoded strings to the (ascending) indices of the Utf8 entries that
+    // hold or held the string. Stale indices are dropped when they are encountered.
+    private Map utf8Index;
+    // Indices of Utf8 entries which have or had no references
+    private PriorityQueue freeUtf8;
 
 
     // Class Methods ---------------------------------------------------------
@@ -52,33 +64,56 @@ public class ConstantPool
     public ConstantPool(ClassFile classFile, CpInfo[] cpInfo) 
     {
         myClassFile = classFile;
-        int length = cpInfo.length;
-        pool = new Vector(length);
-        pool.setSize(length);
-        for (int i = 0; i < length; i++)
+        size = cpInfo.length;
+        pool = new CpInfo[Math.max(size + (size >> 2), 16)];
+        utf8Index = new HashMap(size);
+        freeUtf8 = new PriorityQueue();
+        for (int i = 0; i < size; i++)
         {
-            pool.setElementAt(cpInfo[i], i);
+            pool[i] = cpInfo[i];
+            if (cpInfo[i] instanceof Utf8CpInfo)
+            {
+                ((Utf8CpInfo)cpInfo[i]).setPool(this, i);
+                utf8Changed(i);
+            }
         }
     }
 
     /** Return an Enumeration of all Constant Pool entries. */
     public Enumeration elements()
     {
-        return pool.elements();
+        return new Enumeration()
+        {
+            private int next = 0;
+
+            public boolean hasMoreElements()
+            {
+                return next < size;
+            }
+
+            public Object nextElement()
+            {
+                if (next < size)
+                {
+                    return pool[next++];
+                }
+                throw new NoSuchElementException();
+            }
+        };
     }
 
     /** Return the Constant Pool length. */
     public int length()
     {
-        return pool.size();
+        return size;
     }
 
     /** Return the specified Constant Pool entry. */
     public CpInfo getCpEntry(int i) 
     {
-        if (i < pool.size())
+        if (i < size)
         {
-            return (CpInfo)pool.elementAt(i);
+            return pool[i];
         }
         throw new IndexOutOfBoundsException("Constant Pool index out of range.");
     }
@@ -101,12 +136,22 @@ public class ConstantPool
         walkPool(new PoolAction() {
             public void utf8Action(Utf8CpInfo cpInfo)  {if (cpInfo.getRefCount() == 0) cpInfo.clearString();}
         });
+
+        // Rebuild the free list, as the reference counts have been reset
+        freeUtf8.clear();
+        for (int i = 0; i < size; i++)
+        {
+            if (pool[i] instanceof Utf8CpInfo && pool[i].getRefCount() == 0)
+            {
+                freeUtf8.add(new Integer(i));
+            }
+        }
     }
 
     /** Increment the reference count for the specified element. */
     public void incRefCount(int i) 
     {
-        CpInfo cpInfo = (CpInfo)pool.elementAt(i);
+        CpInfo cpInfo = pool[i];
         if (cpInfo == null)
         {
             // This can happen for JDK1.2 code so remove - 981123
@@ -128,7 +173,7 @@ public class ConstantPool
     /** Decrement the reference count for the specified element, blanking if Utf and refs are zero. */
     public void decRefCount(int i) 
     {
-        CpInfo cpInfo = (CpInfo)pool.elementAt(i);
+        CpInfo cpInfo = pool[i];
         if (cpInfo == null)
         {
             // This can happen for JDK1.2 code so remove - 981123
@@ -143,48 +188,173 @@ public class ConstantPool
     /** Add an entry to the constant pool and return its index. */
     public int addEntry(CpInfo entry) 
     {
-        int oldLength = pool.size();
-        pool.setSize(oldLength + 1);
-        pool.setElementAt(entry, oldLength);
-        return oldLength;
+        if (size == pool.length)
+        {
+            CpInfo[] newPool = new CpInfo[size * 2];
+            System.arraycopy(pool, 0, newPool, 0, size);
+            pool = newPool;
+        }
+        int index = size++;
+        pool[index] = entry;
+        if (entry instanceof Utf8CpInfo)
+        {
+            ((Utf8CpInfo)entry).setPool(this, index);
+            utf8Changed(index);
+        }
+        return index;
+    }
+
+    /**
+     * Updates the index after the string or the reference count of the Utf8
+     * entry at the given index has changed.
+     */
+    void utf8Changed(int i)
+    {
+        Utf8CpInfo entry = (Utf8CpInfo)pool[i];
+        byte[] bytes = entry.getBytes();
+        if (bytes.length > 0)
+        {
+            Utf8Key key = new Utf8Key(bytes);
+            IndexList indices = (IndexList)utf8Index.get(key);
+            if (indices == null)
+            {
+                utf8Index.put(key, new IndexList(i));
+            }
+            else
+            {
+                indices.add(i);
+            }
+        }
+        if (entry.getRefCount() == 0)
+        {
+            freeUtf8.add(new Integer(i));
+        }
     }
 
     // Add a string to the constant pool and return its index
     private int addUtf8Entry(String s) 
     {
         // Search pool for the string. If found, just increment the reference count and return the index
-        for (int i = 0; i < pool.size(); i++)
+        int i = findUtf8Entry(s);
+        if (i > -1)
         {
-            Object o = pool.elementAt(i);
-            if (o instanceof Utf8CpInfo)
+            pool[i].incRefCount();
+            return i;
+        }
+
+        // No luck, so try to overwrite an old, blanked entry
+        while (!freeUtf8.isEmpty())
+        {
+            i = ((Integer)freeUtf8.poll()).intValue();
+            Utf8CpInfo entry = (Utf8CpInfo)pool[i];
+            if (entry.getRefCount() == 0)
             {
-                Utf8CpInfo entry = (Utf8CpInfo)o;
-                if (entry.getString().equals(s))
+                entry.setString(s);
+                entry.incRefCount();
+                return i;
+            }
+        }
+
+        // Still no luck, so append a fresh Utf8CpInfo entry to the pool
+        return addEntry(new Utf8CpInfo(s));
+    }
+
+    // Return the lowest index of a Utf8 entry holding the string, or -1
+    private int findUtf8Entry(String s)
+    {
+        if (s.length() == 0)
+        {
+            // blanked entries are not indexed
+            for (int i = 0; i < size; i++)
+            {
+                if (pool[i] instanceof Utf8CpInfo && ((Utf8CpInfo)pool[i]).getBytes().length == 0)
                 {
-                    entry.incRefCount();
                     return i;
                 }
             }
+            return -1;
         }
 
-        // No luck, so try to overwrite an old, blanked entry
-        for (int i = 0; i < pool.size(); i++)
+        Utf8Key key = new Utf8Key(Utf8CpInfo.encode(s));
+        IndexList indices = (IndexList)utf8Index.get(key);
+        if (indices != null)
         {
-            Object o = pool.elementAt(i);
-            if (o instanceof Utf8CpInfo)
+            while (indices.size > 0)
             {
-                Utf8CpInfo entry = (Utf8CpInfo)o;
-                if (entry.getRefCount() == 0)
+                int i = indices.values[0];
+                if (Arrays.equals(key.bytes, ((Utf8CpInfo)pool[i]).getBytes()))
                 {
-                    entry.setString(s);
-                    entry.incRefCount();
                     return i;
                 }
+                indices.removeFirst();
             }
+            utf8Index.remove(key);
         }
+        return -1;
+    }
 
-        // Still no luck, so append a fresh Utf8CpInfo entry to the pool
-        return addEntry(new Utf8CpInfo(s));
+    // Hash key for encoded strings
+    private static final class Utf8Key
+    {
+        final byte[] bytes;
+        final int hash;
+
+        Utf8Key(byte[] bytes)
+        {
+            this.bytes = bytes;
+            this.hash = Arrays.hashCode(bytes);
+        }
+
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        public boolean equals(Object o)
+        {
+            return o instanceof Utf8Key && Arrays.equals(bytes, ((Utf8Key)o).bytes);
+        }
+    }
+
+    // Ascending list of distinct indices
+    private static final class IndexList
+    {
+        int[] values;
+        int size;
+
+        IndexList(int i)
+        {
+            values = new int[]{i};
+            size = 1;
+        }
+
+        void add(int i)
+        {
+            int pos = size;
+            while (pos > 0 && values[pos - 1] > i)
+            {
+                pos--;
+            }
+            if (pos > 0 && values[pos - 1] == i)
+            {
+                return;
+            }
+            if (size == values.length)
+            {
+                int[] newValues = new int[size * 2];
+                System.arraycopy(values, 0, newValues, 0, size);
+                values = newValues;
+            }
+            System.arraycopy(values, pos, values, pos + 1, size - pos);
+            values[pos] = i;
+            size++;
+        }
+
+        void removeFirst()
+        {
+            size--;
+            System.arraycopy(values, 1, values, 0, size);
+        }
     }
 
     // Data walker
@@ -192,9 +362,9 @@ public class ConstantPool
                       public void defaultAction(CpInfo cpInfo)  {}}
     private void walkPool(PoolAction pa) 
     {
-        for (Enumeration enumeration = pool.elements(); enumeration.hasMoreElements(); )
+        for (int i = 0; i < size; i++)
         {
-            Object o = enumeration.nextElement();
+            Object o = pool[i];
             if (o instanceof Utf8CpInfo)
             {
                 pa.utf8Action((Utf8CpInfo)o);
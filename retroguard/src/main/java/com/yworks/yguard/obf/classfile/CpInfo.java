@@ -110,6 +110,26 @@ abstract public class CpInfo implements ClassConstants
     /** Write the 'info' data following the u1tag byte; over-ride this in sub-classes. */
     abstract protected void writeInfo(DataOutput dout) throws java.io.IOException;
 
+    /** Return the number of bytes written by {@link #write(DataOutput)}. */
+    protected int getSize()
+    {
+        switch (u1tag)
+        {
+        case CONSTANT_Long:
+        case CONSTANT_Double:               return 9;
+        case CONSTANT_Integer:
+        case CONSTANT_Float:
+        case CONSTANT_Fieldref:
+        case CONSTANT_Methodref:
+        case CONSTANT_InterfaceMethodref:
+        case CONSTANT_NameAndType:
+        case CONSTANT_Dynamic:
+        case CONSTANT_InvokeDynamic:        return 5;
+        case CONSTANT_MethodHandle:         return 4;
+        default:                            return 3;
+        }
+    }
+
     /** Return the reference count. */
     public int getRefCount() {return refCount;}
 
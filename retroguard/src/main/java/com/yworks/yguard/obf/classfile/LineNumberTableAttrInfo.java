@@ -57,12 +57,20 @@ public class LineNumberTableAttrInfo extends AttrInfo
     {
         return ATTR_LineNumberTable;
     }
+
+    /** The table is parsed only if it is mapped. */
+    protected boolean isLazy()
+    {
+        return true;
+    }
     
     public LineNumberInfo[] getLineNumberTable(){
+      ensureParsed();
       return lineNumberTable;
     }
     
     public void setLineNumberTable(LineNumberInfo[] table){
+      ensureParsed();
       this.lineNumberTable = table;
       this.u2lineNumberTableLength = this.lineNumberTable.length;
       this.u4attrLength = 2 + 4 * u2lineNumberTableLength;
@@ -26,6 +26,8 @@
 package com.yworks.yguard.obf.classfile;
 
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  *
@@ -34,6 +36,7 @@ import java.io.PrintStream;
 public class Logger
 {
   private static Logger instance;
+  private static final ThreadLocal recorders = new ThreadLocal();
   private PrintStream out;
   private PrintStream err;
 
@@ -44,7 +47,58 @@ public class Logger
   }
   
   public static Logger getInstance(){
-    return instance;
+    Logger recorder = (Logger) recorders.get();
+    return recorder != null ? recorder : instance;
+  }
+
+  /**
+   * Records the messages logged on the current thread instead of passing
+   * them on, until {@link #stopRecording()} is called.
+   * This is used by worker threads, so that their messages can be passed on
+   * in the same order regardless of the number of threads.
+   */
+  public static void startRecording(){
+    recorders.set(new Recorder());
+  }
+
+  /**
+   * Stops recording the messages logged on the current thread.
+   * @return the recorded messages, to be passed on by {@link #replay(Object)}.
+   */
+  public static Object stopRecording(){
+    Recorder recorder = (Recorder) recorders.get();
+    recorders.set(null);
+    return recorder != null ? recorder.messages : null;
+  }
+
+  /**
+   * Passes on messages recorded by {@link #stopRecording()} to the logger of
+   * the current thread.
+   */
+  public static void replay(Object messages){
+    if (messages != null){
+      Logger logger = getInstance();
+      List list = (List) messages;
+      for (int i = 0; i < list.size(); i += 2){
+        String message = (String) list.get(i + 1);
+        switch (((Integer) list.get(i)).intValue()){
+          case Recorder.ERROR:
+            logger.error(message);
+            break;
+          case Recorder.LOG:
+            logger.log(message);
+            break;
+          case Recorder.WARNING:
+            logger.warning(message);
+            break;
+          case Recorder.WARNING_TO_LOGFILE:
+            logger.warningToLogfile(message);
+            break;
+          default:
+            logger.setUnresolved();
+        }
+      }
+    }
   }
   
   /** Creates a new instance of Logger */
@@ -52,6 +106,12 @@ public class Logger
   {
     instance = this;
   }
+
+  private Logger(boolean register){
+    if (register){
+      instance = this;
+    }
+  }
   
   protected Logger(PrintStream out, PrintStream err){
     instance = this;
@@ -81,4 +141,48 @@ public class Logger
     return allResolved;
   }
 
+  private static final class Recorder extends Logger {
+    static final int ERROR = 0;
+    static final int LOG = 1;
+    static final int WARNING = 2;
+    static final int WARNING_TO_LOGFILE = 3;
+    static final int UNRESOLVED = 4;
+
+    // alternating message types and messages
+    final List messages = new ArrayList();
+
+    Recorder(){
+      super(false);
+    }
+
+    private void record(int type, String message){
+      messages.add(new Integer(type));
+      messages.add(message);
+    }
+
+    public void error(String message){
+      record(ERROR, message);
+    }
+
+    public void log(String message){
+      record(LOG, message);
+    }
+
+    public void warning(String message){
+      record(WARNING, message);
+    }
+
+    public void warningToLogfile(String message){
+      record(WARNING_TO_LOGFILE, message);
+    }
+
+    public void setUnresolved(){
+      super.setUnresolved();
+      record(UNRESOLVED, null);
+    }
+
+    public boolean isAllResolved(){
+      return super.isAllResolved() && instance.isAllResolved();
+    }
+  }
 }
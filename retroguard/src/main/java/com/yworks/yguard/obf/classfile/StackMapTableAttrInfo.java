@@ -32,15 +32,27 @@ public class StackMapTableAttrInfo extends AttrInfo
         return ATTR_StackMapTable;
     }
 
+    /** The frames are parsed only if they are accessed. */
+    protected boolean isLazy()
+    {
+        return true;
+    }
+
     /** Return the array of local variable table entries. */
     protected StackMapFrameInfo[] getEntries()
     {
+        ensureParsed();
         return entries;
     }
 
     /** Check for Utf8 references in the 'info' data to the constant pool and mark them. */
     protected void markUtf8RefsInInfo(ConstantPool pool)
     {
+        if (!isParsed())
+        {
+            // stack map frames refer to classes only, never to Utf8 entries
+            return;
+        }
         for (int i = 0; i < entries.length; i++)
         {
             entries[i].markUtf8Refs(pool);
@@ -30,6 +30,8 @@ import java.util.*;
 
 /**
  * Representation of a 'UTF8' entry in the ConstantPool.
+ * The encoded bytes are decoded only when the string is requested, and
+ * written back as they were read unless the string is changed.
  *
  * @author      Mark Welsh
  */
@@ -41,10 +43,22 @@ public class Utf8CpInfo extends CpInfo
     // Fields ----------------------------------------------------------------
     private int u2length;
     private byte[] bytes;
+    // Decoded lazily from bytes
     private String utf8string;
+    private ConstantPool pool;
+    private int poolIndex;
 
 
     // Class Methods ---------------------------------------------------------
+    /** Encode the string in the format of the 'info' data. */
+    static byte[] encode(String str)
+    {
+        try{
+          return str.getBytes("UTF8");
+        } catch (UnsupportedEncodingException uee){
+          throw new RuntimeException("Could not encode UTF8");
+        }
+    }
 
 
     // Instance Methods ------------------------------------------------------
@@ -61,6 +75,13 @@ public class Utf8CpInfo extends CpInfo
         refCount = 1;
     }
 
+    /** Register the constant pool that holds this entry at the given index. */
+    void setPool(ConstantPool pool, int index)
+    {
+        this.pool = pool;
+        this.poolIndex = index;
+    }
+
     /** Decrement the reference count, blanking the entry if no more references. */
     public void decRefCount() 
     {
@@ -71,6 +92,12 @@ public class Utf8CpInfo extends CpInfo
         }
     }
 
+    /** Return the encoded data, which must not be modified. */
+    byte[] getBytes()
+    {
+        return bytes;
+    }
+
     /** Return UTF8 data as a String. */
     public String getString() 
     {
@@ -89,12 +116,12 @@ public class Utf8CpInfo extends CpInfo
     public void setString(String str) 
     {
         utf8string = str;
-        try{
-          bytes = str.getBytes("UTF8");
-        } catch (UnsupportedEncodingException uee){
-          throw new RuntimeException("Could not encode UTF8");
-        }
+        bytes = encode(str);
         u2length = bytes.length;
+        if (pool != null)
+        {
+            pool.utf8Changed(poolIndex);
+        }
     }
 
     /** Set the UTF8 data to empty. */
@@ -102,8 +129,11 @@ public class Utf8CpInfo extends CpInfo
     {
         u2length = 0;
         bytes = new byte[0];
-        utf8string = null;
-        getString();
+        utf8string = "";
+        if (pool != null)
+        {
+            pool.utf8Changed(poolIndex);
+        }
     }
 
     /** Read the 'info' data following the u1tag byte. */
@@ -112,7 +142,12 @@ public class Utf8CpInfo extends CpInfo
         u2length = din.readUnsignedShort();
         bytes = new byte[u2length];
         din.readFully(bytes);
-        getString();
+    }
+
+    /** Return the number of bytes written by {@link #write(DataOutput)}. */
+    protected int getSize()
+    {
+        return 3 + u2length;
     }
 
     /** Write the 'info' data following the u1tag byte. */
@@ -0,0 +1,420 @@
+package com.yworks.util.graph;
+
+import java.util.Arrays;
+
+/**
+ * A directed multi graph whose nodes and edges are dense <code>int</code> ids.
+ * <p>
+ * Nodes are numbered <code>0 ... nodeCount() - 1</code> in creation order and keep their ids for the lifetime of
+ * the graph, so clients may store node data in arrays indexed by node id.
+ * Every edge carries an <code>int</code> label.
+ * <p>
+ * While edges are added, the incident edges of a node are kept in linked lists. {@link #compact()} turns the graph
+ * into compressed sparse row form, where the outgoing edges of each node occupy a contiguous id range and the
+ * ingoing edges are listed in one shared array. Compacting renumbers the edges; edge ids obtained before must not be
+ * used afterwards. Adding an edge to a compacted graph converts it back to linked lists.
+ * <p>
+ * Edges are iterated in the order in which they were created:
+ * <pre>
+ *   for (int e = graph.firstOutEdge(n); e != Graph.NONE; e = graph.nextOutEdge(e)) { ... }
+ * </pre>
+ */
+public class Graph {
+    /**
+     * The id returned instead of a node or an edge if there is none.
+     */
+    public static final int NONE = -1;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int nodeCount;
+    private int edgeCount;
+
+    // per edge
+    private int[] sources;
+    private int[] targets;
+    private int[] labels;
+
+    // per node
+    private int[] outDegrees;
+    private int[] inDegrees;
+
+    // linked list adjacency, null while the graph is compacted
+    private int[] firstOut;
+    private int[] lastOut;
+    private int[] firstIn;
+    private int[] lastIn;
+    private int[] nextOut;
+    private int[] nextIn;
+
+    // compressed sparse row adjacency, null unless the graph is compacted
+    private int[] outOffsets;
+    private int[] inOffsets;
+    private int[] inEdges;
+    private int[] inPositions;
+
+    /**
+     * Creates an empty graph.
+     */
+    public Graph() {
+        sources = new int[INITIAL_CAPACITY];
+        targets = new int[INITIAL_CAPACITY];
+        labels = new int[INITIAL_CAPACITY];
+        nextOut = new int[INITIAL_CAPACITY];
+        nextIn = new int[INITIAL_CAPACITY];
+
+        outDegrees = new int[INITIAL_CAPACITY];
+        inDegrees = new int[INITIAL_CAPACITY];
+        firstOut = new int[INITIAL_CAPACITY];
+        lastOut = new int[INITIAL_CAPACITY];
+        firstIn = new int[INITIAL_CAPACITY];
+        lastIn = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Returns the number of nodes in this graph.
+     * @return {int}
+     */
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the number of edges in this graph.
+     * @return {int}
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Creates a new node without any incident edges.
+     * @return {int} the id of the new node
+     */
+    public int createNode() {
+        if (nodeCount == outDegrees.length) {
+            final int capacity = Math.max(nodeCount * 2, INITIAL_CAPACITY);
+            outDegrees = Arrays.copyOf(outDegrees, capacity);
+            inDegrees = Arrays.copyOf(inDegrees, capacity);
+            if (isCompacted()) {
+                outOffsets = Arrays.copyOf(outOffsets, capacity + 1);
+                inOffsets = Arrays.copyOf(inOffsets, capacity + 1);
+            } else {
+                firstOut = Arrays.copyOf(firstOut, capacity);
+                lastOut = Arrays.copyOf(lastOut, capacity);
+                firstIn = Arrays.copyOf(firstIn, capacity);
+                lastIn = Arrays.copyOf(lastIn, capacity);
+            }
+        }
+        final int n = nodeCount++;
+        if (isCompacted()) {
+            outOffsets[n + 1] = edgeCount;
+            inOffsets[n + 1] = edgeCount;
+        } else {
+            firstOut[n] = NONE;
+            lastOut[n] = NONE;
+            firstIn[n] = NONE;
+            lastIn[n] = NONE;
+        }
+        return n;
+    }
+
+    /**
+     * Creates a new edge from <code>source</code> to <code>target</code>.
+     * @param source - the source node
+     * @param target - the target node
+     * @param label - the label of the new edge
+     * @return {int} the id of the new edge
+     */
+    public int createEdge(final int source, final int target, final int label) {
+        checkNode(source);
+        checkNode(target);
+        if (isCompacted()) {
+            expand();
+        }
+        if (edgeCount == sources.length) {
+            final int capacity = Math.max(edgeCount * 2, INITIAL_CAPACITY);
+            sources = Arrays.copyOf(sources, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            labels = Arrays.copyOf(labels, capacity);
+            nextOut = Arrays.copyOf(nextOut, capacity);
+            nextIn = Arrays.copyOf(nextIn, capacity);
+        }
+        final int e = edgeCount++;
+        sources[e] = source;
+        targets[e] = target;
+        labels[e] = label;
+        link(e);
+        outDegrees[source]++;
+        inDegrees[target]++;
+        return e;
+    }
+
+    /**
+     * Returns the source node of the given edge.
+     * @return {int}
+     */
+    public int source(final int edge) {
+        return sources[edge];
+    }
+
+    /**
+     * Returns the target node of the given edge.
+     * @return {int}
+     */
+    public int target(final int edge) {
+        return targets[edge];
+    }
+
+    /**
+     * Returns the label of the given edge.
+     * @return {int}
+     */
+    public int label(final int edge) {
+        return labels[edge];
+    }
+
+    /**
+     * Returns the end of the given edge that is not the given node.
+     * @return {int}
+     */
+    public int opposite(final int edge, final int node) {
+        return sources[edge] == node ? targets[edge] : sources[edge];
+    }
+
+    /**
+     * Returns the number of outgoing edges of the given node.
+     * @return {int}
+     */
+    public int outDegree(final int node) {
+        return outDegrees[node];
+    }
+
+    /**
+     * Returns the number of ingoing edges of the given node.
+     * @return {int}
+     */
+    public int inDegree(final int node) {
+        return inDegrees[node];
+    }
+
+    /**
+     * Returns the first outgoing edge of the given node, if any.
+     * @return {int|NONE}
+     */
+    public int firstOutEdge(final int node) {
+        if (isCompacted()) {
+            final int e = outOffsets[node];
+            return e < outOffsets[node + 1] ? e : NONE;
+        } else {
+            return firstOut[node];
+        }
+    }
+
+    /**
+     * Returns the outgoing edge of the source node that follows the given edge, if any.
+     * @return {int|NONE}
+     */
+    public int nextOutEdge(final int edge) {
+        if (isCompacted()) {
+            final int e = edge + 1;
+            return e < outOffsets[sources[edge] + 1] ? e : NONE;
+        } else {
+            return nextOut[edge];
+        }
+    }
+
+    /**
+     * Returns the first ingoing edge of the given node, if any.
+     * @return {int|NONE}
+     */
+    public int firstInEdge(final int node) {
+        if (isCompacted()) {
+            final int i = inOffsets[node];
+            return i < inOffsets[node + 1] ? inEdges[i] : NONE;
+        } else {
+            return firstIn[node];
+        }
+    }
+
+    /**
+     * Returns the ingoing edge of the target node that follows the given edge, if any.
+     * @return {int|NONE}
+     */
+    public int nextInEdge(final int edge) {
+        if (isCompacted()) {
+            final int i = inPositions[edge] + 1;
+            return i < inOffsets[targets[edge] + 1] ? inEdges[i] : NONE;
+        } else {
+            return nextIn[edge];
+        }
+    }
+
+    /**
+     * Determines whether there is an edge with the given label from <code>source</code> to <code>target</code>.
+     * Only the shorter of the two adjacency lists is searched.
+     * @return {boolean}
+     */
+    public boolean containsEdge(final int source, final int target, final int label) {
+        if (outDegrees[source] <= inDegrees[target]) {
+            for (int e = firstOutEdge(source); e != NONE; e = nextOutEdge(e)) {
+                if (targets[e] == target && labels[e] == label) {
+                    return true;
+                }
+            }
+        } else {
+            for (int e = firstInEdge(target); e != NONE; e = nextInEdge(e)) {
+                if (sources[e] == source && labels[e] == label) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines whether this graph is in compressed sparse row form.
+     * @return {boolean}
+     */
+    public boolean isCompacted() {
+        return outOffsets != null;
+    }
+
+    /**
+     * Converts this graph into compressed sparse row form and trims all arrays to size.
+     * The edges are renumbered such that the outgoing edges of every node have consecutive ids. The relative order
+     * of the outgoing as well as of the ingoing edges of each node is preserved.
+     */
+    public void compact() {
+        if (isCompacted()) {
+            return;
+        }
+
+        final int[] outOffsets = offsets(outDegrees);
+        final int[] inOffsets = offsets(inDegrees);
+
+        // number the edges by source, in list order
+        final int[] newIds = new int[edgeCount];
+        for (int n = 0, id = 0; n < nodeCount; n++) {
+            for (int e = firstOut[n]; e != NONE; e = nextOut[e]) {
+                newIds[e] = id++;
+            }
+        }
+
+        final int[] newSources = new int[edgeCount];
+        final int[] newTargets = new int[edgeCount];
+        final int[] newLabels = new int[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            final int id = newIds[e];
+            newSources[id] = sources[e];
+            newTargets[id] = targets[e];
+            newLabels[id] = labels[e];
+        }
+
+        final int[] inEdges = new int[edgeCount];
+        final int[] inPositions = new int[edgeCount];
+        for (int n = 0, i = 0; n < nodeCount; n++) {
+            for (int e = firstIn[n]; e != NONE; e = nextIn[e]) {
+                final int id = newIds[e];
+                inEdges[i] = id;
+                inPositions[id] = i++;
+            }
+        }
+
+        this.sources = newSources;
+        this.targets = newTargets;
+        this.labels = newLabels;
+        this.outDegrees = Arrays.copyOf(outDegrees, nodeCount);
+        this.inDegrees = Arrays.copyOf(inDegrees, nodeCount);
+        this.outOffsets = outOffsets;
+        this.inOffsets = inOffsets;
+        this.inEdges = inEdges;
+        this.inPositions = inPositions;
+
+        this.firstOut = null;
+        this.lastOut = null;
+        this.firstIn = null;
+        this.lastIn = null;
+        this.nextOut = null;
+        this.nextIn = null;
+    }
+
+    /**
+     * Converts a compacted graph back to linked list adjacency, keeping the current edge ids.
+     */
+    private void expand() {
+        final int nodeCapacity = Math.max(nodeCount, INITIAL_CAPACITY);
+        final int edgeCapacity = Math.max(edgeCount * 2, INITIAL_CAPACITY);
+
+        outDegrees = Arrays.copyOf(outDegrees, nodeCapacity);
+        inDegrees = Arrays.copyOf(inDegrees, nodeCapacity);
+        sources = Arrays.copyOf(sources, edgeCapacity);
+        targets = Arrays.copyOf(targets, edgeCapacity);
+        labels = Arrays.copyOf(labels, edgeCapacity);
+
+        firstOut = new int[nodeCapacity];
+        lastOut = new int[nodeCapacity];
+        firstIn = new int[nodeCapacity];
+        lastIn = new int[nodeCapacity];
+        Arrays.fill(firstOut, NONE);
+        Arrays.fill(lastOut, NONE);
+        Arrays.fill(firstIn, NONE);
+        Arrays.fill(lastIn, NONE);
+        nextOut = new int[edgeCapacity];
+        nextIn = new int[edgeCapacity];
+
+        // out lists follow edge ids, in lists follow the compacted in order
+        for (int e = 0; e < edgeCount; e++) {
+            appendOut(e);
+        }
+        for (int i = 0; i < edgeCount; i++) {
+            appendIn(inEdges[i]);
+        }
+
+        outOffsets = null;
+        inOffsets = null;
+        inEdges = null;
+        inPositions = null;
+    }
+
+    private void link(final int e) {
+        appendOut(e);
+        appendIn(e);
+    }
+
+    private void appendOut(final int e) {
+        final int source = sources[e];
+        nextOut[e] = NONE;
+        if (lastOut[source] == NONE) {
+            firstOut[source] = e;
+        } else {
+            nextOut[lastOut[source]] = e;
+        }
+        lastOut[source] = e;
+    }
+
+    private void appendIn(final int e) {
+        final int target = targets[e];
+        nextIn[e] = NONE;
+        if (lastIn[target] == NONE) {
+            firstIn[target] = e;
+        } else {
+            nextIn[lastIn[target]] = e;
+        }
+        lastIn[target] = e;
+    }
+
+    private int[] offsets(final int[] degrees) {
+        final int[] offsets = new int[nodeCount + 1];
+        for (int n = 0; n < nodeCount; n++) {
+            offsets[n + 1] = offsets[n] + degrees[n];
+        }
+        return offsets;
+    }
+
+    private void checkNode(final int node) {
+        if (node < 0 || node >= nodeCount) {
+            throw new IllegalArgumentException("No such node: " + node);
+        }
+    }
+}
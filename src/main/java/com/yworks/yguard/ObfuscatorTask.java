@@ -10,9 +10,11 @@ import com.yworks.util.ant.ZipScannerTool;
 import com.yworks.yguard.common.ant.*;
 import com.yworks.yguard.common.ant.AttributesSection;
 import com.yworks.yguard.common.ShrinkBag;
+import com.yworks.yguard.obf.BytecodeClassResolver;
 import com.yworks.yguard.obf.Cl;
 import com.yworks.yguard.obf.Cl.ClassResolver;
 import com.yworks.yguard.obf.ClassTree;
+import com.yworks.yguard.obf.ExtClassInfo;
 import com.yworks.yguard.obf.Filter;
 import com.yworks.yguard.obf.GuardDB;
 import com.yworks.yguard.obf.LineNumberTableMapper;
@@ -73,6 +75,8 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -641,7 +645,9 @@ public class ObfuscatorTask extends YGuardBaseTask
 
     ResourceCpResolver resolver = null;
     if (resourceClassPath != null){
-      resolver = new ResourceCpResolver(resourceClassPath, this);
+      File cacheDir = properties.containsKey("external-classes-cache") ?
+        getProject().resolveFile((String) properties.get("external-classes-cache")) : null;
+      resolver = new ResourceCpResolver(resourceClassPath, this, cacheDir);
       Cl.setClassResolver(resolver);
     }
 
@@ -800,6 +806,18 @@ public class ObfuscatorTask extends YGuardBaseTask
           }
         }
 
+        if (properties.containsKey("reuse-parsed-classes")) {
+          db.setReuseParsedClasses(
+                  "true".equalsIgnoreCase((String) properties.get("reuse-parsed-classes")));
+        }
+
+        if (properties.containsKey("naming-order")) {
+          db.setOrderNamesByReferences(
+                  "references".equalsIgnoreCase((String) properties.get("naming-order")));
+        }
+
+        db.setThreads(threads);
+
         if (annotationClass != null) db.setAnnotationClass(toNativeClass(annotationClass));
 
         db.setResourceHandler(new ResourceAdjuster(db));
@@ -1536,13 +1554,12 @@ public class ObfuscatorTask extends YGuardBaseTask
       Collections.shuffle(nameMakers);
     }
 
-    String generateName(int i)
+    void appendName(int i, NameBuffer name)
     {
       if (prefix != null){
-        return prefix + ((AbstractNameMaker)nameMakers.get(i % nameMakers.size())).generateName(i);
-      } else {
-        return ((AbstractNameMaker)nameMakers.get(i % nameMakers.size())).generateName(i);
+        name.append(prefix);
       }
+      ((AbstractNameMaker)nameMakers.get(i % nameMakers.size())).appendName(i, name);
     }
   }
 
@@ -1569,12 +1586,12 @@ public class ObfuscatorTask extends YGuardBaseTask
       if (firstChars != null && firstChars.length()<1) this.firstChars = null;
     }
 
-    String generateName(int i)
+    void appendName(int i, NameBuffer name)
     {
-      StringBuffer sb = new StringBuffer(20);
+      int start = name.length();
       int tmp = i;
       if (firstChars != null){
-        sb.append(firstChars.charAt(tmp % firstChars.length()));
+        name.append(firstChars.charAt(tmp % firstChars.length()));
         if (firstChars.length() > 1){
           tmp = tmp / firstChars.length();
         } else {
@@ -1582,7 +1599,7 @@ public class ObfuscatorTask extends YGuardBaseTask
         }
       }
       while (tmp > 0){
-        sb.append(chars.charAt(tmp % chars.length()));
+        name.append(chars.charAt(tmp % chars.length()));
         if (chars.length()>1){
           tmp = tmp / chars.length();
         } else {
@@ -1590,11 +1607,10 @@ public class ObfuscatorTask extends YGuardBaseTask
         }
       }
       if (chars.length()>1){
-        while (sb.length()< minLength){
-          sb.append(chars.charAt(0));
+        while (name.length() - start < minLength){
+          name.append(chars.charAt(0));
         }
       }
-      return sb.toString();
     }
   }
 
@@ -1622,20 +1638,18 @@ public class ObfuscatorTask extends YGuardBaseTask
       this.spacer = spacer;
     }
 
-    String generateName(int i)
+    void appendName(int i, NameBuffer name)
     {
-      StringBuffer sb = new StringBuffer(30);
       int tmp = i;
       int sc = 0;
       while (tmp > 0){
-        sb.append(keyWords[tmp % keyWords.length]);
+        name.append(keyWords[tmp % keyWords.length]);
         tmp = tmp / keyWords.length;
         if (tmp>0){
-          sb.append(spacer[sc % spacer.length]);
+          name.append(spacer[sc % spacer.length]);
           sc++;
         }
       }
-      return sb.toString();
     }
   }
 
@@ -1649,22 +1663,29 @@ public class ObfuscatorTask extends YGuardBaseTask
       this.delegate = delegate;
     }
 
-    String generateName(int i)
+    void appendName(int i, NameBuffer name)
     {
-      return prefix + delegate.generateName(i);
+      name.append(prefix);
+      delegate.appendName(i, name);
     }
 
   }
 
   static abstract class AbstractNameMaker implements NameMaker{
     Set reservedNames;
-    Map countMap = new HashMap();
+    // the next counter value by argument list, and by descriptor for all
+    // descriptors seen so far
+    Map argumentCounters = new HashMap();
+    Map descriptorCounters = new HashMap();
+    // the next counter value for names without descriptor
+    private final int[] dummyCounter = {1};
     String fillChars;
     int minLength;
-    private static final String DUMMY = "(com.dummy.Dummy)";
+    // the buffer the candidate names are generated in
+    private final NameBuffer name = new NameBuffer();
 
     protected boolean overloadEnabled = true;
-    private int counter = 1;
+    private final int[] counter = {1};
 
     public boolean isOverloadEnabled() {
       return overloadEnabled;
@@ -1692,41 +1713,38 @@ public class ObfuscatorTask extends YGuardBaseTask
     /** Return the next unique name for this namespace, differing only for identical arg-lists.  */
     public String nextName(String descriptor)
     {
-      if (descriptor == null){
-        descriptor = DUMMY;
-      }
-      int j;
-
-      if (overloadEnabled){
-        descriptor = descriptor.substring(0, descriptor.lastIndexOf(')'));
-        Integer i = (Integer) countMap.get(descriptor);
-        if (i == null){
-          i = new Integer(1);
-        }
-        j = i.intValue();
+      int[] count;
+      if (!overloadEnabled){
+        count = counter;
+      } else if (descriptor == null){
+        count = dummyCounter;
       } else {
-        j = counter;
+        count = (int[]) descriptorCounters.get(descriptor);
+        if (count == null){
+          String arguments = descriptor.substring(0, descriptor.lastIndexOf(')'));
+          count = (int[]) argumentCounters.get(arguments);
+          if (count == null){
+            count = new int[]{1};
+            argumentCounters.put(arguments, count);
+          }
+          descriptorCounters.put(descriptor, count);
+        }
       }
-      String result = null;
-      StringBuffer sb = new StringBuffer(minLength>10?minLength+20:20);
+      int j = count[0];
+      String result;
       do {
-        sb.setLength(0);
-        String name = generateName(j);
-        sb.append(name);
-        if (sb.length() < minLength){
-          while (sb.length()<minLength){
-            sb.append(fillChars);
+        name.setLength(0);
+        appendName(j, name);
+        if (name.length() < minLength){
+          while (name.length()<minLength){
+            name.append(fillChars);
           }
-          sb.setLength(minLength);
+          name.setLength(minLength);
         }
-        result = sb.toString();
+        result = name.toString();
         j++;
       } while (reservedNames.contains(result));
-      if (overloadEnabled) {
-        countMap.put(descriptor, new Integer(j));
-      } else {
-        counter = j;
-      }
+      count[0] = j;
 //      checkIdentifier(result);
       return result;
     }
@@ -1746,18 +1764,68 @@ public class ObfuscatorTask extends YGuardBaseTask
 //      }
 //    }
 
-    abstract String generateName(int i);
+    /** Append the name for the given counter value to the buffer. */
+    abstract void appendName(int i, NameBuffer name);
   }
 
-  static final class ResourceCpResolver implements ClassResolver {
+  /**
+   * A reusable character buffer the name makers append the parts of a
+   * candidate name to.
+   */
+  static final class NameBuffer {
+    private char[] chars = new char[32];
+    private int length;
+
+    int length(){
+      return length;
+    }
+
+    void setLength(int length){
+      ensureCapacity(length);
+      for (int i = this.length; i < length; i++){
+        chars[i] = 0;
+      }
+      this.length = length;
+    }
+
+    void append(char c){
+      ensureCapacity(length + 1);
+      chars[length++] = c;
+    }
+
+    void append(String s){
+      int n = s.length();
+      ensureCapacity(length + n);
+      s.getChars(0, n, chars, length);
+      length += n;
+    }
+
+    private void ensureCapacity(int capacity){
+      if (capacity > chars.length){
+        char[] newChars = new char[Math.max(capacity, chars.length * 2)];
+        System.arraycopy(chars, 0, newChars, 0, length);
+        chars = newChars;
+      }
+    }
+
+    public String toString(){
+      return new String(chars, 0, length);
+    }
+  }
+
+  static final class ResourceCpResolver implements ClassResolver, Cl.ClassInfoResolver {
     Path resource;
     URLClassLoader urlClassLoader;
+    // reads the class files of the resources instead of loading the classes
+    BytecodeClassResolver bytecodeResolver;
 
-    ResourceCpResolver(Path resources, Task target){
+    ResourceCpResolver(Path resources, Task target, File cacheDir){
       this.resource = resources;
       String[] list = resources.list();
       List listUrls = new ArrayList();
+      File[] files = new File[list.length];
       for (int i = 0; i <list.length; i++){
+        files[i] = new File(list[i]);
         try{
           URL url = new File(list[i]).toURL();
           listUrls.add(url);
@@ -1768,6 +1836,14 @@ public class ObfuscatorTask extends YGuardBaseTask
       URL[] urls = new URL[listUrls.size()];
       listUrls.toArray(urls);
       urlClassLoader = URLClassLoader.newInstance(urls, ClassLoader.getSystemClassLoader());
+      bytecodeResolver = cacheDir != null ?
+        new BytecodeClassResolver(ClassLoader.getSystemClassLoader(), files, cacheDir) :
+        new BytecodeClassResolver(urlClassLoader);
+    }
+
+    public ExtClassInfo resolveInfo(String className) throws ClassNotFoundException
+    {
+      return bytecodeResolver.resolveInfo(className);
     }
     public Class resolve(String className) throws ClassNotFoundException
     {
@@ -1805,7 +1881,8 @@ public class ObfuscatorTask extends YGuardBaseTask
     private long salt;
     private LineNumberScrambler last;
     private long lastSeed;
-    private Set classNames = new HashSet();
+    // sorted, so that the log does not depend on the order the classes are processed in
+    private Set classNames = new TreeSet();
     public MyLineNumberTableMapper(long salt){
       this.salt = salt;
       this.last = new LineNumberScrambler(3584, lastSeed);
@@ -1840,13 +1917,20 @@ public class ObfuscatorTask extends YGuardBaseTask
   }
 
   public static final class LineNumberSqueezer implements LineNumberTableMapper {
-    private List squeezedNumbers = new ArrayList();
+    // the squeezed methods per class, sorted by class name, so that the log
+    // does not depend on the order the classes are processed in
+    private Map squeezedNumbers = new TreeMap();
     public boolean mapLineNumberTable(String className, String methodName, String methodSignature, LineNumberTableAttrInfo lineNumberTable) {
       final LineNumberInfo[] table = lineNumberTable.getLineNumberTable();
       if (table.length > 0){
         final LineNumberInfo lineNumberInfo = new LineNumberInfo(table[0].getStartPC(), table[0].getLineNumber());
         lineNumberTable.setLineNumberTable(new LineNumberInfo[]{lineNumberInfo});
-        squeezedNumbers.add(new Object[]{className, methodName, methodSignature, lineNumberInfo});
+        List classNumbers = (List) squeezedNumbers.get(className);
+        if (classNumbers == null){
+          classNumbers = new ArrayList();
+          squeezedNumbers.put(className, classNumbers);
+        }
+        classNumbers.add(new Object[]{className, methodName, methodSignature, lineNumberInfo});
         return true;
       }
       return false;
@@ -1854,13 +1938,15 @@ public class ObfuscatorTask extends YGuardBaseTask
 
     public void logProperties(PrintWriter pw) {
       if (!squeezedNumbers.isEmpty()){
-        for (Iterator it = squeezedNumbers.iterator(); it.hasNext();){
-          Object[] ar = (Object[]) it.next();
-          String className = ar[0].toString();
-          String methodName = ar[1].toString();
-          String methodSignature = ar[2].toString();
-          int line = ((LineNumberInfo)ar[3]).getLineNumber();
-          pw.println("<property owner=\"" + ClassTree.toUtf8XmlString(Conversion.toJavaClass(className)) + "#" + ClassTree.toUtf8XmlString(Conversion.toJavaMethod(methodName, methodSignature)) + "\" name=\"squeezed-linenumber\" value=\"" + line + "\"/>");
+        for (Iterator classIt = squeezedNumbers.values().iterator(); classIt.hasNext();){
+          for (Iterator it = ((List) classIt.next()).iterator(); it.hasNext();){
+            Object[] ar = (Object[]) it.next();
+            String className = ar[0].toString();
+            String methodName = ar[1].toString();
+            String methodSignature = ar[2].toString();
+            int line = ((LineNumberInfo)ar[3]).getLineNumber();
+            pw.println("<property owner=\"" + ClassTree.toUtf8XmlString(Conversion.toJavaClass(className)) + "#" + ClassTree.toUtf8XmlString(Conversion.toJavaMethod(methodName, methodSignature)) + "\" name=\"squeezed-linenumber\" value=\"" + line + "\"/>");
+          }
         }
         squeezedNumbers.clear();
       }
@@ -46,6 +46,13 @@ public class YGuardTask extends YGuardBaseTask {
       }
     }
 
+    // threads
+    if ( threads > 1 ) {
+      for ( YGuardBaseTask subTask : subTasks ) {
+        subTask.setThreads( threads );
+      }
+    }
+
     // attributes
     if ( null != attributesSections ) {
       for ( YGuardBaseTask subTask : subTasks ) {
@@ -34,6 +34,7 @@ public abstract class YGuardBaseTask extends Task {
   protected Path resourceClassPath;
   protected List<AttributesSection> attributesSections;
   protected Map properties = new HashMap();
+  protected int threads = 1;
 
   public YGuardBaseTask() {
     mode = MODE_STANDALONE;
@@ -79,6 +80,13 @@ public abstract class YGuardBaseTask extends Task {
     this.resourceClassPath = path;
   }
 
+  public void setThreads( int threads ) {
+    if ( threads < 1 ) {
+      throw new BuildException( "Invalid number of threads: " + threads );
+    }
+    this.threads = threads;
+  }
+
   public abstract Exclude createKeep();
 
   public abstract void addAttributesSections( List<AttributesSection> attributesSections );
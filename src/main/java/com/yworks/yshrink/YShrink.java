@@ -37,6 +37,8 @@ public class YShrink {
 
   private String digests;
 
+  private int threads = 1;
+
   public YShrink() {
     this.createStubs = true;
   }
@@ -46,10 +48,19 @@ public class YShrink {
     this.digests = digests;
   }
 
+  /**
+   * Sets the number of threads used for parsing the class files of the input jars and for creating the dependency
+   * edges.
+   */
+  public void setThreads( final int threads ) {
+    this.threads = threads;
+  }
+
   public void doShrinkPairs( List<ShrinkBag> pairs, EntryPointFilter epf, ClassResolver resolver ) throws
       IOException {
 
     final Analyzer analyzer = new Analyzer();
+    analyzer.setThreads( threads );
 //    NavigationView nv = null;
 //    if ( showGraph ) {
 //      nv = new NavigationView();
@@ -1,5 +1,8 @@
 package com.yworks.yshrink.ant;
 
+import com.yworks.yguard.obf.BytecodeClassResolver;
+import com.yworks.yguard.obf.Cl;
+import com.yworks.yguard.obf.ExtClassInfo;
 import com.yworks.yshrink.core.ClassResolver;
 import com.yworks.yshrink.util.Logger;
 import org.apache.tools.ant.Project;
@@ -16,15 +19,28 @@ import java.util.List;
 /**
  * @author Sebastian Mueller, yWorks GmbH  (sebastian.mueller@yworks.com)
  */
-public class ResourceCpResolver implements ClassResolver {
+public class ResourceCpResolver implements ClassResolver, Cl.ClassInfoResolver {
   private Path resource;
   URLClassLoader urlClassLoader;
+  // reads the class files of the resources instead of loading the classes
+  BytecodeClassResolver bytecodeResolver;
 
   public ResourceCpResolver(final Path resources, final Task target) {
+    this( resources, target, null );
+  }
+
+  /**
+   * Creates a new resolver for the given resources.
+   * @param cacheDir the directory for the indices of the resource jars, or <code>null</code> for reading the class
+   * files of the jars on every run.
+   */
+  public ResourceCpResolver(final Path resources, final Task target, final File cacheDir) {
     this.resource = resources;
     final String[] list = resources.list();
     final List listUrls = new ArrayList();
+    final File[] files = new File[list.length];
     for ( int i = 0; i < list.length; i++ ) {
+      files[ i ] = new File( list[ i ] );
       try {
         final URL url = new File( list[ i ] ).toURL();
         listUrls.add( url );
@@ -36,6 +52,13 @@ public class ResourceCpResolver implements ClassResolver {
     final URL[] urls = new URL[listUrls.size()];
     listUrls.toArray( urls );
     urlClassLoader = URLClassLoader.newInstance( urls, ClassLoader.getSystemClassLoader() );
+    bytecodeResolver = cacheDir != null ?
+        new BytecodeClassResolver( ClassLoader.getSystemClassLoader(), files, cacheDir ) :
+        new BytecodeClassResolver( urlClassLoader );
+  }
+
+  public ExtClassInfo resolveInfo( final String className ) throws ClassNotFoundException {
+    return bytecodeResolver.resolveInfo( className );
   }
 
   public Class resolve( final String className ) throws ClassNotFoundException {
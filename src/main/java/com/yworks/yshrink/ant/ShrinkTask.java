@@ -192,7 +192,9 @@ public class ShrinkTask extends YGuardBaseTask {
     ResourceCpResolver resolver = null;
 
     if ( resourceClassPath != null ) {
-      resolver = new ResourceCpResolver( resourceClassPath, this );
+      final File cacheDir = properties.containsKey( "external-classes-cache" ) ?
+          getProject().resolveFile( (String) properties.get( "external-classes-cache" ) ) : null;
+      resolver = new ResourceCpResolver( resourceClassPath, this, cacheDir );
     }
 
     if (properties.containsKey("digests")) {
@@ -200,6 +202,7 @@ public class ShrinkTask extends YGuardBaseTask {
     }
 
     final YShrink yShrink = new YShrink( createStubs, digests );
+    yShrink.setThreads( threads );
 
     //epfs.addEntryPointFilter( new SerializationFilter( getProject() ) );
 
@@ -2,6 +2,7 @@ package com.yworks.yshrink.core;
 
 import com.yworks.yguard.common.ShrinkBag;
 import com.yworks.yshrink.model.ClassDescriptor;
+import com.yworks.yshrink.model.ClassRecord;
 import com.yworks.yshrink.model.EdgeType;
 import com.yworks.yshrink.model.FieldDescriptor;
 import com.yworks.yshrink.model.Invocation;
@@ -15,13 +16,20 @@ import com.yworks.yshrink.util.Logger;
 import com.yworks.yshrink.util.StreamProvider;
 import com.yworks.yshrink.util.Util;
 import org.objectweb.asm.*;
-import com.yworks.util.graph.Node;
+import com.yworks.util.graph.Graph;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Method;
+import java.io.InterruptedIOException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * @author Michael Schroeder, yWorks GmbH http://www.yworks.com
@@ -31,6 +39,20 @@ public class Analyzer {
   private static final String SYNTHETIC_DOT_CLASS_FIELD_START = "class$";
   private static final String CLASS_DESC = "Ljava/lang/Class;";
 
+  /**
+   * the model only needs the declarations and instructions of the classes.
+   */
+  private static final int PARSING_OPTIONS = ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+
+  private int threads = 1;
+
+  /**
+   * Sets the number of threads used for parsing class files and for collecting the dependency edges of methods.
+   */
+  public void setThreads( final int threads ) {
+    this.threads = threads;
+  }
+
 //  public Model analyze( Model model, final URL[] inFiles ) throws IOException {
 //    initModel( model, inFiles );
 //    createEdges( model );
@@ -45,6 +67,9 @@ public class Analyzer {
   /**
    * Create all nodes needed for dependency analysis using a <code>ModelVisitor</code>. Also creates artificial
    * &lt;clinit&gt; nodes for each (non-inner) class if not already present.
+   * <p>
+   * If more than one thread is used, the class files are parsed concurrently. The parsed classes are added to the
+   * model in the order of the jar entries nevertheless, so the model does not depend on the number of threads.
    *
    * @param model
    * @param bags
@@ -52,10 +77,16 @@ public class Analyzer {
    */
   public void initModel( Model model, List<ShrinkBag> bags ) throws IOException {
 
-    for ( ShrinkBag bag : bags ) {
-      ModelVisitor mv = new ModelVisitor( model, bag.getIn() );
-      Logger.log( "parsing " + bag.getIn() );
-      visitAllClasses( mv, bag.getIn().toURL() );
+    final ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool( threads ) : null;
+    try {
+      for ( ShrinkBag bag : bags ) {
+        Logger.log( "parsing " + bag.getIn() );
+        parseAllClasses( model, bag.getIn(), executor );
+      }
+    } finally {
+      if ( executor != null ) {
+        executor.shutdownNow();
+      }
     }
 
     for ( ClassDescriptor cd : model.getAllClassDescriptors() ) {
@@ -111,28 +142,91 @@ public class Analyzer {
 //  }
 
   /**
-   * Let <code>v</code> visit all classes contained in <code>jarFile</code>
+   * Parse all classes contained in <code>jarFile</code> and add them to <code>model</code>, in the order of the jar
+   * entries.
    *
-   * @param v
+   * @param model
    * @param jarFile
+   * @param executor the executor to parse the classes with, or <code>null</code> to parse them right away
    * @throws IOException
    */
-  private void visitAllClasses( final ClassVisitor v, final URL jarFile ) throws IOException {
+  private void parseAllClasses( final Model model, final File jarFile, final ExecutorService executor )
+      throws IOException {
+
+    final StreamProvider jarStreamProvider = new JarStreamProvider( jarFile.toURL() );
+    final LinkedList<Future<ClassRecord>> pending = new LinkedList<Future<ClassRecord>>();
+    final int maxPending = threads * 4;
 
-    final StreamProvider jarStreamProvider = new JarStreamProvider( jarFile );
     InputStream stream = jarStreamProvider.getNextClassEntryStream();
-    ClassReader cr;
     while ( stream != null ) {
-      cr = new ClassReader( stream );
-
-      // asm 3.1
-      cr.accept( v, 0 );
+      if ( executor == null ) {
+        model.addClassRecord( parseClass( new ClassReader( stream ), jarFile ) );
+      } else {
+        pending.add( executor.submit( new ClassParser( readFully( stream ), jarFile ) ) );
 
-      // asm 2.2.2
-      //cr.accept( v, false );
+        // don't let the parsed classes pile up
+        while ( pending.size() > maxPending ) {
+          model.addClassRecord( getClassRecord( pending.removeFirst() ) );
+        }
+      }
+      stream.close();
 
       stream = jarStreamProvider.getNextClassEntryStream();
     }
+    while ( !pending.isEmpty() ) {
+      model.addClassRecord( getClassRecord( pending.removeFirst() ) );
+    }
+  }
+
+  private static ClassRecord parseClass( final ClassReader cr, final File jarFile ) {
+    final ModelVisitor mv = new ModelVisitor( jarFile );
+    cr.accept( mv, PARSING_OPTIONS );
+    return mv.getClassRecord();
+  }
+
+  private static ClassRecord getClassRecord( final Future<ClassRecord> future ) throws IOException {
+    try {
+      return future.get();
+    } catch ( InterruptedException ie ) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Interrupted while parsing classes." );
+    } catch ( ExecutionException ee ) {
+      final Throwable cause = ee.getCause();
+      if ( cause instanceof RuntimeException ) {
+        throw (RuntimeException) cause;
+      } else if ( cause instanceof Error ) {
+        throw (Error) cause;
+      } else {
+        throw new IOException( cause );
+      }
+    }
+  }
+
+  private static byte[] readFully( final InputStream stream ) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream( 4096 );
+    final byte[] buffer = new byte[ 4096 ];
+    int n;
+    while ( ( n = stream.read( buffer ) ) > -1 ) {
+      bytes.write( buffer, 0, n );
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Parses a single class file on a worker thread.
+   */
+  private static final class ClassParser implements Callable<ClassRecord> {
+    private final byte[] classFile;
+    private final File jarFile;
+
+    ClassParser( final byte[] classFile, final File jarFile ) {
+      this.classFile = classFile;
+      this.jarFile = jarFile;
+    }
+
+    public ClassRecord call() {
+      return parseClass( new ClassReader( classFile ), jarFile );
+    }
   }
 
   /**
@@ -164,57 +258,187 @@ public class Analyzer {
 
   /**
    * Create all kinds of dependency edges for the whole <code>model</code>.
+   * <p>
+   * If more than one thread is used, the edges of the methods are collected concurrently first, since this only reads
+   * the model and the inheritance edges. All edges are inserted into the graph on the calling thread afterwards, in the
+   * same order as for a single thread, so the graph does not depend on the number of threads.
    *
    * @param model
    */
   public void createDependencyEdges( final Model model ) {
 
-    for ( ClassDescriptor cd : model.getAllClassDescriptors() ) {
-
-      createAnnotationEdges(cd, model);
+    final EdgeBuffer[] methodEdges = threads > 1 ? collectMethodEdges( model ) : null;
+    final EdgeBuffer edges = new EdgeBuffer();
+    int i = 0;
 
-      model.createDependencyEdge( cd.getNewNode(), cd.getNode(), EdgeType.MEMBER_OF );
-
-      createInnerClassEdges( model, cd );
-      createAssumeEdges( model, cd );
+    for ( ClassDescriptor cd : model.getAllClassDescriptors() ) {
 
-      for ( MethodDescriptor md : cd.getMethods() ) {
+      createAnnotationEdges(cd, model, edges);
 
-        createAnnotationEdges(md, model);
+      edges.add( cd.getNewNode(), cd.getNode(), EdgeType.MEMBER_OF );
 
-        model.createDependencyEdge( md, cd, EdgeType.MEMBER_OF );
+      createInnerClassEdges( model, cd, edges );
+      createAssumeEdges( model, cd, edges );
 
-        createReferenceEdges( model, md );
-        createMethodSignatureEdges( model, md );
-        createInvokeEdges( model, cd, md );
-        createTypeInstructionEdges( model, md );
+      if ( methodEdges != null ) {
+        edges.insertInto( model );
+        methodEdges[ i ].insertInto( model );
+        methodEdges[ i ] = null;
+      } else {
+        createMethodEdges( model, cd, edges );
       }
+      ++i;
+
       for ( FieldDescriptor fd : cd.getFields() ) {
-        createAnnotationEdges(fd, model);
-        model.createDependencyEdge( fd, cd, EdgeType.MEMBER_OF );
+        createAnnotationEdges(fd, model, edges);
+        edges.add( fd, cd, EdgeType.MEMBER_OF );
 
         // resolve edge for field type
         // not required for verification, but obfuscator will complain if the type is not found.
         String fieldTypeName = Util.getTypeNameFromDescriptor(fd.getDesc());
         if (model.isClassModeled(fieldTypeName)) {
           ClassDescriptor fieldType = model.getClassDescriptor(fieldTypeName);
-          model.createDependencyEdge(fd, fieldType, EdgeType.RESOLVE);
+          edges.add(fd, fieldType, EdgeType.RESOLVE);
         }
 
       }
+      edges.insertInto( model );
+    }
+  }
+
+  /**
+   * Collect the edges of the methods of all classes in <code>model</code> on <code>threads</code> threads. The graph
+   * must not be changed until all edges are collected.
+   *
+   * @param model
+   * @return the method edges of each class, in the order of <code>model.getAllClassDescriptors()</code>.
+   */
+  private EdgeBuffer[] collectMethodEdges( final Model model ) {
+
+    final Collection<ClassDescriptor> classes = model.getAllClassDescriptors();
+    final List<Future<EdgeBuffer>> pending = new ArrayList<Future<EdgeBuffer>>( classes.size() );
+    final EdgeBuffer[] methodEdges = new EdgeBuffer[ classes.size() ];
+
+    final ExecutorService executor = Executors.newFixedThreadPool( threads );
+    try {
+      for ( ClassDescriptor cd : classes ) {
+        pending.add( executor.submit( new MethodEdgeCollector( model, cd ) ) );
+      }
+      for ( int i = 0; i < methodEdges.length; i++ ) {
+        methodEdges[ i ] = getEdges( pending.get( i ) );
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return methodEdges;
+  }
+
+  private static EdgeBuffer getEdges( final Future<EdgeBuffer> future ) {
+    try {
+      return future.get();
+    } catch ( InterruptedException ie ) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException( "Interrupted while creating dependency edges." );
+    } catch ( ExecutionException ee ) {
+      final Throwable cause = ee.getCause();
+      if ( cause instanceof Error ) {
+        throw (Error) cause;
+      } else {
+        throw (RuntimeException) cause;
+      }
+    }
+  }
+
+  /**
+   * Create the edges of all methods of class <code>cd</code>. This only reads <code>model</code>.
+   *
+   * @param model
+   * @param cd
+   * @param edges
+   */
+  private void createMethodEdges( final Model model, final ClassDescriptor cd, final EdgeBuffer edges ) {
+
+    for ( MethodDescriptor md : cd.getMethods() ) {
+
+      createAnnotationEdges(md, model, edges);
+
+      edges.add( md, cd, EdgeType.MEMBER_OF );
+
+      createReferenceEdges( model, md, edges );
+      createMethodSignatureEdges( model, md, edges );
+      createInvokeEdges( model, cd, md, edges );
+      createTypeInstructionEdges( model, md, edges );
+    }
+  }
+
+  /**
+   * Collects the method edges of a single class on a worker thread.
+   */
+  private final class MethodEdgeCollector implements Callable<EdgeBuffer> {
+    private final Model model;
+    private final ClassDescriptor cd;
+
+    MethodEdgeCollector( final Model model, final ClassDescriptor cd ) {
+      this.model = model;
+      this.cd = cd;
+    }
+
+    public EdgeBuffer call() {
+      final EdgeBuffer edges = new EdgeBuffer();
+      createMethodEdges( model, cd, edges );
+      return edges;
+    }
+  }
+
+  /**
+   * Dependency edges that have not been inserted into the graph of a <code>Model</code> yet. Each edge is stored as
+   * source node, target node and the ordinal of its <code>EdgeType</code>.
+   */
+  private static final class EdgeBuffer {
+    private static final EdgeType[] EDGE_TYPES = EdgeType.values();
+
+    private int[] data = new int[ 48 ];
+    private int size;
+
+    /**
+     * Adds a dependency edge unless <code>source</code> and <code>target</code> are the same.
+     */
+    void add( final AbstractDescriptor source, final AbstractDescriptor target, final EdgeType type ) {
+      if ( !source.equals( target ) ) {
+        add( source.getNode(), target.getNode(), type );
+      }
+    }
+
+    void add( final int source, final int target, final EdgeType type ) {
+      if ( size + 3 > data.length ) {
+        data = Arrays.copyOf( data, data.length * 2 );
+      }
+      data[ size++ ] = source;
+      data[ size++ ] = target;
+      data[ size++ ] = type.ordinal();
+    }
+
+    /**
+     * Creates the buffered edges in <code>model</code> in the order they were added and empties this buffer.
+     */
+    void insertInto( final Model model ) {
+      for ( int i = 0; i < size; i += 3 ) {
+        model.createDependencyEdge( data[ i ], data[ i + 1 ], EDGE_TYPES[ data[ i + 2 ] ] );
+      }
+      size = 0;
     }
   }
 
-  private void createAnnotationEdges(AbstractDescriptor cd, Model model) {
+  private void createAnnotationEdges(AbstractDescriptor cd, Model model, final EdgeBuffer edges) {
     for (AnnotationUsage annotationUsage : cd.getAnnotations()) {
       if (model.isClassModeled(annotationUsage.getDescriptor())) {
         ClassDescriptor annotationClassDescriptor = model.getClassDescriptor(annotationUsage.getDescriptor());
-        model.createDependencyEdge(cd, annotationClassDescriptor, EdgeType.REFERENCES);
+        edges.add(cd, annotationClassDescriptor, EdgeType.REFERENCES);
 
         for (String field : annotationUsage.getFieldUsages()) {
           for (MethodDescriptor methodDescriptor : annotationClassDescriptor.getMethods()) {
             if (methodDescriptor.getName().equals(field)) {
-              model.createDependencyEdge(cd, methodDescriptor, EdgeType.RESOLVE);
+              edges.add(cd, methodDescriptor, EdgeType.RESOLVE);
               break;
             }
           }
@@ -231,7 +455,7 @@ public class Analyzer {
    * @param model
    * @param md
    */
-  private void createTypeInstructionEdges( final Model model, final MethodDescriptor md ) {
+  private void createTypeInstructionEdges( final Model model, final MethodDescriptor md, final EdgeBuffer edges ) {
     for ( AbstractMap.SimpleEntry<Object, Object> typeInstruction : md.getTypeInstructions() ) {
       final int opcode = (Integer) typeInstruction.getKey();
       final String desc = (String) typeInstruction.getValue();
@@ -247,13 +471,13 @@ public class Analyzer {
 
         if ( model.isClassModeled( type ) ) {
           ClassDescriptor cd = model.getClassDescriptor( type );
-          model.createDependencyEdge( md, cd, EdgeType.RESOLVE );
+          edges.add( md, cd, EdgeType.RESOLVE );
         }
       } else if ( opcode == Opcodes.NEW ) {
 
         if ( model.isClassModeled( type ) ) {
           ClassDescriptor targetClass = model.getClassDescriptor( type );
-          model.createDependencyEdge( md.getNode(), targetClass.getNewNode(), EdgeType.CREATES );
+          edges.add( md.getNode(), targetClass.getNewNode(), EdgeType.CREATES );
         }
       }
     }
@@ -308,43 +532,43 @@ public class Analyzer {
    * @param model
    * @param cd
    */
-  private void createAssumeEdges( final Model model, final ClassDescriptor cd ) {
+  private void createAssumeEdges( final Model model, final ClassDescriptor cd, final EdgeBuffer edges ) {
 
     if ( cd.isInterface() ) {
       return;
     }
 
-    Node newNode = cd.getNewNode();
+    int newNode = cd.getNewNode();
 
-    if ( newNode == null ) {
+    if ( newNode == Graph.NONE ) {
       Logger.err( "no NEW-Node found for " + cd.getName() );
       return;
     }
 
-    List<Method> externalMethods = new ArrayList<Method>( 5 );
+    List<String[]> externalMethods = new ArrayList<String[]>( 5 );
 
     boolean resolvable = model.getAllExternalAncestorMethods( cd.getName(), externalMethods );
 
     if ( resolvable ) {
-      for ( Method method : externalMethods ) {
-        String mName = method.getName();
-        String mDesc = Type.getMethodDescriptor( method );
+      for ( String[] method : externalMethods ) {
+        String mName = method[ 0 ];
+        String mDesc = method[ 1 ];
 
         if ( cd.implementsMethod( mName, mDesc ) ) {
 
-          model.createDependencyEdge( newNode, cd.getMethod( mName, mDesc ).getNode(), EdgeType.ASSUME );
+          edges.add( newNode, cd.getMethod( mName, mDesc ).getNode(), EdgeType.ASSUME );
         } else {
           if ( model.isClassModeled( cd.getSuperName() ) ) {
             ClassDescriptor superCd = model.getClassDescriptor( cd.getSuperName() );
 
-            createEdgeToImplementingMethod( superCd, mName, mDesc, model, newNode, EdgeType.ASSUME, false );
+            createEdgeToImplementingMethod( superCd, mName, mDesc, model, newNode, EdgeType.ASSUME, false, edges );
           }
         }
       }
     } else {  // assume all non-private methods are called.
       for ( MethodDescriptor md : cd.getMethods() ) {
         if ( ! md.isPrivate() ) {
-          model.createDependencyEdge( newNode, md.getNode(), EdgeType.ASSUME );
+          edges.add( newNode, md.getNode(), EdgeType.ASSUME );
         }
       }
     }
@@ -360,12 +584,12 @@ public class Analyzer {
       if ( !md.isStatic() || mName.equals( Model.CONSTRUCTOR_NAME ) ) {
 
         if ( cd.implementsMethod( mName, mDesc ) ) {
-          model.createDependencyEdge( newNode, cd.getMethod( mName, mDesc ).getNode(), EdgeType.ASSUME );
+          edges.add( newNode, cd.getMethod( mName, mDesc ).getNode(), EdgeType.ASSUME );
         } else {
           if ( model.isClassModeled( cd.getSuperName() ) ) {
             ClassDescriptor superCd = model.getClassDescriptor( cd.getSuperName() );
 
-            createEdgeToImplementingMethod( superCd, mName, mDesc, model, newNode, EdgeType.ASSUME, false );
+            createEdgeToImplementingMethod( superCd, mName, mDesc, model, newNode, EdgeType.ASSUME, false, edges );
           }
         }
       }
@@ -389,7 +613,8 @@ public class Analyzer {
    * @param cd
    * @param md
    */
-  private void createInvokeEdges( final Model model, final ClassDescriptor cd, final MethodDescriptor md ) {
+  private void createInvokeEdges( final Model model, final ClassDescriptor cd, final MethodDescriptor md,
+                                  final EdgeBuffer edges ) {
 
     for ( Invocation invocation : md.getInvocations() ) {
 
@@ -411,7 +636,7 @@ public class Analyzer {
 
             final MethodDescriptor initMethod = target.getMethod( targetMethod, targetDesc );
 
-            model.createDependencyEdge( md,
+            edges.add( md,
                 initMethod,
                 EdgeType.CHAIN );
           } else { // calls to super-methods
@@ -422,7 +647,7 @@ public class Analyzer {
             }
 
             if ( target.implementsMethod( targetMethod, targetDesc ) ) {
-              model.createDependencyEdge( md,
+              edges.add( md,
                   target.getMethod( targetMethod, targetDesc ),
                   EdgeType.SUPER );
             }
@@ -435,15 +660,15 @@ public class Analyzer {
 //            if ( temp != null ) {
 //              target = temp;
 //            }
-            createEdgeToDeclaration( model, target, targetMethod, targetDesc, md );
+            createEdgeToDeclaration( model, target, targetMethod, targetDesc, md, edges );
           }
 
           // RULE 1.1.1
-          createEdgesToAncestorMethods( model, target, md, targetMethod, targetDesc );
+          createEdgesToAncestorMethods( model, target, md, targetMethod, targetDesc, edges );
 
           if ( ! targetMethod.equals( Model.CONSTRUCTOR_NAME ) ) {
             // RULE 1.1.2
-            createSubtreeEdges( model, cd, target, md, targetMethod, targetDesc );
+            createSubtreeEdges( model, cd, target, md, targetMethod, targetDesc, edges );
           }
         }
       }
@@ -465,11 +690,11 @@ public class Analyzer {
    */
   private void createEdgeToDeclaration( final Model model, ClassDescriptor targetClass,
                                         final String targetMethod,
-                                        final String targetDesc, MethodDescriptor source ) {
+                                        final String targetDesc, MethodDescriptor source, final EdgeBuffer edges ) {
 
     if ( targetClass.implementsMethod( targetMethod, targetDesc )
         && ( targetClass.isAbstract() || targetClass.isInterface() ) ) {
-      model.createDependencyEdge( source, targetClass.getMethod( targetMethod, targetDesc ), EdgeType.RESOLVE );
+      edges.add( source, targetClass.getMethod( targetMethod, targetDesc ), EdgeType.RESOLVE );
       return;
     }
 
@@ -479,7 +704,7 @@ public class Analyzer {
       for ( String interfc : interfaces ) {
         if ( model.isClassModeled( interfc ) ) {
           ClassDescriptor interfaceDesc = model.getClassDescriptor( interfc );
-          createEdgeToDeclaration( model, interfaceDesc, targetMethod, targetDesc, source );
+          createEdgeToDeclaration( model, interfaceDesc, targetMethod, targetDesc, source, edges );
         }
       }
     }
@@ -488,7 +713,7 @@ public class Analyzer {
       String superName = targetClass.getSuperName();
       if ( model.isClassModeled( superName ) ) {
         ClassDescriptor superDesc = model.getClassDescriptor( superName );
-        createEdgeToDeclaration( model, superDesc, targetMethod, targetDesc, source );
+        createEdgeToDeclaration( model, superDesc, targetMethod, targetDesc, source, edges );
       }
     }
   }
@@ -510,7 +735,8 @@ public class Analyzer {
    * @param targetDesc
    */
   private void createEdgesToAncestorMethods( final Model model, ClassDescriptor owner, final MethodDescriptor md,
-                                             final String targetMethod, final String targetDesc ) {
+                                             final String targetMethod, final String targetDesc,
+                                             final EdgeBuffer edges ) {
 
     if ( owner.isInterface() ) {
 
@@ -518,20 +744,21 @@ public class Analyzer {
 
       if ( implementingClasses != null ) {
         for ( ClassDescriptor ownerImpl : implementingClasses ) {
-          createEdgesToAncestorMethods( model, ownerImpl, md, targetMethod, targetDesc );
-          createSubtreeEdges( model, owner, ownerImpl, md, targetMethod, targetDesc );
+          createEdgesToAncestorMethods( model, ownerImpl, md, targetMethod, targetDesc, edges );
+          createSubtreeEdges( model, owner, ownerImpl, md, targetMethod, targetDesc, edges );
         }
       }
     }
 
-    createEdgeToImplementingMethod( owner, targetMethod, targetDesc, model, md, EdgeType.INVOKES, true );
+    createEdgeToImplementingMethod( owner, targetMethod, targetDesc, model, md, EdgeType.INVOKES, true, edges );
   }
 
   private void createEdgeToImplementingMethod( ClassDescriptor owner, String targetMethod, String targetDesc,
                                                Model model, MethodDescriptor md,
-                                               EdgeType type, boolean createResolveEdge ) {
+                                               EdgeType type, boolean createResolveEdge, final EdgeBuffer edges ) {
 
-    createEdgeToImplementingMethod( owner, targetMethod, targetDesc, model, md.getNode(), type, createResolveEdge );
+    createEdgeToImplementingMethod( owner, targetMethod, targetDesc, model, md.getNode(), type, createResolveEdge,
+        edges );
   }
 
   /**
@@ -545,29 +772,30 @@ public class Analyzer {
    * @param node              the source node of the dependency.
    * @param type              the EdgeType to use for the dependency edge.
    * @param createResolveEdge wether to create an additional RESOLVE edge.
+   * @param edges             the buffer to add the dependency edges to.
    */
   private void createEdgeToImplementingMethod( ClassDescriptor owner, String targetMethod, String targetDesc,
-                                               Model model, Node node,
-                                               EdgeType type, boolean createResolveEdge ) {
+                                               Model model, int node,
+                                               EdgeType type, boolean createResolveEdge, final EdgeBuffer edges ) {
 
     while ( ! owner.implementsMethod( targetMethod, targetDesc ) &&
         model.isClassModeled( owner.getSuperName() ) ) {
-      model.createDependencyEdge( node, owner.getNode(), EdgeType.RESOLVE );
+      edges.add( node, owner.getNode(), EdgeType.RESOLVE );
       owner = model.getClassDescriptor( owner.getSuperName() );
     }
     if ( owner.implementsMethod( targetMethod, targetDesc ) ) {
 
       final MethodDescriptor targetMethodImp = owner.getMethod( targetMethod, targetDesc );
 
-      model.createDependencyEdge( node, targetMethodImp.getNode(), type );
+      edges.add( node, targetMethodImp.getNode(), type );
       // RESOLVE dependency needed since INVOKES-dependency edge might not be traversed if owner is not instantiated.
       if ( createResolveEdge ) {
-        model.createDependencyEdge( node, targetMethodImp.getNode(), EdgeType.RESOLVE );
+        edges.add( node, targetMethodImp.getNode(), EdgeType.RESOLVE );
       }
 
       // static methods: RESOLVE dependency to implementing class
       if ( targetMethodImp.isStatic() ) {
-        model.createDependencyEdge( node, owner.getNode(), EdgeType.RESOLVE );
+        edges.add( node, owner.getNode(), EdgeType.RESOLVE );
       }
     }
   }
@@ -584,7 +812,7 @@ public class Analyzer {
    */
   private void createSubtreeEdges( final Model model, final ClassDescriptor cd, final ClassDescriptor target,
                                    final MethodDescriptor mm,
-                                   final String targetMethod, final String targetDesc ) {
+                                   final String targetMethod, final String targetDesc, final EdgeBuffer edges ) {
 
     final List<ClassDescriptor> subClasses = new ArrayList<ClassDescriptor>();
     model.getInternalDescendants( target, subClasses );
@@ -592,7 +820,7 @@ public class Analyzer {
     for ( ClassDescriptor targetSubclass : subClasses ) {
       if ( targetSubclass != cd ) {
         if ( targetSubclass.implementsMethod( targetMethod, targetDesc ) ) {
-          model.createDependencyEdge( mm, targetSubclass.getMethod( targetMethod, targetDesc ), EdgeType.INVOKES );
+          edges.add( mm, targetSubclass.getMethod( targetMethod, targetDesc ), EdgeType.INVOKES );
         }
       }
     }
@@ -605,13 +833,13 @@ public class Analyzer {
    * @param model
    * @param source
    */
-  private void createMethodSignatureEdges( final Model model, final MethodDescriptor source ) {
+  private void createMethodSignatureEdges( final Model model, final MethodDescriptor source, final EdgeBuffer edges ) {
 
     // arguments
     for ( Type argumentType : source.getArgumentTypes() ) {
       final String className = Util.getTypeNameFromDescriptor( argumentType.getDescriptor() );
       if ( model.isClassModeled( className ) ) {
-        model.createDependencyEdge( source, model.getClassDescriptor( className ), EdgeType.RESOLVE );
+        edges.add( source, model.getClassDescriptor( className ), EdgeType.RESOLVE );
       }
     }
 
@@ -619,7 +847,7 @@ public class Analyzer {
     final Type returnType = source.getReturnType();
     final String className = Util.getTypeNameFromDescriptor( returnType.getDescriptor() );
     if ( model.isClassModeled( className ) ) {
-      model.createDependencyEdge( source, model.getClassDescriptor( className ), EdgeType.RESOLVE );
+      edges.add( source, model.getClassDescriptor( className ), EdgeType.RESOLVE );
     }
 
     // Exceptions
@@ -627,7 +855,7 @@ public class Analyzer {
       for ( String exception : source.getExceptions() ) {
         if ( model.isClassModeled( exception ) ) {
           final ClassDescriptor target = model.getClassDescriptor( exception );
-          model.createDependencyEdge( source, target, EdgeType.RESOLVE );
+          edges.add( source, target, EdgeType.RESOLVE );
         }
       }
     }
@@ -639,11 +867,11 @@ public class Analyzer {
    * @param model
    * @param cd
    */
-  private void createInnerClassEdges( final Model model, final ClassDescriptor cd ) {
+  private void createInnerClassEdges( final Model model, final ClassDescriptor cd, final EdgeBuffer edges ) {
 
     if ( cd.isInnerClass() ) {
       final ClassDescriptor enclosingClass = model.getClassDescriptor( cd.getEnclosingClass() );
-      model.createDependencyEdge( cd, enclosingClass, EdgeType.ENCLOSE );
+      edges.add( cd, enclosingClass, EdgeType.ENCLOSE );
     }
     if ( cd.getEnclosingMethod() != null ) {
       final ClassDescriptor enclosingClass = model.getClassDescriptor( cd.getEnclosingClass() );
@@ -651,7 +879,7 @@ public class Analyzer {
       if (null == enclosingMethodDescriptor) {
         Logger.log("Missing enclosing method declaration in "+enclosingClass.getName()+ ": "+cd.getEnclosingMethod().getValue());
       } else {
-        model.createDependencyEdge( cd, enclosingMethodDescriptor, EdgeType.ENCLOSE );
+        edges.add( cd, enclosingMethodDescriptor, EdgeType.ENCLOSE );
       }
     }
   }
@@ -664,7 +892,7 @@ public class Analyzer {
    * @param model
    * @param md
    */
-  private void createReferenceEdges( final Model model, final MethodDescriptor md ) {
+  private void createReferenceEdges( final Model model, final MethodDescriptor md, final EdgeBuffer edges ) {
 
     for ( String[] fieldRef : md.getFieldRefs() ) {
 
@@ -678,13 +906,13 @@ public class Analyzer {
 
         while ( model.isClassModeled( owner.getSuperName() ) && !declarationFound ) {
           if ( ! owner.declaresField( refName ) ) { // declared in interfaces?
-            model.createDependencyEdge( md, owner, EdgeType.RESOLVE );
+            edges.add( md, owner, EdgeType.RESOLVE );
 
             for ( String interfc : owner.getInterfaces() ) {
               if ( model.isClassModeled( interfc ) ) {
                 final ClassDescriptor interfcDesc = model.getClassDescriptor( interfc );
                 if ( interfcDesc.declaresField( refName ) ) {
-                  model.createDependencyEdge( md, interfcDesc.getField( refName ), EdgeType.REFERENCES );
+                  edges.add( md, interfcDesc.getField( refName ), EdgeType.REFERENCES );
                   declarationFound = true;
                 }
               }
@@ -697,14 +925,14 @@ public class Analyzer {
 
         if ( owner.declaresField( refName ) ) {
 
-          model.createDependencyEdge( md, owner.getField( refName ), EdgeType.REFERENCES );
-          checkLegacyDotClassField( refName, owner, model );
+          edges.add( md, owner.getField( refName ), EdgeType.REFERENCES );
+          checkLegacyDotClassField( refName, owner, model, edges );
         }
       }
     }
   }
 
-  private void checkLegacyDotClassField( String refName, ClassDescriptor owner, Model model ) {
+  private void checkLegacyDotClassField( String refName, ClassDescriptor owner, Model model, final EdgeBuffer edges ) {
 
     if ( refName.startsWith( SYNTHETIC_DOT_CLASS_FIELD_START ) ) {
       FieldDescriptor fd = owner.getField( refName );
@@ -716,7 +944,7 @@ public class Analyzer {
           String className = possibleClassName.toString();
           if ( model.isClassModeled( className ) ) {
             ClassDescriptor cd = model.getClassDescriptor( className );
-            model.createDependencyEdge( fd, cd, EdgeType.RESOLVE );
+            edges.add( fd, cd, EdgeType.RESOLVE );
           }
         }
       }
@@ -1,11 +1,8 @@
 package com.yworks.yshrink.core;
 
-import com.yworks.util.graph.Edge;
-import com.yworks.util.graph.Node;
-import com.google.common.graph.Network;
+import com.yworks.util.graph.Graph;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * Framework class for depth first search (DFS) based algorithms. To write graph algorithms that are based on a depth
@@ -16,7 +13,30 @@ import java.util.Map;
 
 public class Dfs {
 
-  private Map<Object, Object> edgeVisit;
+  // iterator states
+  private static final byte FIRST_EDGE = 0;
+  private static final byte OUT_EDGES_DIRECTED = 1;
+  private static final byte OUT_EDGES = 2;
+  private static final byte IN_EDGES = 3;
+
+  // stack frame layout
+  private static final int FRAME_NODE = 0;
+  private static final int FRAME_EDGE = 1;
+  private static final int FRAME_STATE = 2;
+  private static final int FRAME_DFS_NUM = 3;
+  private static final int FRAME_SIZE = 4;
+
+  private Graph graph;
+
+  private boolean[] edgeVisit;
+
+  /**
+   * The frames of the active path, <code>FRAME_SIZE</code> ints each. Kept between searches.
+   */
+  private int[] stack = new int[ 64 * FRAME_SIZE ];
+  private int top;
+
+  private byte iteratorState;
 
   private int dfsNum;
   private int compNum;
@@ -24,27 +44,28 @@ public class Dfs {
   private boolean directedMode;
 
   /**
-   * NodeMap that indicates the state of the nodes as they are visited by this algorithm. Possible states of a node are
-   * {@link #WHITE WHITE}, {@link #GRAY GRAY} and {@link #BLACK BLACK}.
+   * Node array that indicates the state of the nodes as they are visited by this algorithm. Possible states of a node
+   * are {@link #WHITE WHITE}, {@link #GRAY GRAY} and {@link #BLACK BLACK}. The array is reused by subsequent
+   * searches and may be longer than the number of nodes.
    */
-  protected Map<Object, Object> stateMap;
+  protected byte[] stateMap;
 
   /**
    * Node state specifier. Indicates that a node was not yet visited.
    */
-  protected static Object WHITE = null;
+  protected static final byte WHITE = 0;
 
   /**
    * Node state specifier. Indicates that a node was already visited but has not been completed yet, i.e. it is still
    * part of an active path of the dfs tree.
    */
-  protected static Object GRAY = new Object();
+  protected static final byte GRAY = 1;
 
   /**
    * Node state specifier. Indicates that the node has been completed, i.e. it has been visited before and is not part
    * of an active path in the dfs tree anymore.
    */
-  protected static Object BLACK = new Object();
+  protected static final byte BLACK = 2;
 
   /**
    * Instantiates a new Dfs object.
@@ -64,178 +85,195 @@ public class Dfs {
 
   /**
    * Starts a depth first search on the given graph. The given node will be visited first. If <code>start</code> is
-   * null, this method returns silently.
+   * <code>Graph.NONE</code>, this method returns silently.
+   * <p/>
+   * Once all nodes reachable from <code>start</code> have been completed, the search continues with the nodes returned
+   * by {@link #nextStart()}.
    */
-  public void start( final Network<Node, Edge> network, final Node start ) {
-    if ( null == start ) return;
+  public void start( final Graph graph, final int start ) {
+    if ( Graph.NONE == start ) return;
 
-    stateMap = new HashMap<>();
+    this.graph = graph;
+    stateMap = clear( stateMap, graph.nodeCount() );
     if ( !directedMode ) {
-      edgeVisit = new HashMap<>();
+      edgeVisit = clear( edgeVisit, graph.edgeCount() );
     }
 
     dfsNum = 0;
     compNum = 0;
-
-    final int stackSize = Math.min( 60, network.nodes().size() + 3 );
-    Stack stack = new Stack( stackSize );
+    top = -FRAME_SIZE;
 
     try {
-      workStack( stack, start );
-//      for ( NodeCursor nodeCursor = starts.nodes(); nodeCursor.ok(); nodeCursor.next() ) {
-//        Node node = nodeCursor.node();
-//        if ( stateMap.get( node ) != BLACK ) {
-//
-//        }
-//      }
+      int node = start;
+      do {
+        if ( stateMap[ node ] == WHITE ) {
+          workStack( node );
+        }
+        node = nextStart();
+      } while ( node != Graph.NONE );
     } finally {
-      stateMap.clear();
-      if ( !directedMode ) {
-        edgeVisit.clear();
-      }
+      this.graph = null;
     }
   }
 
-  private Edge nextEdge( final Node currentNode, final Edge currentEdge, final byte[] currentMode ) {
+  private static byte[] clear( final byte[] array, final int size ) {
+    if ( array == null || array.length < size ) {
+      return new byte[ size ];
+    }
+    Arrays.fill( array, 0, size, WHITE );
+    return array;
+  }
 
-    switch ( currentMode[ 0 ] ) {
+  private static boolean[] clear( final boolean[] array, final int size ) {
+    if ( array == null || array.length < size ) {
+      return new boolean[ size ];
+    }
+    Arrays.fill( array, 0, size, false );
+    return array;
+  }
+
+  private int nextEdge( final int currentNode, final int currentEdge ) {
 
-      case 0:
+    switch ( iteratorState ) {
+
+      case FIRST_EDGE:
         if ( directedMode ) {
-          currentMode[ 0 ] = 1;
+          iteratorState = OUT_EDGES_DIRECTED;
 
-          // return null to force finish
-          return currentNode.firstOutEdge();
+          // return NONE to force finish
+          return graph.firstOutEdge( currentNode );
         } else {
-          Edge edge = currentNode.firstOutEdge();
-          if ( edge == null ) {
-            edge = currentNode.firstInEdge();
-            currentMode[ 0 ] = 3;
+          int edge = graph.firstOutEdge( currentNode );
+          if ( edge == Graph.NONE ) {
+            edge = graph.firstInEdge( currentNode );
+            iteratorState = IN_EDGES;
           } else {
-            currentMode[ 0 ] = 2;
+            iteratorState = OUT_EDGES;
           }
           return edge;
         }
-      case 1:
-        // return null to force finish
-        return currentEdge.nextOutEdge();
-      case 2: {
-        Edge edge = currentEdge.nextOutEdge();
-        if ( edge == null ) {
-          edge = currentNode.firstInEdge();
-          currentMode[ 0 ] = 3;
+      case OUT_EDGES_DIRECTED:
+        // return NONE to force finish
+        return graph.nextOutEdge( currentEdge );
+      case OUT_EDGES: {
+        int edge = graph.nextOutEdge( currentEdge );
+        if ( edge == Graph.NONE ) {
+          edge = graph.firstInEdge( currentNode );
+          iteratorState = IN_EDGES;
         }
         return edge;
       }
-      case 3:
-        return currentEdge.nextInEdge();
+      case IN_EDGES:
+        return graph.nextInEdge( currentEdge );
       default:
         throw new InternalError();
     }
   }
 
-  private Edge doNextEdge( final Node currentNode, final Edge currentEdge, final byte[] currentMode ) {
+  private int doNextEdge( final int currentNode, final int currentEdge ) {
 
-    Edge edge = nextEdge( currentNode, currentEdge, currentMode );
+    int edge = nextEdge( currentNode, currentEdge );
 
-    while ( edge != null && !doTraverse( edge ) ) {
-      edge = nextEdge( currentNode, edge, currentMode );
+    while ( edge != Graph.NONE && !doTraverse( edge ) ) {
+      edge = nextEdge( currentNode, edge );
     }
 
     return edge;
   }
 
-  private byte[] nextState = new byte[1];
-
-  private void workStack( final Stack stack, final Node start ) {
-    nextState[ 0 ] = 0;
-    Node currentNode = start;
-    stateMap.put( currentNode, GRAY);
+  private void workStack( final int start ) {
+    int currentNode = start;
+    stateMap[ currentNode ] = GRAY;
     preVisit( currentNode, ++dfsNum );
 
-    {
-      final Edge nextEdge = doNextEdge( currentNode, null, nextState );
-      stack.pushState( currentNode, nextEdge, nextState[ 0 ], dfsNum );
-    }
+    iteratorState = FIRST_EDGE;
+    push( currentNode, doNextEdge( currentNode, Graph.NONE ), dfsNum );
 
-    while ( !stack.isEmpty() ) {
+    while ( top >= 0 ) {
 
-      Edge edge = stack.peekCurrentEdge();
-      nextState[ 0 ] = stack.peekIteratorState();
+      int edge = stack[ top + FRAME_EDGE ];
+      iteratorState = (byte) stack[ top + FRAME_STATE ];
 
-      while ( edge != null ) {
+      while ( edge != Graph.NONE ) {
 
-        if ( directedMode || !(boolean)edgeVisit.get( edge ) ) {
-          final Node other;
+        if ( directedMode || !edgeVisit[ edge ] ) {
+          final int other;
           if ( !directedMode ) {
-            edgeVisit.put( edge, true );
-            other = edge.opposite( currentNode );
+            edgeVisit[ edge ] = true;
+            other = graph.opposite( edge, currentNode );
           } else {
-            other = edge.target();
+            other = graph.target( edge );
           }
-          if ( stateMap.get( other ) == null ) {
+          if ( stateMap[ other ] == WHITE ) {
 
             // !
             preTraverse( edge, other, true );
 
-            stateMap.put( other, GRAY );
+            stateMap[ other ] = GRAY;
             currentNode = other;
             preVisit( currentNode, ++dfsNum );
-            {
-              nextState[ 0 ] = 0;
-              edge = doNextEdge( currentNode, null, nextState );
 
-              stack.pushState( currentNode, edge, nextState[ 0 ], dfsNum );
-            }
+            iteratorState = FIRST_EDGE;
+            edge = doNextEdge( currentNode, Graph.NONE );
+            push( currentNode, edge, dfsNum );
           } else {
 
             // !
             preTraverse( edge, other, false );
-            {
-              edge = doNextEdge( currentNode, edge, nextState );
 
-              stack.updateTop( edge, nextState[ 0 ] );
-            }
+            edge = doNextEdge( currentNode, edge );
+            updateTop( edge );
           }
         } else {
 
           // !
-          edge = doNextEdge( currentNode, edge, nextState );
-
-          stack.updateTop( edge, nextState[ 0 ] );
+          edge = doNextEdge( currentNode, edge );
+          updateTop( edge );
         }
       }
-      postVisit( currentNode, stack.peekLocalDfsNum(), ++compNum );
-      stateMap.put( currentNode, BLACK );
-      stack.pop();
-      if ( !stack.isEmpty() ) {
-        final Edge currentEdge = stack.peekCurrentEdge();
+      postVisit( currentNode, stack[ top + FRAME_DFS_NUM ], ++compNum );
+      stateMap[ currentNode ] = BLACK;
+      top -= FRAME_SIZE;
+      if ( top >= 0 ) {
+        final int currentEdge = stack[ top + FRAME_EDGE ];
         postTraverse( currentEdge, currentNode );
-        currentNode = stack.peekNode();
-        nextState[ 0 ] = stack.peekIteratorState();
-        {
-          final Edge nextEdge = doNextEdge( currentNode, currentEdge, nextState );
-
-          stack.updateTop( nextEdge, nextState[ 0 ] );
-        }
+        currentNode = stack[ top + FRAME_NODE ];
+        iteratorState = (byte) stack[ top + FRAME_STATE ];
+        updateTop( doNextEdge( currentNode, currentEdge ) );
       }
     }
   }
 
+  private void push( final int node, final int currentEdge, final int localDfsNum ) {
+    top += FRAME_SIZE;
+    if ( top == stack.length ) {
+      stack = Arrays.copyOf( stack, stack.length * 2 );
+    }
+    stack[ top + FRAME_NODE ] = node;
+    stack[ top + FRAME_EDGE ] = currentEdge;
+    stack[ top + FRAME_STATE ] = iteratorState;
+    stack[ top + FRAME_DFS_NUM ] = localDfsNum;
+  }
+
+  private void updateTop( final int currentEdge ) {
+    stack[ top + FRAME_EDGE ] = currentEdge;
+    stack[ top + FRAME_STATE ] = iteratorState;
+  }
+
   /**
    * Callback method that will be invoked whenever a formerly unvisited node gets visited the first time. The given int
    * is the dfsnumber of that node.
    * <p/>
    * By default this method does nothing
    */
-  protected void preVisit( final Node node, final int dfsNumber ) {
+  protected void preVisit( final int node, final int dfsNumber ) {
   }
 
   /**
    * Callback method that will be invoked whenever a node visit has been completed. The dfs number and the completion
    * number of the given node will be passed in. By default this method does nothing
    */
-  protected void postVisit( final Node node, final int dfsNumber, final int compNumber ) {
+  protected void postVisit( final int node, final int dfsNumber, final int compNumber ) {
   }
 
   /**
@@ -244,7 +282,7 @@ public class Dfs {
    * The given node is the node that will be visited next iff <CODE>treeEdge == true</CODE>. By default this method does
    * nothing
    */
-  protected boolean preTraverse( final Edge edge, final Node node, final boolean treeEdge ) {
+  protected boolean preTraverse( final int edge, final int node, final boolean treeEdge ) {
     return true;
   }
 
@@ -252,78 +290,21 @@ public class Dfs {
    * Callback method that will be invoked after the search returns from the given node. The node has been reached via
    * the given edge. By default this method does nothing.
    */
-  protected void postTraverse( final Edge edge, final Node node ) {
+  protected void postTraverse( final int edge, final int node ) {
   }
 
-  protected boolean doTraverse( final Edge e ) {
+  protected boolean doTraverse( final int e ) {
     return true;
   }
 
-  static class Stack {
-    int stackIndex = -1;
-    byte[] iteratorStates;
-    Edge[] currentEdges;
-    int[] localDfsNums;
-    Node[] nodes;
-
-    Stack( final int initialSize ) {
-      localDfsNums = new int[initialSize];
-      currentEdges = new Edge[initialSize];
-      iteratorStates = new byte[initialSize];
-      nodes = new Node[initialSize];
-    }
-
-    boolean isEmpty() {
-      return stackIndex < 0;
-    }
-
-    void pop() {
-      stackIndex--;
-    }
-
-    Node peekNode() {
-      return nodes[ stackIndex ];
-    }
-
-    Edge peekCurrentEdge() {
-      return currentEdges[ stackIndex ];
-    }
-
-    byte peekIteratorState() {
-      return iteratorStates[ stackIndex ];
-    }
-
-    int peekLocalDfsNum() {
-      return localDfsNums[ stackIndex ];
-    }
-
-    int pushState( final Node node, final Edge currentEdge, final byte iterastorState, final int localDfsNum ) {
-      stackIndex++;
-      if ( stackIndex == nodes.length ) {
-        final int newSize = ( stackIndex + 1 ) * 2;
-        final Node[] newStack = new Node[newSize];
-        System.arraycopy( nodes, 0, newStack, 0, nodes.length );
-        this.nodes = newStack;
-        final Edge[] newEStack = new Edge[newSize];
-        System.arraycopy( currentEdges, 0, newEStack, 0, currentEdges.length );
-        this.currentEdges = newEStack;
-        final int[] newDStack = new int[newSize];
-        System.arraycopy( localDfsNums, 0, newDStack, 0, localDfsNums.length );
-        this.localDfsNums = newDStack;
-        final byte[] newStateStack = new byte[newSize];
-        System.arraycopy( iteratorStates, 0, newStateStack, 0, iteratorStates.length );
-        this.iteratorStates = newStateStack;
-      }
-      this.nodes[ stackIndex ] = node;
-      this.currentEdges[ stackIndex ] = currentEdge;
-      this.iteratorStates[ stackIndex ] = iterastorState;
-      return this.localDfsNums[ stackIndex ] = localDfsNum;
-    }
-
-    void updateTop( final Edge currentEdge, final byte iteratorState ) {
-      this.currentEdges[ stackIndex ] = currentEdge;
-      this.iteratorStates[ stackIndex ] = iteratorState;
-    }
+  /**
+   * Callback method that will be invoked whenever the search has completed all nodes reachable from the previous start
+   * node. If the returned node has not been visited yet, the search continues from there and keeps the states of all
+   * nodes visited so far. Returning <code>Graph.NONE</code> ends the search.
+   * <p/>
+   * By default this method returns <code>Graph.NONE</code>
+   */
+  protected int nextStart() {
+    return Graph.NONE;
   }
 }
-
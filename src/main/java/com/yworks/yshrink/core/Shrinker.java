@@ -1,19 +1,16 @@
 package com.yworks.yshrink.core;
 
-import com.google.common.graph.Network;
 import com.yworks.yshrink.model.AbstractDescriptor;
 import com.yworks.yshrink.model.ClassDescriptor;
 import com.yworks.yshrink.model.EdgeType;
 import com.yworks.yshrink.model.MethodDescriptor;
 import com.yworks.yshrink.model.Model;
 import com.yworks.yshrink.model.NodeType;
-import com.yworks.util.graph.Node;
-import com.yworks.util.graph.Edge;
+import com.yworks.util.graph.Graph;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.HashMap;
 
 /**
  * @author Michael Schroeder, yWorks GmbH http://www.yworks.com
@@ -25,104 +22,89 @@ public class Shrinker {
   public void shrink( final Model model ) {
     //this.model = model;
 
+    // no more edges are added from here on
+    model.getGraph().compact();
+
     final ShrinkDfs shrinkDfs = new ShrinkDfs( model );
     shrinkDfs.setDirectedMode( true );
 
     // initially mark all nodes OBSOLETE
-    for ( final Object o: model.getNetwork().nodes() ) {
-      Node node = (Node) o;
+    for ( int node = 0, n = model.getGraph().nodeCount(); node < n; node++ ) {
       model.markObsolete( node );
     }
 
-    shrinkDfs.init( model.getEntryPointNode() );
-
-    int numInstantiated = -1;
-    while ( shrinkDfs.numInstantiated > numInstantiated ) {
-      numInstantiated = shrinkDfs.numInstantiated;
-      shrinkDfs.nextRound();
-    }
-
     shrinkDfs.markReachableNodes();
   }
 
+  /**
+   * Marks all nodes reachable from the entrypoint node in a single search. Virtual calls to methods of classes that
+   * have not been instantiated yet are parked at the class and at all of its descendants that inherit the method.
+   * As soon as the NEW node of one of these classes is reached, the parked targets are searched, too.
+   */
   private class ShrinkDfs extends Dfs {
 
     private Model model;
-    private Network<Node, Edge> network;
-    private Node entryPointNode;
-    private Map<Object, Object> instanceMap;
-    private int numInstantiated = 0;
-    private int round = 0;
-    private int numSkipped = 0;
+    private Graph graph;
 
-    private static final int EXPLORE_MODE = 0;
-    private static final int RESULT_MODE = 1;
+    private boolean[] instantiated;
 
-    private int mode = EXPLORE_MODE;
+    // parked edges as linked lists per class node
+    private int[] firstParked;
+    private int[] parkedEdges;
+    private int[] nextParked;
+    private int numParked;
+
+    // targets of released edges
+    private int[] pending;
+    private int numPending;
 
     ShrinkDfs( final Model model ) {
       this.model = model;
-      this.network = model.getNetwork();
-    }
-
-    public void init( final Node entryPointNode ) {
-
-      this.entryPointNode = entryPointNode;
-
-      round = 0;
-      if ( instanceMap == null ) {
-        this.instanceMap = new HashMap<>();
-      }
-      for ( final Object n: network.nodes() ) {
-        instanceMap.put( n, -1 );
-      }
+      this.graph = model.getGraph();
     }
 
-    protected int nextRound() {
-      round++;
-      numSkipped = 0;
-      numInstantiated = 0;
-      super.start( network, entryPointNode );
-      return numInstantiated;
+    protected void markReachableNodes() {
+      final int nodeCount = graph.nodeCount();
+      instantiated = new boolean[ nodeCount ];
+      firstParked = new int[ nodeCount ];
+      Arrays.fill( firstParked, Graph.NONE );
+      parkedEdges = new int[ 64 ];
+      nextParked = new int[ 64 ];
+      numParked = 0;
+      pending = new int[ 64 ];
+      numPending = 0;
+
+      super.start( graph, model.getEntryPointNode() );
+
+      instantiated = null;
+      firstParked = null;
+      parkedEdges = null;
+      nextParked = null;
+      pending = null;
     }
 
     @Override
-    protected void postVisit( final Node node, final int i, final int j ) {
+    protected void preVisit( final int node, final int dfsNumber ) {
 
-      if ( mode == EXPLORE_MODE ) {
-        if ( NodeType.isNewNode( model.getNodeType( node ) ) ) {
+      model.markNotObsolete( node );
 
-          final Node classNode = model.getClassNode( node );
-
-          instanceMap.put( classNode, round );
-          numInstantiated++;
-        }
+      if ( NodeType.isNewNode( model.getNodeType( node ) ) ) {
+        instantiate( model.getClassNode( node ) );
       }
     }
 
     @Override
-    protected void preVisit( final Node node, final int dfsNumber ) {
-
-      if ( mode == RESULT_MODE ) {
-
-        model.markNotObsolete( node );
-      }
-    }
-
-    protected void markReachableNodes() {
-      int oldMode = mode;
-      mode = RESULT_MODE;
-      super.start( network, this.entryPointNode );
-      mode = oldMode;
+    protected int nextStart() {
+      return numPending > 0 ? pending[ --numPending ] : Graph.NONE;
     }
 
     @Override
-    protected boolean doTraverse( final Edge edge ) {
+    protected boolean doTraverse( final int edge ) {
 
       boolean allowed = false;
 
       // TODO use NodeType
-      final Node target = edge.target();
+      final int target = graph.target( edge );
       
       // class, field node: allow always
       if ( !NodeType.isMethodNode( model.getNodeType( target ) ) ) {
@@ -130,19 +112,19 @@ public class Shrinker {
         allowed = true;
       } else {
 
-        if ( ! (model.getDependencyType( edge ).equals( EdgeType.RESOLVE ) ||
-                model.getDependencyType( edge ).equals( EdgeType.ENCLOSE ))) {
+        final EdgeType edgeType = model.getDependencyType( edge );
+        if ( ! ( edgeType == EdgeType.RESOLVE || edgeType == EdgeType.ENCLOSE ) ) {
 
           final AbstractDescriptor targetDescriptor = model.getDescriptor( target );
           final MethodDescriptor targetMethod = (MethodDescriptor) targetDescriptor;
-          final Node classNode = model.getClassNode( target );
+          final int classNode = model.getClassNode( target );
           final ClassDescriptor targetClass = (ClassDescriptor) model.getDescriptor( classNode );
 
           allowed = allowed || targetMethod.isStatic();
 
           allowed = allowed || targetClass.isAnnotation();
 
-          allowed = allowed || ( model.getDependencyType( edge ).equals( EdgeType.SUPER ) );
+          allowed = allowed || ( edgeType == EdgeType.SUPER );
 
           allowed = allowed ||
               ( NodeType.isNewNode( model.getNodeType( target ) ) );
@@ -151,12 +133,12 @@ public class Shrinker {
 
           allowed = allowed || ( targetMethod.isPrivate() );
 
-          allowed = allowed || wasClassInstantiated( edge );
+          allowed = allowed || wasClassInstantiated( edge, classNode );
 
-          allowed = allowed || isMethodNeeded( targetClass, targetMethod );
+          allowed = allowed || isMethodNeeded( edge, targetClass, targetMethod );
 
           // resolve edge: mark target stub as needed
-        } else if ( mode == RESULT_MODE ) {
+        } else {
           model.markStubNeeded( target );
         }
       }
@@ -166,39 +148,67 @@ public class Shrinker {
 
     /**
      * A Method is needed if a descendant class does not override the method and the descendant class is instantiated.
-     * TODO improve alorithm
+     * Otherwise the edge is parked at all descendants that do not override the method.
      */
-    private boolean isMethodNeeded( ClassDescriptor cd, MethodDescriptor md ) {
+    private boolean isMethodNeeded( final int edge, ClassDescriptor cd, MethodDescriptor md ) {
 
       List<ClassDescriptor> descendants = new ArrayList<ClassDescriptor>( 5 );
       model.getInternalDescendants( cd, descendants );
 
       for ( ClassDescriptor descendant : descendants ) {
 
-        if ( ( !descendant.implementsMethod( md.getName(), md.getDesc() ) ) &&
-          (int) instanceMap.get( descendant.getNode() ) >= ( round - 1 ) ) {
-          return true;
+        if ( !descendant.implementsMethod( md.getName(), md.getDesc() ) ) {
+          if ( instantiated[ descendant.getNode() ] ) {
+            return true;
+          }
+          park( edge, descendant.getNode() );
         }
       }
       return false;
     }
 
-    private boolean wasClassInstantiated( final Edge edge ) {
+    private boolean wasClassInstantiated( final int edge, final int classNode ) {
 
-      final Node targetNode = edge.target();
-      final Node classNode = model.getClassNode( targetNode );
-      if ( (int) instanceMap.get( classNode ) >= ( round - 1 ) ) {
+      if ( instantiated[ classNode ] ) {
         return true;
       } else {
 
-        numSkipped++;
+        park( edge, classNode );
 
         return false;
       }
     }
 
-    protected int getNumSkipped() {
-      return numSkipped;
+    private void park( final int edge, final int classNode ) {
+
+      // the target may have been reached on another path already
+      if ( !model.isObsolete( graph.target( edge ) ) ) {
+        return;
+      }
+
+      if ( numParked == parkedEdges.length ) {
+        parkedEdges = Arrays.copyOf( parkedEdges, numParked * 2 );
+        nextParked = Arrays.copyOf( nextParked, numParked * 2 );
+      }
+      parkedEdges[ numParked ] = edge;
+      nextParked[ numParked ] = firstParked[ classNode ];
+      firstParked[ classNode ] = numParked++;
+    }
+
+    private void instantiate( final int classNode ) {
+
+      if ( instantiated[ classNode ] ) {
+        return;
+      }
+      instantiated[ classNode ] = true;
+
+      for ( int i = firstParked[ classNode ]; i != Graph.NONE; i = nextParked[ i ] ) {
+        if ( numPending == pending.length ) {
+          pending = Arrays.copyOf( pending, numPending * 2 );
+        }
+        pending[ numPending++ ] = graph.target( parkedEdges[ i ] );
+      }
+      firstParked[ classNode ] = Graph.NONE;
     }
   }
 }
@@ -1,17 +1,28 @@
 package com.yworks.yshrink.core;
 
+import com.yworks.yguard.obf.BytecodeClassResolver;
+import com.yworks.yguard.obf.Cl;
+import com.yworks.yguard.obf.ExtClassInfo;
+
 import java.net.URL;
 import java.net.URLClassLoader;
 
 /**
  * @author Michael Schroeder, yWorks GmbH http://www.yworks.com
  */
-public class URLCpResolver implements ClassResolver {
+public class URLCpResolver implements ClassResolver, Cl.ClassInfoResolver {
 
   URLClassLoader urlClassLoader;
+  // reads the class files of the urls instead of loading the classes
+  BytecodeClassResolver bytecodeResolver;
 
   public URLCpResolver( final URL[] urls ) {
     urlClassLoader = URLClassLoader.newInstance( urls, ClassLoader.getSystemClassLoader() );
+    bytecodeResolver = new BytecodeClassResolver( urlClassLoader );
+  }
+
+  public ExtClassInfo resolveInfo( final String className ) throws ClassNotFoundException {
+    return bytecodeResolver.resolveInfo( className );
   }
 
   public Class resolve( final String className ) throws ClassNotFoundException {
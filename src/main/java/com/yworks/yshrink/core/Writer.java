@@ -2,6 +2,7 @@ package com.yworks.yshrink.core;
 
 import com.yworks.yguard.common.ResourcePolicy;
 import com.yworks.yguard.common.ShrinkBag;
+import com.yworks.yguard.obf.ManifestDigests;
 import com.yworks.yshrink.model.ClassDescriptor;
 import com.yworks.yshrink.model.Model;
 import com.yworks.yshrink.util.JarStreamProvider;
@@ -19,7 +20,9 @@ import java.io.IOException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.NumberFormat;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
@@ -37,7 +40,7 @@ public class Writer {
   private static final String SIGNATURE_FILE_SUFFIX = ".SF";
 
   private final boolean createStubs;
-  private final MessageDigest[] digests;
+  private final ManifestDigests digests;
 
   public Writer( boolean createStubs, String digestNamesStr ) {
     this.createStubs = createStubs;
@@ -49,16 +52,22 @@ public class Writer {
       digestNames[ i ] = digestNames[ i ].trim();
     }
 
-    digests = new MessageDigest[ digestNames.length ];
-
-    for ( int i = digestNames.length - 1; i >= 0; i-- ) {
+    List<String> knownDigestNames = new ArrayList<String>( digestNames.length );
+    for ( int i = 0; i < digestNames.length; i++ ) {
       try {
-        digests[ i ] = MessageDigest.getInstance( digestNames[ i ] );
+        MessageDigest.getInstance( digestNames[ i ] );
+        knownDigestNames.add( digestNames[ i ] );
       } catch ( NoSuchAlgorithmException e ) {
         Logger.err( "Unknwon digest algorithm: " + digestNames[ i ] );
-        digests[ i ] = null;
       }
     }
+
+    try {
+      digests = new ManifestDigests( knownDigestNames.toArray( new String[ knownDigestNames.size() ] ) );
+    } catch ( NoSuchAlgorithmException e ) {
+      // cannot happen, unknown algorithms have been removed already
+      throw new IllegalStateException( e.getMessage() );
+    }
   }
 
   public void write( Model model, ShrinkBag bag ) throws IOException {
@@ -221,41 +230,22 @@ public class Writer {
               fos ) );
     }
 
-    private void addDigests( String entryName ) {
+    private void addDigests( String entryName, String[] digestValues ) {
 
       Attributes oldEntryAttributes = this.manifest.getAttributes( entryName );
-      Attributes newEntryAttributes = new Attributes( digests.length + 1 );
+      Attributes newEntryAttributes = new Attributes( digestValues.length + 1 );
 
       if ( null != oldEntryAttributes ) {
-        Set<Object> keys = oldEntryAttributes.keySet();
-        for ( Object key : keys ) {
-          if ( ( (Attributes.Name) key ).toString().indexOf( "Digest" ) == -1 ) {
-            newEntryAttributes.put( key, oldEntryAttributes.get( key ) );
-          }
-        }
+        newEntryAttributes.putAll( oldEntryAttributes );
       }
 
-      StringBuffer digestsList = new StringBuffer();
-      for (int i = 0; i < digests.length; i++) {
-        MessageDigest digest = digests[i];
+      digests.putDigests( newEntryAttributes, digestValues );
 
-        if (null != digest) {
-
-          String digestKey = digest.getAlgorithm() + "-Digest";
-          digestsList.append(digest.getAlgorithm());
-          if (i < digests.length - 1){
-            digestsList.append(", ");
-          }
-
-          String digestVal = Util.toBase64(digest.digest());
-
-          newEntryAttributes.putValue(digestKey, digestVal);
-        }
+      if ( newEntryAttributes.isEmpty() ) {
+        this.manifest.getEntries().remove( entryName );
+      } else {
+        this.manifest.getEntries().put( entryName, newEntryAttributes );
       }
-
-      newEntryAttributes.putValue("Digest-Algorithms", digestsList.toString());
-
-      this.manifest.getEntries().put( entryName, newEntryAttributes );
     }
 
     private void addEntry( final String fileName, final byte[] data ) throws IOException {
@@ -266,19 +256,7 @@ public class Writer {
       jos.write( data );
       jos.closeEntry();
 
-      calcDigests( data );
-
-      addDigests( fileName );
-    }
-
-    private void calcDigests( final byte[] data ) {
-
-      for ( int i = digests.length - 1; i >= 0; i-- ) {
-        if ( null != digests[ i ] ) {
-          digests[ i ].reset();
-          digests[ i ].update( data );
-        }
-      }
+      addDigests( fileName, digests.digest( data ) );
     }
 
     private void addDirectory( final String fileName ) throws IOException {
@@ -1,7 +1,7 @@
 package com.yworks.yshrink.model;
 
 import org.objectweb.asm.Opcodes;
-import com.yworks.util.graph.Node;
+import com.yworks.util.graph.Graph;
 
 import java.io.File;
 import java.util.List;
@@ -20,7 +20,7 @@ public abstract class AbstractDescriptor {
   private boolean isReachable;
   private List<AnnotationUsage> annotations = new ArrayList<AnnotationUsage>();
 
-  protected Node node;
+  protected int node = Graph.NONE;
   protected final int access;
 
   protected File sourceJar;
@@ -47,11 +47,11 @@ public abstract class AbstractDescriptor {
     return annotations;
   }
 
-  public Node getNode() {
+  public int getNode() {
     return node;
   }
 
-  public void setNode( final Node node ) {
+  public void setNode( final int node ) {
     this.node = node;
   }
 
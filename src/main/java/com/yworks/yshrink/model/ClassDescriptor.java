@@ -1,7 +1,6 @@
 package com.yworks.yshrink.model;
 
 import org.objectweb.asm.Opcodes;
-import com.yworks.util.graph.Node;
 
 import java.io.File;
 import java.util.*;
@@ -23,13 +22,13 @@ public class ClassDescriptor extends AbstractDescriptor {
   private Set<String> allInterfaces;
   private Set<String> allAncestors;
 
-  private Node newNode;
+  private int newNode;
 
   private boolean hasExternalAncestors = false;
 
   private Set<String> attributesToKeep = new HashSet<String>();
 
-  protected ClassDescriptor( final String name, final int access, Node newNode, File sourceJar ) {
+  protected ClassDescriptor( final String name, final int access, int newNode, File sourceJar ) {
 
     super( access, sourceJar );
 
@@ -39,7 +38,7 @@ public class ClassDescriptor extends AbstractDescriptor {
     fields = new HashMap<>();
   }
 
-  protected ClassDescriptor( final String name, final String superName, final String[] interfaces, final int access, Node newNode, File sourceJar ) {
+  protected ClassDescriptor( final String name, final String superName, final String[] interfaces, final int access, int newNode, File sourceJar ) {
 
     this( name, access, newNode, sourceJar );
     this.superName = superName;
@@ -207,10 +206,14 @@ public class ClassDescriptor extends AbstractDescriptor {
 ////    return s.toString();
 //  }
 
-  public Node getNewNode() {
+  public int getNewNode() {
     return this.newNode;
   }
 
+  void setNewNode( final int newNode ) {
+    this.newNode = newNode;
+  }
+
   public Set<String> getAttributesToKeep() {
     return attributesToKeep;
   }
@@ -0,0 +1,38 @@
+package com.yworks.yshrink.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The descriptors read from a single class file by a <code>ModelVisitor</code>. The descriptors do not belong to any
+ * <code>Model</code> yet, so class files may be parsed concurrently. {@link Model#addClassRecord(ClassRecord)} adds
+ * them to a model afterwards.
+ */
+public class ClassRecord {
+
+  private final ClassDescriptor classDescriptor;
+  private final List<FieldDescriptor> fields = new ArrayList<FieldDescriptor>();
+  private final List<MethodDescriptor> methods = new ArrayList<MethodDescriptor>();
+
+  ClassRecord( final ClassDescriptor classDescriptor ) {
+    this.classDescriptor = classDescriptor;
+  }
+
+  public ClassDescriptor getClassDescriptor() {
+    return classDescriptor;
+  }
+
+  /**
+   * @return the fields in the order they are declared in the class file
+   */
+  public List<FieldDescriptor> getFields() {
+    return fields;
+  }
+
+  /**
+   * @return the methods in the order they are declared in the class file
+   */
+  public List<MethodDescriptor> getMethods() {
+    return methods;
+  }
+}
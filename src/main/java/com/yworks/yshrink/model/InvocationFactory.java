@@ -1,9 +1,12 @@
 package com.yworks.yshrink.model;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
+ * Shares equal <code>Invocation</code>s. Class files may be parsed on several threads, hence the factory may be used
+ * concurrently.
+ *
  * @author Michael Schroeder, yWorks GmbH http://www.yworks.com
  */
 public class InvocationFactory {
@@ -14,14 +17,17 @@ public class InvocationFactory {
     return instance;
   }
 
-  private Map<String, Invocation> invocations = new HashMap<String, Invocation>();
+  private ConcurrentMap<String, Invocation> invocations = new ConcurrentHashMap<String, Invocation>();
 
   protected Invocation getInvocation( final int opcode, final String type, final String name, final String desc ) {
     String key = new StringBuilder( type ).append( name ).append( desc ).append( opcode ).toString();
     Invocation val = invocations.get( key );
     if ( null == val ) {
       val = new Invocation( opcode, type, name, desc );
-      invocations.put( key, val );
+      final Invocation previous = invocations.putIfAbsent( key, val );
+      if ( null != previous ) {
+        val = previous;
+      }
     }
     return val;
   }
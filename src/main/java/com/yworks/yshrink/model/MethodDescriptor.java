@@ -5,7 +5,6 @@ import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 
 import java.io.File;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.AbstractMap;
@@ -120,8 +119,8 @@ public class MethodDescriptor extends AbstractDescriptor {
     return overrides( md.getName(), md.getReturnType(), md.getArgumentTypes() );
   }
 
-  public boolean overrides( final Method m ) {
-    return overrides( m.getName(), Type.getReturnType( m ), Type.getArgumentTypes( m ) );
+  public boolean overrides( final String mName, final String mDesc ) {
+    return overrides( mName, Type.getReturnType( mDesc ), Type.getArgumentTypes( mDesc ) );
   }
 
   private boolean overrides( String mName, Type mReturnType, Type[] mArgumentTypes ) {
@@ -1,18 +1,16 @@
 package com.yworks.yshrink.model;
 
-import com.google.common.graph.Network;
-import com.google.common.graph.NetworkBuilder;
+import com.yworks.yguard.obf.BytecodeClassResolver;
+import com.yworks.yguard.obf.Cl;
+import com.yworks.yguard.obf.ExtClassInfo;
 import com.yworks.yshrink.core.ClassResolver;
 import com.yworks.yshrink.util.Logger;
 import com.yworks.yshrink.util.Util;
-import com.yworks.util.graph.Node;
-import com.yworks.util.graph.Edge;
+import com.yworks.util.graph.Graph;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
-import com.google.common.graph.MutableNetwork;
 
 import java.io.File;
-import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -30,16 +28,24 @@ public class Model {
 
   Map<String, ClassDescriptor> model;
 
-  protected MutableNetwork<Node, Edge> network;
-  private Map<Object, Object> dependencyTypes;
-  protected Map<Object, Object> node2Descriptor;
-  protected Map<Object, Object> node2Type;
+  private static final EdgeType[] EDGE_TYPES = EdgeType.values();
 
-  private Node entryPointNode;
+  /**
+   * the dependency graph. Edges are labeled with the ordinal of their <code>EdgeType</code>.
+   */
+  protected Graph graph;
+
+  /**
+   * the descriptor and the <code>NodeType</code> of each node, indexed by node id.
+   */
+  protected AbstractDescriptor[] node2Descriptor;
+  protected int[] node2Type;
+
+  private int entryPointNode;
 
   private boolean simpleModelSet = false;
 
-  private ClassResolver resolver;
+  private Cl.ClassInfoResolver resolver;
 
   private boolean allResolved = true;
 
@@ -47,11 +53,18 @@ public class Model {
   public static final String CONSTRUCTOR_NAME = "<init>";
   //public static final String SYNTHETIC_NEW_NODE_NAME = "NEW";
 
+  /**
+   * Sets the resolver for the external classes. If the resolver implements
+   * {@link Cl.ClassInfoResolver}, the external classes are read from their class files,
+   * otherwise they are loaded and inspected using reflection.
+   */
   public void setClassResolver( final ClassResolver res ) {
-    if ( res != null ) {
-      resolver = res;
+    if ( res instanceof Cl.ClassInfoResolver ) {
+      resolver = (Cl.ClassInfoResolver) res;
+    } else if ( res != null ) {
+      resolver = new ReflectionClassInfoResolver( res );
     } else {
-      resolver = new DefaultClassResolver();
+      resolver = new BytecodeClassResolver( Model.class.getClassLoader() );
     }
   }
 
@@ -59,13 +72,16 @@ public class Model {
     this.simpleModelSet = true;
   }
 
-  private static class DefaultClassResolver implements ClassResolver {
-    public Class resolve( final String className ) throws ClassNotFoundException {
-      return Class.forName( className, false, getClass().getClassLoader() );
+  private static class ReflectionClassInfoResolver implements Cl.ClassInfoResolver {
+    private final ClassResolver resolver;
+
+    ReflectionClassInfoResolver( final ClassResolver resolver ) {
+      this.resolver = resolver;
     }
 
-    @Override
-    public void close() throws Exception {}
+    public ExtClassInfo resolveInfo( final String className ) throws ClassNotFoundException {
+      return ExtClassInfo.create( resolver.resolve( className ) );
+    }
   }
 
   public List<MethodDescriptor> getAllConstructors( final ClassDescriptor cd ) {
@@ -89,29 +105,37 @@ public class Model {
     this( null );
   }
 
-  public Model( MutableNetwork<Node, Edge> network ) {
-    if ( network != null ) {
-      this.network = network;
+  public Model( Graph graph ) {
+    if ( graph != null ) {
+      this.graph = graph;
     } else {
-      this.network = NetworkBuilder
-              .directed()
-              .allowsParallelEdges(true)
-              .allowsSelfLoops(true)
-              .build();
+      this.graph = new Graph();
     }
 
     setClassResolver( null );
-    node2Descriptor = new HashMap<>();
-    node2Type = new HashMap<>();
-    dependencyTypes = new HashMap<>();
+    node2Descriptor = new AbstractDescriptor[ 64 ];
+    node2Type = new int[ 64 ];
     model = new HashMap<>();
 
-    entryPointNode = new Node(this.network);
-    this.network.addNode(entryPointNode);
-    node2Type.put( entryPointNode, NodeType.ENTRYPOINT );
+    entryPointNode = createNode( null, NodeType.ENTRYPOINT );
+  }
+
+  private int createNode( final AbstractDescriptor descriptor, final int type ) {
+    final int n = graph.createNode();
+    if ( n >= node2Type.length ) {
+      final int size = Math.max( n + 1, node2Type.length * 2 );
+      node2Descriptor = Arrays.copyOf( node2Descriptor, size );
+      node2Type = Arrays.copyOf( node2Type, size );
+    }
+    node2Descriptor[ n ] = descriptor;
+    node2Type[ n ] = type;
+    if ( descriptor != null ) {
+      descriptor.setNode( n );
+    }
+    return n;
   }
 
-  public Node getEntryPointNode() {
+  public int getEntryPointNode() {
     return entryPointNode;
   }
 
@@ -126,48 +150,35 @@ public class Model {
    * @param source the edge source
    * @param target the edge target
    * @param type   the edge type
-   * @return the created edge, or null if no edge was created
+   * @return the created edge, or <code>Graph.NONE</code> if no edge was created
    */
-  public Edge createDependencyEdge( final AbstractDescriptor source, final AbstractDescriptor target,
+  public int createDependencyEdge( final AbstractDescriptor source, final AbstractDescriptor target,
                                     final EdgeType type ) {
 
     if ( ( !source.equals( target ) ) ) {
       return createDependencyEdge( source.getNode(), target.getNode(), type );
     } else {
-      return null;
+      return Graph.NONE;
     }
   }
 
-  public Edge createDependencyEdge( final Node sourceNode, final Node targetNode, final EdgeType edgeType ) {
-    final Edge existing = ( sourceNode.getEdgeTo( targetNode ) );
-    if ( ( ( existing == null )
-        || ! ( dependencyTypes.get( existing ) ).equals( edgeType ) ) ) {
-      final Edge e = new Edge(this.network);
-      this.network.addEdge( sourceNode, targetNode, e );
-      dependencyTypes.put( e, edgeType );
-      return e;
+  public int createDependencyEdge( final int sourceNode, final int targetNode, final EdgeType edgeType ) {
+    if ( ! graph.containsEdge( sourceNode, targetNode, edgeType.ordinal() ) ) {
+      return graph.createEdge( sourceNode, targetNode, edgeType.ordinal() );
     } else {
-      return null;
+      return Graph.NONE;
     }
   }
 
   // TODO merge these 
   public ClassDescriptor newClassDescriptor( final String name, final int access, final File sourceJar ) {
 
-    final Node newNode = new Node(this.network);
-    this.network.addNode(newNode);
     final AbstractDescriptor newNodeDescriptor = new NewNodeDescriptor( Opcodes.ACC_PUBLIC, sourceJar );
-    node2Descriptor.put( newNode, newNodeDescriptor );
-    node2Type.put( newNode, NodeType.NEW );
-    newNodeDescriptor.setNode( newNode );
+    final int newNode = createNode( newNodeDescriptor, NodeType.NEW );
 
     final ClassDescriptor cd = new ClassDescriptor( name, access, newNode, sourceJar );
 
-    final Node classNode = new Node(this.network);
-    this.network.addNode(classNode);
-    node2Descriptor.put( classNode, cd );
-    node2Type.put( classNode, NodeType.CLASS );
-    cd.setNode( classNode );
+    createNode( cd, NodeType.CLASS );
     model.put( name, cd );
 
     return cd;
@@ -176,36 +187,68 @@ public class Model {
   public ClassDescriptor newClassDescriptor( final String name, final String superName, final String[] interfaces,
                                              final int access, final File sourceJar ) {
 
-    final Node newNode = new Node(this.network);
-    this.network.addNode(newNode);
     final AbstractDescriptor newNodeDescriptor = new NewNodeDescriptor( Opcodes.ACC_PUBLIC, sourceJar );
-    node2Descriptor.put( newNode, newNodeDescriptor );
-    node2Type.put( newNode, NodeType.NEW );
-    newNodeDescriptor.setNode( newNode );
+    final int newNode = createNode( newNodeDescriptor, NodeType.NEW );
 
     final ClassDescriptor cd = new ClassDescriptor( name, superName, interfaces, access, newNode, sourceJar );
 
-    final Node classNode = new Node(this.network);
-    this.network.addNode(classNode);
-    node2Descriptor.put( classNode, cd );
-    node2Type.put( classNode, NodeType.CLASS );
-    cd.setNode( classNode );
+    createNode( cd, NodeType.CLASS );
     model.put( name, cd );
 
     return cd;
   }
 
+  /**
+   * adds the descriptors read from a class file to this model and creates their nodes. If a class of the same name is
+   * already modeled, its super types and enclosing class are updated and the parsed members and annotations are added
+   * to the existing descriptor.
+   *
+   * @param record the parsed class
+   * @return the descriptor of the class in this model
+   */
+  public ClassDescriptor addClassRecord( final ClassRecord record ) {
+
+    final ClassDescriptor parsed = record.getClassDescriptor();
+    ClassDescriptor cd = getClassDescriptor( parsed.getName() );
+
+    if ( cd == null ) {
+      cd = parsed;
+      final AbstractDescriptor newNodeDescriptor = new NewNodeDescriptor( Opcodes.ACC_PUBLIC, cd.getSourceJar() );
+      cd.setNewNode( createNode( newNodeDescriptor, NodeType.NEW ) );
+      createNode( cd, NodeType.CLASS );
+      model.put( cd.getName(), cd );
+    } else {
+      cd.setInterfaces( parsed.getInterfaces() );
+      cd.setSuperName( parsed.getSuperName() );
+      if ( parsed.getEnclosingClass() != null ) {
+        cd.setEnclosingClass( parsed.getEnclosingClass() );
+      }
+      if ( parsed.getEnclosingMethod() != null ) {
+        cd.setEnclosingMethod( (String) parsed.getEnclosingMethod().getKey(),
+            (String) parsed.getEnclosingMethod().getValue() );
+      }
+      cd.getAnnotations().addAll( parsed.getAnnotations() );
+    }
+
+    for ( FieldDescriptor fd : record.getFields() ) {
+      cd.addField( fd );
+      createNode( fd, NodeType.FIELD );
+    }
+    for ( MethodDescriptor md : record.getMethods() ) {
+      cd.addMethod( md );
+      createNode( md, NodeType.METHOD );
+    }
+
+    return cd;
+  }
+
   public MethodDescriptor newMethodDescriptor( final ClassDescriptor cd, final int access, final String name,
                                                final String desc,
                                                final String[] exceptions, final File sourceJar ) {
 
     final MethodDescriptor md = new MethodDescriptor( name, access, desc, exceptions, sourceJar );
     cd.addMethod( md );
-    final Node n = new Node(this.network);
-    this.network.addNode(n);
-    node2Descriptor.put( n, md );
-    node2Type.put( n, NodeType.METHOD );
-    md.setNode( n );
+    createNode( md, NodeType.METHOD );
     return md;
   }
 
@@ -213,11 +256,7 @@ public class Model {
                                              final int access, final File sourceJar ) {
     final FieldDescriptor fd = new FieldDescriptor( desc, name, access, sourceJar );
     cd.addField( fd );
-    final Node n = new Node(this.network);
-    network.addNode(n);
-    node2Descriptor.put( n, fd );
-    node2Type.put( n, NodeType.FIELD );
-    fd.setNode( n );
+    createNode( fd, NodeType.FIELD );
 
     return fd;
   }
@@ -238,27 +277,27 @@ public class Model {
     }
   }
 
-  public AbstractDescriptor getDescriptor( final Node n ) {
-    return (AbstractDescriptor) node2Descriptor.get( n );
+  public AbstractDescriptor getDescriptor( final int n ) {
+    return node2Descriptor[ n ];
   }
 
-  public Node getClassNode( final Node memberNode ) {
+  public int getClassNode( final int memberNode ) {
 
     if ( getDescriptor( memberNode ) instanceof ClassDescriptor ) {
       throw new IllegalArgumentException( "Node " + memberNode + " is a classNode " );
     }
 
-    for (final Edge e: memberNode.outEdges() ) {
-      if ( getDependencyType( e ).equals( EdgeType.MEMBER_OF ) ) {
-        return e.target();
+    for ( int e = graph.firstOutEdge( memberNode ); e != Graph.NONE; e = graph.nextOutEdge( e ) ) {
+      if ( getDependencyType( e ) == EdgeType.MEMBER_OF ) {
+        return graph.target( e );
       }
     }
 
     throw new RuntimeException( "Node " + memberNode + " is homeless." );
   }
 
-  public EdgeType getDependencyType( final Edge e ) {
-    return (EdgeType) dependencyTypes.get( e );
+  public EdgeType getDependencyType( final int e ) {
+    return EDGE_TYPES[ graph.label( e ) ];
   }
 
   /**
@@ -270,10 +309,10 @@ public class Model {
   public Set<ClassDescriptor> getAllImplementingClasses( final ClassDescriptor cd ) {
     Set<ClassDescriptor> ret = null;
 
-    for (final Edge e: cd.getNode().inEdges()) {
-      if ( dependencyTypes.get( e ).equals( EdgeType.IMPLEMENTS ) ) {
+    for ( int e = graph.firstInEdge( cd.getNode() ); e != Graph.NONE; e = graph.nextInEdge( e ) ) {
+      if ( getDependencyType( e ) == EdgeType.IMPLEMENTS ) {
         if ( ret == null ) ret = new HashSet<ClassDescriptor>();
-        final ClassDescriptor subClass = (ClassDescriptor) node2Descriptor.get( e.source() );
+        final ClassDescriptor subClass = (ClassDescriptor) node2Descriptor[ graph.source( e ) ];
         ret.add( subClass );
       }
     }
@@ -296,18 +335,18 @@ public class Model {
       }
       getAllImplementedInterfaces( cd.getSuperName(), interfaces );
     } else {
-      Class clazz = resolve( className );
+      ExtClassInfo clazz = resolve( className );
 
       if ( null != clazz ) {
-        Class[] cInterfaces = clazz.getInterfaces();
-        for ( Class cInterface : cInterfaces ) {
-          String internalClassName = Util.toInternalClass(cInterface.getName());
+        String[] cInterfaces = clazz.getInterfaceNames();
+        for ( String cInterface : cInterfaces ) {
+          String internalClassName = Util.toInternalClass(cInterface);
           interfaces.add(internalClassName);
           getAllImplementedInterfaces(internalClassName, interfaces);
         }
-        Class superclass = clazz.getSuperclass();
+        String superclass = clazz.getSuperName();
         if (superclass != null) {
-          getAllImplementedInterfaces(Util.toInternalClass(superclass.getName()), interfaces);
+          getAllImplementedInterfaces(Util.toInternalClass(superclass), interfaces);
         }
       }
     }
@@ -325,11 +364,11 @@ public class Model {
       parents.add( superName );
       getAllAncestorClasses( superName, parents );
     } else {
-      Class clazz = resolve( className );
+      ExtClassInfo clazz = resolve( className );
       if ( null != clazz ) {
-        Class superclass = clazz.getSuperclass();
+        String superclass = clazz.getSuperName();
         if ( null != superclass ) { // else: Object, Interface..
-          String superName = Util.toInternalClass(superclass.getName());
+          String superName = Util.toInternalClass(superclass);
           parents.add( superName );
           getAllAncestorClasses( superName, parents );
         }
@@ -363,7 +402,15 @@ public class Model {
   }
 
 
-  public boolean getAllExternalAncestorMethods( final String className, final List<Method> methods ) {
+  /**
+   * collects the names and descriptors of the methods declared in the external ancestor classes/interfaces of class
+   * <code>className</code>.
+   *
+   * @param className the class name
+   * @param methods   the list that receives a <code>{ name, descriptor }</code> pair for each method
+   * @return false iff any external ancestor cannot be resolved
+   */
+  public boolean getAllExternalAncestorMethods( final String className, final List<String[]> methods ) {
 
     boolean r = true;
 
@@ -383,28 +430,26 @@ public class Model {
       }
     } else {
 
-      Class clazz = resolve( className );
+      ExtClassInfo clazz = resolve( className );
 
       if ( null != clazz ) {
 
         // add all methods
-        Method[] clazzMethods = clazz.getDeclaredMethods();
-
-        for ( Method method : clazzMethods ) {
-          methods.add( method );
+        for ( int i = 0; i < clazz.getMethodCount(); i++ ) {
+          methods.add( new String[]{ clazz.getMethodName( i ), clazz.getMethodDescriptor( i ) } );
         }
 
         // collect superclass methods
-        Class superClass = clazz.getSuperclass();
+        String superClass = clazz.getSuperName();
         if ( null != superClass ) {
-          r &= getAllExternalAncestorMethods( superClass.getName(), methods );
+          r &= getAllExternalAncestorMethods( superClass, methods );
         }
 
         // collect interface methods
-        Class[] interfaces = clazz.getInterfaces();
+        String[] interfaces = clazz.getInterfaceNames();
 
-        for ( Class interfc : interfaces ) {
-          r &= getAllExternalAncestorMethods( interfc.getName(), methods );
+        for ( String interfc : interfaces ) {
+          r &= getAllExternalAncestorMethods( interfc, methods );
         }
       } else {
         return false;
@@ -438,24 +483,21 @@ public class Model {
       }
     } else {
 
-      Class clazz = resolve( className );
+      ExtClassInfo clazz = resolve( className );
 
       if ( null != clazz ) {
 
-        // add all methods
-        Method[] clazzMethods = clazz.getDeclaredMethods();
-
         // collect superclass methods
-        Class superClass = clazz.getSuperclass();
+        String superClass = clazz.getSuperName();
         if ( null != superClass ) {
-          r &= getAllInternalAncestorMethods( superClass.getName(), methods );
+          r &= getAllInternalAncestorMethods( superClass, methods );
         }
 
         // collect interface methods
-        Class[] interfaces = clazz.getInterfaces();
+        String[] interfaces = clazz.getInterfaceNames();
 
-        for ( Class interfc : interfaces ) {
-          r &= getAllInternalAncestorMethods( interfc.getName(), methods );
+        for ( String interfc : interfaces ) {
+          r &= getAllInternalAncestorMethods( interfc, methods );
         }
       } else {
         return false;
@@ -471,9 +513,9 @@ public class Model {
    * @param descendants
    */
   public void getInternalDescendants( final ClassDescriptor cd, final List<ClassDescriptor> descendants ) {
-    for ( final Edge e: cd.getNode().inEdges() ) {
-      if ( dependencyTypes.get( e ).equals( EdgeType.EXTENDS ) ) {
-        final ClassDescriptor subClass = (ClassDescriptor) node2Descriptor.get( e.source() );
+    for ( int e = graph.firstInEdge( cd.getNode() ); e != Graph.NONE; e = graph.nextInEdge( e ) ) {
+      if ( getDependencyType( e ) == EdgeType.EXTENDS ) {
+        final ClassDescriptor subClass = (ClassDescriptor) node2Descriptor[ graph.source( e ) ];
         descendants.add( subClass );
         getInternalDescendants( subClass, descendants );
       }
@@ -510,10 +552,10 @@ public class Model {
     String[] interfaces = origClass.getInterfaces();
     for ( String interfc : interfaces ) {
       if ( ! isClassModeled( interfc ) ) {
-        Class clazz = resolve( interfc );
+        ExtClassInfo clazz = resolve( interfc );
         if ( null != clazz ) {
           found = found || containsNonPrivateMethod( clazz, md );
-          for ( Class clazzz : clazz.getInterfaces() ) {
+          for ( String clazzz : clazz.getInterfaceNames() ) {
             found = found || isMethodDefinedInExternalInterfaceRec( clazzz, md );
           }
         }
@@ -523,13 +565,17 @@ public class Model {
     return found;
   }
 
-  private boolean isMethodDefinedInExternalInterfaceRec( final Class clazz, final MethodDescriptor md ) {
+  private boolean isMethodDefinedInExternalInterfaceRec( final String className, final MethodDescriptor md ) {
 
     boolean found = false;
+    final ExtClassInfo clazz = resolve( className );
+    if ( null == clazz ) {
+      return false;
+    }
     if ( containsNonPrivateMethod( clazz, md ) ) {
       return true;
     }
-    for ( Class clazzz : clazz.getInterfaces() ) {
+    for ( String clazzz : clazz.getInterfaceNames() ) {
       found = found || isMethodDefinedInExternalInterfaceRec( clazzz, md );
     }
     return found;
@@ -605,7 +651,7 @@ public class Model {
       }
     } else {
 
-      Class clazz = resolve( className );
+      ExtClassInfo clazz = resolve( className );
 
       if ( clazz != null ) {
         // ALL methods, including inherited.
@@ -614,15 +660,15 @@ public class Model {
 
         if ( !found && !"java/lang/Object".equals( clazz.getName() ) ) {
 
-          final Class superClass = clazz.getSuperclass();
+          final String superClass = clazz.getSuperName();
           if ( superClass != null ) {
-            found = found || isMethodExternallyDefinedRec( superClass.getName(), md );
+            found = found || isMethodExternallyDefinedRec( superClass, md );
           }
 
-          final Class[] interfaces = clazz.getInterfaces();
+          final String[] interfaces = clazz.getInterfaceNames();
 
-          for ( Class interfc : interfaces ) {
-            found = found || isMethodExternallyDefinedRec( interfc.getName(), md );
+          for ( String interfc : interfaces ) {
+            found = found || isMethodExternallyDefinedRec( interfc, md );
           }
         }
       }
@@ -631,15 +677,13 @@ public class Model {
     return found;
   }
 
-  private boolean containsNonPrivateMethod( Class clazz, MethodDescriptor md ) {
+  private boolean containsNonPrivateMethod( ExtClassInfo clazz, MethodDescriptor md ) {
 
     boolean found = false;
-    final Method[] methods = clazz.getDeclaredMethods();
 
-    for ( int i = 0; i < methods.length; i++ ) {
-      //final MethodDescriptor md2 = method2Descriptor( methods[ i ] );
-      if ( !Modifier.isPrivate( methods[ i ].getModifiers() ) ) {
-        if ( md.overrides( methods[ i ] ) ) found = true;
+    for ( int i = 0; i < clazz.getMethodCount(); i++ ) {
+      if ( !Modifier.isPrivate( clazz.getMethodModifiers( i ) ) ) {
+        if ( md.overrides( clazz.getMethodName( i ), clazz.getMethodDescriptor( i ) ) ) found = true;
       }
     }
     return found;
@@ -647,7 +691,7 @@ public class Model {
 
   public void createEntryPointEdges( List<AbstractDescriptor> entryPoints ) {
 
-    Node entryPointNode = getEntryPointNode();
+    int entryPointNode = getEntryPointNode();
 
     for ( AbstractDescriptor descriptor : entryPoints ) {
       if ( descriptor instanceof MethodDescriptor ) {
@@ -662,10 +706,10 @@ public class Model {
     }
   }
 
-  private Class resolve( String className ) {
-    Class clazz = null;
+  private ExtClassInfo resolve( String className ) {
+    ExtClassInfo clazz = null;
     try {
-      clazz = resolver.resolve( Util.toJavaClass( className ) );
+      clazz = resolver.resolveInfo( Util.toJavaClass( className ) );
     } catch ( ClassNotFoundException e ) {
       Logger.warnToLog( "Unresolved external dependency: " + Util.toJavaClass( className ) + " not found!" );
       allResolved = false;
@@ -681,69 +725,50 @@ public class Model {
     return allResolved;
   }
 
-  /**
-   * convert java.lang.reflect.Method to MethodDescriptor
-   *
-   * @param m java Method
-   * @return a MethodDescriptor with the same properties as Method <code>m</code>.
-   */
-  private MethodDescriptor method2Descriptor( final Method m, final File sourceJar ) {
-
-    final int access = m.getModifiers();
-    final String desc = Type.getMethodDescriptor( m );
-    final Class[] exceptionClasses = m.getExceptionTypes();
-    final String[] exceptions = new String[ exceptionClasses.length ];
-    for ( int i = 0; i < exceptionClasses.length; i++ ) {
-      exceptions[ i ] = exceptionClasses[ i ].getName();
-    }
-
-    return new MethodDescriptor( m.getName(), access, desc, exceptions, sourceJar );
-  }
-
   public int getNodeType( final AbstractDescriptor ad ) {
-    return (Integer) node2Type.get( ad.getNode() );
+    return node2Type[ ad.getNode() ];
   }
 
-  public int getNodeType( final Node n ) {
-    return (int) node2Type.get( n );
+  public int getNodeType( final int n ) {
+    return node2Type[ n ];
   }
 
-  public void markObsolete( final Node n ) {
+  public void markObsolete( final int n ) {
 
     int type = getNodeType( n );
     if ( ! NodeType.isObsolete( type ) ) {
       type += NodeType.OBSOLETE;
-      node2Type.put( n, type );
+      node2Type[ n ] = type;
     }
   }
 
-  public void markNotObsolete( final Node n ) {
+  public void markNotObsolete( final int n ) {
 
     // TODO use ~
     int type = getNodeType( n );
     if ( NodeType.isObsolete( type ) ) {
       type -= NodeType.OBSOLETE;
-      node2Type.put( n, type );
+      node2Type[ n ] = type;
     }
   }
 
-  public void markStubNeeded( final Node n ) {
+  public void markStubNeeded( final int n ) {
     int type = getNodeType( n );
     if ( ! NodeType.isStubNeeded( type ) ) {
       type += NodeType.STUB;
-      node2Type.put( n, type );
+      node2Type[ n ] = type;
     }
   }
 
-  public boolean isObsolete( final Node n ) {
-    return NodeType.isObsolete( (int) node2Type.get( n ) );
+  public boolean isObsolete( final int n ) {
+    return NodeType.isObsolete( node2Type[ n ] );
   }
 
-  public boolean isStubNeeded( final Node n ) {
-    return NodeType.isStubNeeded( (int) node2Type.get( n ) );
+  public boolean isStubNeeded( final int n ) {
+    return NodeType.isStubNeeded( node2Type[ n ] );
   }
 
-  public Network<Node, Edge> getNetwork() {
-    return network;
+  public Graph getGraph() {
+    return graph;
   }
 }
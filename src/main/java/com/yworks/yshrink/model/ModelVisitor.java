@@ -1,5 +1,6 @@
 package com.yworks.yshrink.model;
 
+import com.yworks.util.graph.Graph;
 import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.Attribute;
 import org.objectweb.asm.ClassVisitor;
@@ -12,22 +13,31 @@ import org.objectweb.asm.Type;
 import java.io.File;
 
 /**
+ * Reads the descriptors of a class file into a <code>ClassRecord</code>. Does not access any <code>Model</code>, thus
+ * separate instances may be used on different threads.
+ *
  * @author Michael Schroeder, yWorks GmbH http://www.yworks.com
  */
 public class ModelVisitor extends ClassVisitor {
   static final int OPCODES_ASM = Opcodes.ASM7;
 
-  private Model model;
+  private ClassRecord record;
 
   private ClassDescriptor currentClass;
   private final File sourceJar;
 
-  public ModelVisitor( final Model model, final File sourceJar ) {
+  public ModelVisitor( final File sourceJar ) {
     super(OPCODES_ASM);
-    this.model = model;
     this.sourceJar = sourceJar;
   }
 
+  /**
+   * @return the descriptors of the class visited last
+   */
+  public ClassRecord getClassRecord() {
+    return record;
+  }
+
   //
   //  ClassVisitor
   //
@@ -35,13 +45,8 @@ public class ModelVisitor extends ClassVisitor {
   public void visit( final int version, final int access, final String name, final String signature,
                      final String superName, final String[] interfaces ) {
 
-    if ( ! model.isClassModeled( name ) ) {
-      currentClass = model.newClassDescriptor( name, superName, interfaces, access, sourceJar );
-    } else {
-      currentClass = model.getClassDescriptor( name );
-      currentClass.setInterfaces( interfaces );
-      currentClass.setSuperName( superName );
-    }
+    currentClass = new ClassDescriptor( name, superName, interfaces, access, Graph.NONE, sourceJar );
+    record = new ClassRecord( currentClass );
   }
 
   public void visitInnerClass( final String name, final String outerName, final String innerName, final int access ) {
@@ -59,13 +64,14 @@ public class ModelVisitor extends ClassVisitor {
 
   public FieldVisitor visitField( final int access, final String name, final String desc, final String signature,
                                   final Object value ) {
-    model.newFieldDescriptor( currentClass, desc, name, access, sourceJar );
+    record.getFields().add( new FieldDescriptor( desc, name, access, sourceJar ) );
     return null;
   }
 
   public MethodVisitor visitMethod( final int access, final String name, final String desc, final String signature,
                                     final String[] exceptions ) {
-    MethodDescriptor currentMethod = model.newMethodDescriptor(currentClass, access, name, desc, exceptions, sourceJar);
+    MethodDescriptor currentMethod = new MethodDescriptor( name, access, desc, exceptions, sourceJar );
+    record.getMethods().add( currentMethod );
     return new ModelMethodVisitor(currentMethod);
   }
 
@@ -0,0 +1,187 @@
+package com.yworks.util.graph;
+
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Tests the adjacency of graphs in linked list as well as in compressed
+ * sparse row form.
+ */
+public class GraphTest {
+  @Test
+  public void testCompactRenumbersEdgesBySource() {
+    final Graph graph = new Graph();
+    final int a = graph.createNode();
+    final int b = graph.createNode();
+    final int c = graph.createNode();
+    // created out of source order
+    graph.createEdge(c, a, 1);
+    graph.createEdge(a, b, 2);
+    graph.createEdge(b, c, 3);
+    graph.createEdge(a, c, 4);
+    graph.createEdge(c, b, 5);
+
+    final String out = outEdges(graph);
+    final String in = inEdges(graph);
+    assertEquals("0:a->b(2) a->c(4) 1:b->c(3) 2:c->a(1) c->b(5) ", out);
+    assertEquals("0:c->a(1) 1:a->b(2) c->b(5) 2:b->c(3) a->c(4) ", in);
+
+    graph.compact();
+    assertTrue(graph.isCompacted());
+    assertEquals(3, graph.nodeCount());
+    assertEquals(5, graph.edgeCount());
+
+    // the relative order of the edges of each node is kept
+    assertEquals(out, outEdges(graph));
+    assertEquals(in, inEdges(graph));
+
+    // the outgoing edges of each node have consecutive ids
+    int expected = 0;
+    for (int n = 0; n < graph.nodeCount(); n++) {
+      for (int e = graph.firstOutEdge(n); e != Graph.NONE; e = graph.nextOutEdge(e)) {
+        assertEquals(expected++, e);
+        assertEquals(n, graph.source(e));
+      }
+    }
+    assertEquals(5, expected);
+
+    assertEquals(2, graph.outDegree(a));
+    assertEquals(1, graph.outDegree(b));
+    assertEquals(2, graph.inDegree(c));
+  }
+
+  @Test
+  public void testCompactWithoutEdges() {
+    final Graph graph = new Graph();
+    final int a = graph.createNode();
+    graph.compact();
+    assertEquals(Graph.NONE, graph.firstOutEdge(a));
+    assertEquals(Graph.NONE, graph.firstInEdge(a));
+
+    // nodes created after compacting have no edges either
+    final int b = graph.createNode();
+    assertTrue(graph.isCompacted());
+    assertEquals(Graph.NONE, graph.firstOutEdge(b));
+    assertEquals(Graph.NONE, graph.firstInEdge(b));
+  }
+
+  @Test
+  public void testCreateEdgeAfterCompact() {
+    final Graph graph = new Graph();
+    final int a = graph.createNode();
+    final int b = graph.createNode();
+    graph.createEdge(b, a, 1);
+    graph.createEdge(a, b, 2);
+    graph.compact();
+
+    // adding nodes and edges converts the graph back to linked lists
+    final int c = graph.createNode();
+    final int e = graph.createEdge(a, c, 3);
+    assertFalse(graph.isCompacted());
+    assertEquals(2, e);
+    assertEquals(a, graph.source(e));
+    assertEquals(c, graph.target(e));
+    assertEquals(3, graph.label(e));
+
+    assertEquals("0:a->b(2) a->c(3) 1:b->a(1) 2:", outEdges(graph));
+    assertEquals("0:b->a(1) 1:a->b(2) 2:a->c(3) ", inEdges(graph));
+
+    // and compacting again keeps the order
+    final String expandedOut = outEdges(graph);
+    final String expandedIn = inEdges(graph);
+    graph.compact();
+    assertEquals(expandedOut, outEdges(graph));
+    assertEquals(expandedIn, inEdges(graph));
+  }
+
+  @Test
+  public void testGrowBeyondInitialCapacity() {
+    final Graph graph = new Graph();
+    final int hub = graph.createNode();
+    for (int i = 0; i < 200; i++) {
+      final int n = graph.createNode();
+      graph.createEdge(hub, n, i);
+      if (i == 100) {
+        graph.compact();
+      }
+    }
+    assertEquals(201, graph.nodeCount());
+    assertEquals(200, graph.outDegree(hub));
+
+    int i = 0;
+    for (int e = graph.firstOutEdge(hub); e != Graph.NONE; e = graph.nextOutEdge(e)) {
+      assertEquals(i++, graph.label(e));
+    }
+    assertEquals(200, i);
+  }
+
+  @Test
+  public void testContainsEdge() {
+    final Graph graph = new Graph();
+    final int hub = graph.createNode();
+    final int a = graph.createNode();
+    final int b = graph.createNode();
+    for (int i = 0; i < 10; i++) {
+      graph.createEdge(hub, graph.createNode(), 0);
+    }
+    graph.createEdge(hub, a, 1);
+    graph.createEdge(a, b, 2);
+    graph.createEdge(a, b, 3);
+
+    for (int pass = 0; pass < 2; pass++) {
+      // searched from the target, as the hub has more edges
+      assertTrue(graph.containsEdge(hub, a, 1));
+      assertFalse(graph.containsEdge(hub, a, 0));
+      assertFalse(graph.containsEdge(a, hub, 1));
+      // parallel edges with different labels
+      assertTrue(graph.containsEdge(a, b, 2));
+      assertTrue(graph.containsEdge(a, b, 3));
+      assertFalse(graph.containsEdge(b, a, 2));
+      assertFalse(graph.containsEdge(hub, b, 2));
+
+      graph.compact();
+    }
+  }
+
+  @Test
+  public void testCreateEdgeToUnknownNode() {
+    final Graph graph = new Graph();
+    try {
+      graph.createEdge(graph.createNode(), 1, 0);
+      assertTrue("Created edge to unknown node.", false);
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  // the outgoing edges of all nodes, without edge ids
+  private static String outEdges(final Graph graph) {
+    final StringBuilder sb = new StringBuilder();
+    for (int n = 0; n < graph.nodeCount(); n++) {
+      sb.append(n).append(':');
+      for (int e = graph.firstOutEdge(n); e != Graph.NONE; e = graph.nextOutEdge(e)) {
+        append(graph, e, sb);
+      }
+    }
+    return sb.toString();
+  }
+
+  // the ingoing edges of all nodes, without edge ids
+  private static String inEdges(final Graph graph) {
+    final StringBuilder sb = new StringBuilder();
+    for (int n = 0; n < graph.nodeCount(); n++) {
+      sb.append(n).append(':');
+      for (int e = graph.firstInEdge(n); e != Graph.NONE; e = graph.nextInEdge(e)) {
+        append(graph, e, sb);
+      }
+    }
+    return sb.toString();
+  }
+
+  private static void append(final Graph graph, final int e, final StringBuilder sb) {
+    sb.append((char) ('a' + graph.source(e))).append("->").append((char) ('a' + graph.target(e)));
+    sb.append('(').append(graph.label(e)).append(") ");
+  }
+}
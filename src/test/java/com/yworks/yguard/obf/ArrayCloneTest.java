@@ -0,0 +1,92 @@
+package com.yworks.yguard.obf;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Tests if method calls on arrays like {@code int[].clone()} can be remapped
+ * in pedantic mode, i.e. if array classes are resolved as external classes.
+ */
+public class ArrayCloneTest extends AbstractObfuscationTest {
+  @Rule
+  public TestName name = new TestName();
+
+  @Test
+  public void testPedanticArrayClone() throws Exception {
+    assertTrue("Invalid Java version", 11 <= getMajorVersion());
+
+
+    final String testTypeName = "com.yworks.yguard.obf.ArrayCloneTest";
+    final String testMethodName = "java.lang.String run()";
+
+    final String fileName = "ArrayCloneTest.txt";
+    final URL source = getClass().getResource(fileName);
+    assertNotNull("Could not resolve " + fileName + '.', source);
+
+
+    // compile the java source code
+    final Compiler compiler = newCompiler();
+
+    final ArrayList sources = new ArrayList();
+    sources.add(compiler.newUrlSource(testTypeName, source));
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    compiler.compile(sources, baos);
+
+
+    // store resulting bytecode in temporary files and ...
+    final File inTmp = File.createTempFile(name.getMethodName() + "_in_", ".jar");
+    final File outTmp = File.createTempFile(name.getMethodName() + "_out_", ".jar");
+
+    try {
+      write(baos.toByteArray(), inTmp);
+
+      // ... run obfuscator in pedantic mode, which fails for unresolvable
+      // classes
+      final StringWriter log = new StringWriter();
+      final GuardDB db = new GuardDB(new File[]{inTmp});
+      db.setDigests(new String[0]);
+      db.setPedantic(true);
+      db.remapTo(new File[] {outTmp}, null, new PrintWriter(log), false);
+      db.close();
+
+      assertFalse(log.toString(), log.toString().contains("No mapping found"));
+
+
+      // finally check if the obfuscated class still works as intended
+      final Mapper mapper = Mapper.newInstance(log.toString());
+
+      final String mtn = mapper.getTypeName(testTypeName);
+      assertNotNull("Could not find mapping for class " + testTypeName, mtn);
+
+      final String mmn = mapper.getMethodName(testTypeName, testMethodName);
+      assertNotNull("Could not find mapping for method " + testTypeName + '#' + testMethodName, mmn);
+
+      final ClassLoader cl = URLClassLoader.newInstance(new URL[]{outTmp.toURI().toURL()});
+      final Class obfType = Class.forName(mtn, true, cl);
+      final Method run = obfType.getMethod(mmn);
+      assertEquals("Wrong test output", "1 3 four 2", run.invoke(null));
+    } finally {
+      Cl.setPedantic(false);
+
+      // clean up and remove temporary files
+      inTmp.delete();
+      outTmp.delete();
+    }
+  }
+}
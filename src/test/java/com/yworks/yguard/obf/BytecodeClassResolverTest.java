@@ -0,0 +1,48 @@
+package com.yworks.yguard.obf;
+
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Tests if the headers of external classes read from their class files match
+ * the ones determined by reflection, including array classes.
+ */
+public class BytecodeClassResolverTest {
+  @Test
+  public void testSuperNames() throws Exception {
+    final BytecodeClassResolver resolver = new BytecodeClassResolver(getClass().getClassLoader());
+
+    final Class[] types = {Object.class, Runnable.class, java.util.List.class, java.util.ArrayList.class};
+    for (int i = 0; i < types.length; ++i) {
+      final ExtClassInfo expected = ExtClassInfo.create(types[i]);
+      final ExtClassInfo actual = resolver.resolveInfo(types[i].getName());
+      assertEquals(types[i].getName(), expected.getSuperName(), actual.getSuperName());
+      assertEquals(types[i].getName(), expected.getInterfaceNames().length, actual.getInterfaceNames().length);
+    }
+
+    assertNull(resolver.resolveInfo("java.lang.Runnable").getSuperName());
+  }
+
+  @Test
+  public void testResolveArrayClasses() throws Exception {
+    final BytecodeClassResolver resolver = new BytecodeClassResolver(getClass().getClassLoader());
+
+    final ExtClassInfo ints = resolver.resolveInfo("[I");
+    assertEquals("java.lang.Object", ints.getSuperName());
+    assertEquals(2, ints.getInterfaceNames().length);
+    assertEquals(0, ints.getMethodCount());
+
+    final ExtClassInfo strings = resolver.resolveInfo("[[Ljava.lang.String;");
+    assertEquals("[[Ljava.lang.String;", strings.getName());
+    assertEquals("java.lang.Object", strings.getSuperName());
+
+    try {
+      resolver.resolveInfo("[Lcom.yworks.DoesNotExist;");
+      assertTrue("Resolved array of unknown class.", false);
+    } catch (ClassNotFoundException expected) {
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package com.yworks.yguard.obf;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Tests if corrupt cached indices of external jars are created again instead
+ * of failing the build.
+ */
+public class ExtClassIndexTest {
+  @Rule
+  public TestName name = new TestName();
+
+  @Test
+  public void testTruncatedIndex() throws Exception {
+    impl(new Corruption() {
+      public void apply( final RandomAccessFile index ) throws IOException {
+        index.setLength(index.length() / 2);
+      }
+    });
+  }
+
+  @Test
+  public void testInvalidOffsets() throws Exception {
+    impl(new Corruption() {
+      public void apply( final RandomAccessFile index ) throws IOException {
+        // overwrite everything after magic and version
+        for (long i = 8, n = index.length(); i < n; ++i) {
+          index.seek(i);
+          index.write(0x7F);
+        }
+      }
+    });
+  }
+
+  @Test
+  public void testInvalidEntries() throws Exception {
+    impl(new Corruption() {
+      public void apply( final RandomAccessFile index ) throws IOException {
+        // the entries are stored at the end of the index
+        for (long i = index.length() / 2, n = index.length(); i < n; ++i) {
+          index.seek(i);
+          index.write(0xFF);
+        }
+      }
+    });
+  }
+
+  private void impl( final Corruption corruption ) throws Exception {
+    final String className = ExtClassIndexTest.class.getName();
+
+    final File jar = File.createTempFile(name.getMethodName() + "_", ".jar");
+    final File cacheDir = File.createTempFile(name.getMethodName() + "_cache_", "");
+    cacheDir.delete();
+    cacheDir.mkdirs();
+
+    try {
+      writeJar(jar, className);
+
+      // index the jar and corrupt the cached index
+      assertNotNull(ExtClassIndex.open(jar, cacheDir).get(className));
+      final File[] indices = cacheDir.listFiles();
+      assertEquals(1, indices.length);
+      final RandomAccessFile raf = new RandomAccessFile(indices[0], "rw");
+      try {
+        corruption.apply(raf);
+      } finally {
+        raf.close();
+      }
+
+      // resolving the class has to succeed nevertheless
+      final BytecodeClassResolver resolver = new BytecodeClassResolver(
+              ClassLoader.getSystemClassLoader().getParent(), new File[] {jar}, cacheDir);
+      final ExtClassInfo info = resolver.resolveInfo(className);
+      assertEquals(className, info.getName());
+      assertEquals(Object.class.getName(), info.getSuperName());
+      assertTrue(info.getMethodCount() > 0);
+      assertNull(ExtClassIndex.open(jar, cacheDir).get("com.yworks.DoesNotExist"));
+    } finally {
+      jar.delete();
+      final File[] files = cacheDir.listFiles();
+      if (files != null) {
+        for (int i = 0; i < files.length; ++i) {
+          files[i].delete();
+        }
+      }
+      cacheDir.delete();
+    }
+  }
+
+  private static void writeJar( final File jar, final String className ) throws IOException {
+    final String path = className.replace('.', '/') + ".class";
+    final JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar));
+    try {
+      jos.putNextEntry(new ZipEntry(path));
+      final InputStream is = ExtClassIndexTest.class.getClassLoader().getResourceAsStream(path);
+      try {
+        final byte[] buffer = new byte[4096];
+        for (int n = is.read(buffer); n > -1; n = is.read(buffer)) {
+          jos.write(buffer, 0, n);
+        }
+      } finally {
+        is.close();
+      }
+      jos.closeEntry();
+    } finally {
+      jos.close();
+    }
+  }
+
+
+
+  private interface Corruption {
+    void apply( RandomAccessFile index ) throws IOException;
+  }
+}
@@ -0,0 +1,286 @@
+package com.yworks.yguard.obf;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarInputStream;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Tests writing jar files with entries whose compressed data is copied
+ * from another jar as it is.
+ */
+public class JarWriterTest {
+  private static final byte[] TEXT = repeat("unchanged resource text ", 200);
+  private static final byte[] RANDOM = random(5000);
+  private static final byte[] DATA = repeat("written data ", 100);
+
+  @Test
+  public void testCopyEntries() throws Exception {
+    final File in = File.createTempFile("JarWriterTest_in", ".jar");
+    final File out = File.createTempFile("JarWriterTest_out", ".jar");
+    try {
+      writeInput(in, null);
+
+      final JarFile inJar = new JarFile(in);
+      final RawJarEntries rawEntries = new RawJarEntries(in);
+      try {
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Created-By", "JarWriterTest");
+
+        final JarWriter writer = new JarWriter(new FileOutputStream(out));
+        writer.setComment("comment");
+        writer.putManifest(manifest);
+        writer.putDirectory("dir/");
+        writer.putNextEntry("dir/data.txt");
+        writer.write(DATA, 0, 10);
+        writer.write(DATA, 10, DATA.length - 10);
+        writer.closeEntry();
+        writer.copyEntry("dir/text.txt", rawEntries.getEntry(inJar.getEntry("text.txt")));
+        writer.copyEntry("dir/stored.bin", rawEntries.getEntry(inJar.getEntry("stored.bin")));
+        writer.copyEntry("dir/random.bin", rawEntries.getEntry(inJar.getEntry("random.bin")));
+        writer.close();
+
+        final JarFile outJar = new JarFile(out);
+        try {
+          assertEquals("comment", outJar.getComment());
+          assertEquals("JarWriterTest", outJar.getManifest().getMainAttributes().getValue("Created-By"));
+          assertTrue(outJar.getEntry("dir/").isDirectory());
+          assertEquals(new String(DATA, "UTF-8"), new String(read(outJar, "dir/data.txt"), "UTF-8"));
+          // the copied entries keep their compressed data
+          assertSameEntry(inJar, "text.txt", outJar, "dir/text.txt");
+          assertSameEntry(inJar, "stored.bin", outJar, "dir/stored.bin");
+          assertSameEntry(inJar, "random.bin", outJar, "dir/random.bin");
+          assertEquals(ZipEntry.STORED, outJar.getEntry("dir/stored.bin").getMethod());
+          assertEquals(ZipEntry.DEFLATED, outJar.getEntry("dir/text.txt").getMethod());
+        } finally {
+          outJar.close();
+        }
+
+        // the local headers and data descriptors are valid, too
+        final JarInputStream jis = new JarInputStream(new FileInputStream(out));
+        try {
+          assertEquals("JarWriterTest", jis.getManifest().getMainAttributes().getValue("Created-By"));
+          final String[] names = {"dir/", "dir/data.txt", "dir/text.txt", "dir/stored.bin", "dir/random.bin"};
+          final byte[][] data = {new byte[0], DATA, TEXT, RANDOM, RANDOM};
+          for (int i = 0; i < names.length; ++i) {
+            final JarEntry entry = jis.getNextJarEntry();
+            assertEquals(names[i], entry.getName());
+            assertEquals(toHex(data[i]), toHex(read(jis)));
+          }
+          assertNull(jis.getNextJarEntry());
+        } finally {
+          jis.close();
+        }
+      } finally {
+        rawEntries.close();
+        inJar.close();
+      }
+    } finally {
+      in.delete();
+      out.delete();
+    }
+  }
+
+  @Test
+  public void testDuplicateEntry() throws Exception {
+    final File out = File.createTempFile("JarWriterTest_dup", ".jar");
+    final JarWriter writer = new JarWriter(new FileOutputStream(out));
+    try {
+      writer.putNextEntry("a.txt");
+      writer.putDirectory("b/");
+      try {
+        writer.putNextEntry("a.txt");
+        assertTrue("Wrote duplicate entry.", false);
+      } catch (ZipException expected) {
+      }
+    } finally {
+      writer.close();
+      out.delete();
+    }
+  }
+
+  @Test
+  public void testZip64EntryCount() throws Exception {
+    final File out = File.createTempFile("JarWriterTest_zip64", ".jar");
+    try {
+      final int count = 70000;
+      final JarWriter writer = new JarWriter(new FileOutputStream(out));
+      for (int i = 0; i < count; ++i) {
+        writer.putDirectory("d" + i + "/");
+      }
+      writer.close();
+
+      final JarFile jar = new JarFile(out);
+      try {
+        assertEquals(count, jar.size());
+        assertNotNull(jar.getEntry("d" + (count - 1) + "/"));
+      } finally {
+        jar.close();
+      }
+
+      // jars that need Zip64 extensions are left to the usual way
+      final RawJarEntries rawEntries = new RawJarEntries(out);
+      try {
+        assertNull(rawEntries.getEntry(new ZipEntry("d0/")));
+      } finally {
+        rawEntries.close();
+      }
+    } finally {
+      out.delete();
+    }
+  }
+
+  @Test
+  public void testRemapCopiesUnchangedResources() throws Exception {
+    final File in = File.createTempFile("JarWriterTest_in", ".jar");
+    final File out = File.createTempFile("JarWriterTest_out", ".jar");
+    try {
+      // only the text entry has a digest in the input manifest
+      final Manifest manifest = new Manifest();
+      manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+      final Attributes attributes = new Attributes();
+      attributes.putValue("SHA-1-Digest", sha1(TEXT));
+      manifest.getEntries().put("text.txt", attributes);
+      writeInput(in, manifest);
+
+      final GuardDB db = new GuardDB(new File[]{in});
+      try {
+        db.setDigests(new String[]{"SHA-1"});
+        db.remapTo(new File[]{out}, null, new PrintWriter(new StringWriter()), false);
+      } finally {
+        db.close();
+      }
+
+      final JarFile inJar = new JarFile(in);
+      final JarFile outJar = new JarFile(out);
+      try {
+        assertSameEntry(inJar, "text.txt", outJar, "text.txt");
+        assertSameEntry(inJar, "stored.bin", outJar, "stored.bin");
+        assertSameEntry(inJar, "random.bin", outJar, "random.bin");
+
+        final Manifest outManifest = outJar.getManifest();
+        assertEquals(sha1(TEXT), outManifest.getAttributes("text.txt").getValue("SHA-1-Digest"));
+        assertEquals(sha1(RANDOM), outManifest.getAttributes("stored.bin").getValue("SHA-1-Digest"));
+        assertEquals(sha1(RANDOM), outManifest.getAttributes("random.bin").getValue("SHA-1-Digest"));
+      } finally {
+        outJar.close();
+        inJar.close();
+      }
+    } finally {
+      in.delete();
+      out.delete();
+    }
+  }
+
+  // the entries have the same compressed data and the same contents
+  private static void assertSameEntry(
+          final JarFile expectedJar, final String expectedName,
+          final JarFile actualJar, final String actualName
+  ) throws IOException {
+    final ZipEntry expected = expectedJar.getEntry(expectedName);
+    final ZipEntry actual = actualJar.getEntry(actualName);
+    assertEquals(expected.getMethod(), actual.getMethod());
+    assertEquals(expected.getCrc(), actual.getCrc());
+    assertEquals(expected.getSize(), actual.getSize());
+    assertEquals(expected.getCompressedSize(), actual.getCompressedSize());
+    assertEquals(toHex(read(expectedJar, expectedName)), toHex(read(actualJar, actualName)));
+  }
+
+  private static void writeInput(final File jar, final Manifest manifest) throws IOException {
+    final JarOutputStream jos = manifest == null
+            ? new JarOutputStream(new FileOutputStream(jar))
+            : new JarOutputStream(new FileOutputStream(jar), manifest);
+    try {
+      // deflating the entries again would make them smaller
+      jos.setLevel(Deflater.NO_COMPRESSION);
+      jos.putNextEntry(new JarEntry("text.txt"));
+      jos.write(TEXT);
+      jos.closeEntry();
+
+      final JarEntry stored = new JarEntry("stored.bin");
+      final CRC32 crc = new CRC32();
+      crc.update(RANDOM);
+      stored.setMethod(ZipEntry.STORED);
+      stored.setSize(RANDOM.length);
+      stored.setCrc(crc.getValue());
+      jos.putNextEntry(stored);
+      jos.write(RANDOM);
+      jos.closeEntry();
+
+      jos.putNextEntry(new JarEntry("random.bin"));
+      jos.write(RANDOM);
+      jos.closeEntry();
+    } finally {
+      jos.close();
+    }
+  }
+
+  private static byte[] read(final JarFile jar, final String name) throws IOException {
+    final InputStream is = jar.getInputStream(jar.getEntry(name));
+    try {
+      return read(is);
+    } finally {
+      is.close();
+    }
+  }
+
+  private static byte[] read(final InputStream is) throws IOException {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[4096];
+    for (int n = is.read(buffer); n != -1; n = is.read(buffer)) {
+      baos.write(buffer, 0, n);
+    }
+    return baos.toByteArray();
+  }
+
+  private static String sha1(final byte[] data) throws Exception {
+    return Tools.toBase64(MessageDigest.getInstance("SHA-1").digest(data));
+  }
+
+  private static byte[] repeat(final String s, final int count) {
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < count; ++i) {
+      sb.append(s);
+    }
+    return sb.toString().getBytes();
+  }
+
+  private static byte[] random(final int length) {
+    final byte[] data = new byte[length];
+    new Random(42).nextBytes(data);
+    return data;
+  }
+
+  private static String toHex(final byte[] data) {
+    final StringBuilder sb = new StringBuilder(data.length * 2);
+    for (int i = 0; i < data.length; ++i) {
+      sb.append(Character.forDigit((data[i] >> 4) & 0xf, 16));
+      sb.append(Character.forDigit(data[i] & 0xf, 16));
+    }
+    return sb.toString();
+  }
+}
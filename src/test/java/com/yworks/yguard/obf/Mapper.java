@@ -30,6 +30,10 @@ class Mapper {
     return mappings.get("m:" + tn + '#' + mn);
   }
 
+  String getFieldName( final String tn, final String fn ) {
+    return mappings.get("f:" + tn + '#' + fn);
+  }
+
 
   static Mapper newInstance( final String log ) throws Exception {
     final HashMap<String, String> mappings = new HashMap<String, String>();
@@ -94,6 +98,10 @@ class Mapper {
           final String cn = attributes.getValue("class");
           final String mn = attributes.getValue("name");
           mappings.put("m:" + cn + '#' + mn, attributes.getValue("map"));
+        } else if ("field".equals(qName)) {
+          final String cn = attributes.getValue("class");
+          final String fn = attributes.getValue("name");
+          mappings.put("f:" + cn + '#' + fn, attributes.getValue("map"));
         }
       } else {
         armed |= "map".equals(qName);
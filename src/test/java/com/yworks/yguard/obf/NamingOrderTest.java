@@ -0,0 +1,97 @@
+package com.yworks.yguard.obf;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Tests if the most referenced classes and fields get the first names of
+ * their name spaces if names are ordered by references.
+ */
+public class NamingOrderTest extends AbstractObfuscationTest {
+  @Rule
+  public TestName name = new TestName();
+
+  @Test
+  public void testOrderNamesByReferences() throws Exception {
+    assertTrue("Invalid Java version", 11 <= getMajorVersion());
+
+
+    final String testPackageName = "com.yworks.yguard.obf.naming";
+    final String testTypeName = testPackageName + ".NamingOrderTest";
+
+    final String fileName = "NamingOrderTest.txt";
+    final URL source = getClass().getResource(fileName);
+    assertNotNull("Could not resolve " + fileName + '.', source);
+
+
+    // compile the java source code
+    final Compiler compiler = newCompiler();
+
+    final ArrayList sources = new ArrayList();
+    sources.add(compiler.newUrlSource(testTypeName, source));
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    compiler.compile(sources, baos);
+
+
+    // store resulting bytecode in temporary files and ...
+    final File inTmp = File.createTempFile(name.getMethodName() + "_in_", ".jar");
+    final File outTmp = File.createTempFile(name.getMethodName() + "_out_", ".jar");
+
+    try {
+      write(baos.toByteArray(), inTmp);
+
+      // ... run obfuscator with names ordered by references
+      final StringWriter log = new StringWriter();
+      final GuardDB db = new GuardDB(new File[]{inTmp});
+      db.setDigests(new String[0]);
+      db.setOrderNamesByReferences(true);
+      db.remapTo(new File[] {outTmp}, null, new PrintWriter(log), false);
+      db.close();
+
+      final Mapper mapper = Mapper.newInstance(log.toString());
+
+      // the most referenced class comes first, ties are broken by name
+      final String[] classes = {"Zeta", "A", "Alpha", "B", "C", "NamingOrderTest"};
+      final KeywordNameMaker classNames = new KeywordNameMaker(new String[0]);
+      for (int i = 0; i < classes.length; ++i) {
+        final String mtn = mapper.getTypeName(testPackageName + '.' + classes[i]);
+        assertNotNull("Could not find mapping for class " + classes[i], mtn);
+        assertEquals(classes[i], classNames.nextName(null), mtn.substring(mtn.lastIndexOf('.') + 1));
+      }
+
+      final String[] fields = {"zCommon", "aRare"};
+      final KeywordNameMaker fieldNames = new KeywordNameMaker(new String[0], false, true);
+      for (int i = 0; i < fields.length; ++i) {
+        final String mfn = mapper.getFieldName(testPackageName + ".Zeta", fields[i]);
+        assertNotNull("Could not find mapping for field " + fields[i], mfn);
+        assertEquals(fields[i], fieldNames.nextName(null), mfn);
+      }
+
+
+      // finally check if the obfuscated classes still work as intended
+      final ClassLoader cl = URLClassLoader.newInstance(new URL[]{outTmp.toURI().toURL()});
+      final Class obfType = Class.forName(mapper.getTypeName(testTypeName), true, cl);
+      final Method run = obfType.getMethod(mapper.getMethodName(testTypeName, "java.lang.String run()"));
+      assertEquals("Wrong test output", "6 3 6", run.invoke(null));
+    } finally {
+      // clean up and remove temporary files
+      inTmp.delete();
+      outTmp.delete();
+    }
+  }
+}
@@ -0,0 +1,186 @@
+package com.yworks.yguard.obf;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarInputStream;
+import java.util.jar.JarOutputStream;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Tests if the obfuscated classes and the log file do not depend on the
+ * number of threads used for parsing, naming, and remapping.
+ */
+public class ThreadsTest {
+  private static final String PACKAGE = "com/yworks/yguard/obf/";
+
+  @Test
+  public void testOutputIndependentOfThreads() throws Exception {
+    final File in = File.createTempFile("ThreadsTest_in", ".jar");
+    final File out1 = File.createTempFile("ThreadsTest_out1", ".jar");
+    final File out4 = File.createTempFile("ThreadsTest_out4", ".jar");
+    try {
+      final int count = writeInput(in);
+      assertTrue(count > 20);
+
+      final String log1 = obfuscate(in, out1, 1);
+      final String log4 = obfuscate(in, out4, 4);
+
+      assertEquals(log1, log4);
+      final List<String> entries1 = readEntries(out1);
+      assertEquals(count, entries1.size() / 2);
+      assertEquals(entries1, readEntries(out4));
+    } finally {
+      in.delete();
+      out1.delete();
+      out4.delete();
+    }
+  }
+
+  private static String obfuscate(final File in, final File out, final int threads) throws Exception {
+    // the default factory keeps its name makers, start each run with fresh ones
+    final NameMakerFactory previous = NameMakerFactory.getInstance();
+    final NameMakerFactory factory = new NameMakerFactory.DefaultNameMakerFactory();
+    factory.setInstance(factory);
+
+    final StringWriter sw = new StringWriter();
+    final PrintWriter log = new PrintWriter(sw);
+    final GuardDB db = new GuardDB(new File[]{in});
+    try {
+      db.setDigests(new String[0]);
+      db.setThreads(threads);
+      db.remapTo(new File[]{out}, null, log, false);
+    } finally {
+      db.close();
+      factory.setInstance(previous);
+    }
+    log.flush();
+    return withoutVolatileLines(sw.toString());
+  }
+
+  // the log without time stamps and memory statistics
+  private static String withoutVolatileLines(final String log) throws IOException {
+    final StringBuilder sb = new StringBuilder();
+    final BufferedReader br = new BufferedReader(new StringReader(log));
+    for (String line = br.readLine(); line != null; line = br.readLine()) {
+      if (!line.contains("Logfile created") &&
+          !line.contains("Memory in use") &&
+          !line.contains("Total memory")) {
+        sb.append(line).append('\n');
+      }
+    }
+    return sb.toString();
+  }
+
+  // the names and contents of all class file entries in jar order
+  private static List<String> readEntries(final File jar) throws IOException {
+    final List<String> result = new ArrayList<String>();
+    final JarInputStream jis = new JarInputStream(new FileInputStream(jar));
+    try {
+      for (JarEntry entry = jis.getNextJarEntry(); entry != null; entry = jis.getNextJarEntry()) {
+        if (entry.getName().endsWith(".class")) {
+          result.add(entry.getName());
+          result.add(toHex(read(jis)));
+        }
+      }
+    } finally {
+      jis.close();
+    }
+    return result;
+  }
+
+  // copies the class files of this package to the given jar
+  private static int writeInput(final File jar) throws IOException {
+    final URL location = GuardDB.class.getProtectionDomain().getCodeSource().getLocation();
+    final File source = new File(location.getPath());
+    final List<String> names = new ArrayList<String>();
+    final JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar));
+    try {
+      if (source.isDirectory()) {
+        final File[] files = new File(source, PACKAGE).listFiles();
+        for (int i = 0; i < files.length; ++i) {
+          if (files[i].getName().endsWith(".class")) {
+            names.add(files[i].getName());
+          }
+        }
+        Collections.sort(names);
+        for (String name : names) {
+          final InputStream is = new FileInputStream(new File(source, PACKAGE + name));
+          try {
+            write(jos, PACKAGE + name, read(is));
+          } finally {
+            is.close();
+          }
+        }
+      } else {
+        final JarFile src = new JarFile(source);
+        try {
+          for (Enumeration<JarEntry> en = src.entries(); en.hasMoreElements();) {
+            final String name = en.nextElement().getName();
+            if (name.startsWith(PACKAGE) && name.endsWith(".class") &&
+                name.indexOf('/', PACKAGE.length()) < 0) {
+              names.add(name);
+            }
+          }
+          for (String name : names) {
+            final InputStream is = src.getInputStream(src.getEntry(name));
+            try {
+              write(jos, name, read(is));
+            } finally {
+              is.close();
+            }
+          }
+        } finally {
+          src.close();
+        }
+      }
+    } finally {
+      jos.close();
+    }
+    assertFalse(names.isEmpty());
+    return names.size();
+  }
+
+  private static void write(final JarOutputStream jos, final String name, final byte[] data) throws IOException {
+    jos.putNextEntry(new JarEntry(name));
+    jos.write(data);
+    jos.closeEntry();
+  }
+
+  private static byte[] read(final InputStream is) throws IOException {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[4096];
+    for (int n = is.read(buffer); n != -1; n = is.read(buffer)) {
+      baos.write(buffer, 0, n);
+    }
+    return baos.toByteArray();
+  }
+
+  private static String toHex(final byte[] data) {
+    final StringBuilder sb = new StringBuilder(data.length * 2);
+    for (int i = 0; i < data.length; ++i) {
+      sb.append(Character.forDigit((data[i] >> 4) & 0xf, 16));
+      sb.append(Character.forDigit(data[i] & 0xf, 16));
+    }
+    return sb.toString();
+  }
+}
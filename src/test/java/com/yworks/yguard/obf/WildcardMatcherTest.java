@@ -0,0 +1,173 @@
+package com.yworks.yguard.obf;
+
+import com.yworks.yguard.obf.classfile.ClassFile;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Tests if the matches of wildcard patterns computed in a single traversal
+ * are the same as the ones found by matching each pattern separately.
+ */
+public class WildcardMatcherTest {
+  private static final Class[] TYPES = {
+          WildcardMatcher.class,
+          TreeItem.class,
+          ClassTree.class,
+          Cl.class,
+          Md.class,
+          Fd.class,
+          YGuardRule.class,
+  };
+
+  private static final String[] CLASS_PATTERNS = {
+          "*",
+          "com/yworks/yguard/obf/*",
+          "!com/yworks/*",
+          "com/yworks/yguard/obf/WildcardMatcher$*",
+          "!com/yworks/yguard/obf/WildcardMatcher$*",
+          "com/yworks/yguard/obf/*$*",
+          // consecutive inner class separators are collapsed
+          "com/yworks/yguard/obf/WildcardMatcher$$*",
+          "com/yworks/yguard/obf/*Tree*",
+          "!*Item",
+          "com/yworks/yguard/*",
+  };
+
+  private static final String[][] METHOD_PATTERNS = {
+          {"com/yworks/yguard/obf/WildcardMatcher/*", "*"},
+          {"com/yworks/yguard/obf/*/get*", "*"},
+          {"!com/yworks/*/match*", "(*)V"},
+          {"!com/yworks/yguard/obf/WildcardMatcher$*/*", "*"},
+          {"com/yworks/yguard/obf/TreeItem/isMatch", "(Ljava/lang/String;*"},
+          {"!*", "()Ljava/lang/String;"},
+  };
+
+  private static final String[] FIELD_PATTERNS = {
+          "com/yworks/yguard/obf/WildcardMatcher/*",
+          "!com/yworks/yguard/obf/WildcardMatcher$*/*",
+          "!*/*Matches",
+          "com/yworks/yguard/obf/*/TYPE_*",
+  };
+
+  @Test
+  public void testSameMatchesAsSeparatePatterns() throws Exception {
+    final ClassTree classTree = createClassTree();
+
+    final List<YGuardRule> rules = new ArrayList<YGuardRule>();
+    for (int i = 0; i < CLASS_PATTERNS.length; ++i) {
+      rules.add(new YGuardRule(YGuardRule.TYPE_CLASS, CLASS_PATTERNS[i]));
+    }
+    for (int i = 0; i < METHOD_PATTERNS.length; ++i) {
+      rules.add(new YGuardRule(YGuardRule.TYPE_METHOD, METHOD_PATTERNS[i][0], METHOD_PATTERNS[i][1]));
+    }
+    for (int i = 0; i < FIELD_PATTERNS.length; ++i) {
+      rules.add(new YGuardRule(YGuardRule.TYPE_FIELD, FIELD_PATTERNS[i]));
+    }
+
+    final List<String> expected = matchAll(classTree);
+    classTree.matchWildcards(rules);
+    final List<String> actual = matchAll(classTree);
+    classTree.clearWildcardMatches();
+
+    assertEquals(expected, actual);
+
+    // non-recursive patterns do not match classes in sub packages,
+    // all other patterns match something
+    for (String matches : expected) {
+      final boolean empty = matches.endsWith(": ");
+      assertEquals(matches, matches.equals("*: ") || matches.equals("com/yworks/yguard/*: "), empty);
+    }
+  }
+
+  @Test
+  public void testUnknownPatterns() throws Exception {
+    final List<YGuardRule> rules = new ArrayList<YGuardRule>();
+    rules.add(new YGuardRule(YGuardRule.TYPE_CLASS, "com/yworks/*"));
+    rules.add(new YGuardRule(YGuardRule.TYPE_CLASS, "com/yworks/yguard/obf/ClassTree"));
+    rules.add(new YGuardRule(YGuardRule.TYPE_METHOD, "com/yworks/*/get", "()V"));
+    final WildcardMatcher matcher = new WildcardMatcher(rules);
+    matcher.match(createClassTree());
+
+    assertTrue(matcher.getClasses("com/yworks/*").isEmpty());
+    assertTrue(matcher.getMethods("com/yworks/*/get", "()V").isEmpty());
+    // names without wildcards are looked up directly
+    assertNull(matcher.getClasses("com/yworks/yguard/obf/ClassTree"));
+    assertNull(matcher.getClasses("com/yworks/yguard/*"));
+    assertNull(matcher.getMethods("com/yworks/*/get", "(I)V"));
+    assertNull(matcher.getFields("*"));
+  }
+
+  // the matches of all patterns, in a comparable form
+  private static List<String> matchAll(final ClassTree classTree) {
+    final List<String> result = new ArrayList<String>();
+    for (int i = 0; i < CLASS_PATTERNS.length; ++i) {
+      result.add(toString(CLASS_PATTERNS[i], classTree.getClEnum(CLASS_PATTERNS[i])));
+    }
+    for (int i = 0; i < METHOD_PATTERNS.length; ++i) {
+      final String name = METHOD_PATTERNS[i][0];
+      final String descriptor = METHOD_PATTERNS[i][1];
+      result.add(toString(name + descriptor, classTree.getMdEnum(name, descriptor)));
+    }
+    for (int i = 0; i < FIELD_PATTERNS.length; ++i) {
+      result.add(toString(FIELD_PATTERNS[i], classTree.getFdEnum(FIELD_PATTERNS[i])));
+    }
+    return result;
+  }
+
+  private static String toString(final String pattern, final Enumeration items) {
+    final StringBuilder sb = new StringBuilder(pattern).append(": ");
+    while (items.hasMoreElements()) {
+      final TreeItem item = (TreeItem) items.nextElement();
+      sb.append(item.getFullInName());
+      if (item instanceof Md) {
+        sb.append(((Md) item).getDescriptor());
+      }
+      sb.append(' ');
+    }
+    return sb.toString();
+  }
+
+  private static ClassTree createClassTree() throws IOException {
+    final ClassTree classTree = new ClassTree();
+    final Collection<Class> types = new ArrayList<Class>();
+    for (int i = 0; i < TYPES.length; ++i) {
+      types.add(TYPES[i]);
+      for (Class inner : TYPES[i].getDeclaredClasses()) {
+        types.add(inner);
+      }
+    }
+    for (Class type : types) {
+      final byte[] data = read(type);
+      classTree.addClassFile(ClassFile.create(data, 0, data.length));
+    }
+    assertFalse(types.size() == TYPES.length);
+    return classTree;
+  }
+
+  private static byte[] read(final Class type) throws IOException {
+    final String name = type.getName();
+    final InputStream is = type.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class");
+    try {
+      final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[4096];
+      for (int n = is.read(buffer); n != -1; n = is.read(buffer)) {
+        baos.write(buffer, 0, n);
+      }
+      return baos.toByteArray();
+    } finally {
+      is.close();
+    }
+  }
+}
@@ -0,0 +1,212 @@
+package com.yworks.yshrink.core;
+
+import com.yworks.util.graph.Graph;
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * Tests the callbacks of the depth first search, the continuation from further start nodes and the reuse of its
+ * state by subsequent searches.
+ */
+public class DfsTest {
+  @Test
+  public void testDirectedCallbacks() {
+    final Graph graph = new Graph();
+    final int a = graph.createNode();
+    final int b = graph.createNode();
+    final int c = graph.createNode();
+    final int d = graph.createNode();
+    graph.createEdge( a, b, 0 );
+    graph.createEdge( b, c, 0 );
+    graph.createEdge( c, a, 0 );
+    graph.createEdge( a, c, 0 );
+    graph.createEdge( d, a, 0 );
+
+    final RecordingDfs dfs = new RecordingDfs();
+    dfs.setDirectedMode( true );
+    dfs.start( graph, a );
+
+    // d is not reachable from a
+    assertEquals(
+        "pre(a,1) tree(b) pre(b,2) tree(c) pre(c,3) back(a) post(c,3,1) up(c) post(b,2,2) up(b) " +
+        "back(c) post(a,1,3) ",
+        dfs.events.toString() );
+  }
+
+  @Test
+  public void testUndirectedCallbacks() {
+    final Graph graph = new Graph();
+    final int a = graph.createNode();
+    final int b = graph.createNode();
+    final int c = graph.createNode();
+    graph.createEdge( a, b, 0 );
+    graph.createEdge( c, b, 0 );
+
+    final RecordingDfs dfs = new RecordingDfs();
+    dfs.start( graph, a );
+
+    // c is reached through the ingoing edge of b, every edge is looked at once
+    assertEquals(
+        "pre(a,1) tree(b) pre(b,2) tree(c) pre(c,3) post(c,3,1) up(c) post(b,2,2) up(b) post(a,1,3) ",
+        dfs.events.toString() );
+  }
+
+  @Test
+  public void testDoTraverse() {
+    final Graph graph = new Graph();
+    final int a = graph.createNode();
+    final int b = graph.createNode();
+    final int c = graph.createNode();
+    graph.createEdge( a, b, 1 );
+    graph.createEdge( a, c, 0 );
+
+    final RecordingDfs dfs = new RecordingDfs() {
+      protected boolean doTraverse( final int e ) {
+        return graph.label( e ) == 0;
+      }
+    };
+    dfs.setDirectedMode( true );
+    dfs.start( graph, a );
+
+    assertEquals( "pre(a,1) tree(c) pre(c,2) post(c,2,1) up(c) post(a,1,2) ", dfs.events.toString() );
+  }
+
+  @Test
+  public void testNextStart() {
+    final Graph graph = new Graph();
+    final int a = graph.createNode();
+    final int b = graph.createNode();
+    final int c = graph.createNode();
+    final int d = graph.createNode();
+    graph.createEdge( a, b, 0 );
+    graph.createEdge( c, b, 0 );
+    graph.createEdge( c, d, 0 );
+
+    final int[] starts = { b, c, a, Graph.NONE, d };
+    final RecordingDfs dfs = new RecordingDfs() {
+      int next;
+
+      protected int nextStart() {
+        events.append( "next " );
+        return starts[ next++ ];
+      }
+    };
+    dfs.setDirectedMode( true );
+    dfs.start( graph, a );
+
+    // completed nodes are skipped, the numbering continues and NONE ends the search
+    assertEquals(
+        "pre(a,1) tree(b) pre(b,2) post(b,2,1) up(b) post(a,1,2) next next " +
+        "pre(c,3) back(b) tree(d) pre(d,4) post(d,4,3) up(d) post(c,3,4) next next ",
+        dfs.events.toString() );
+  }
+
+  @Test
+  public void testDeepPath() {
+    final Graph graph = new Graph();
+    final int length = 10000;
+    int previous = graph.createNode();
+    for ( int i = 1; i < length; i++ ) {
+      final int node = graph.createNode();
+      graph.createEdge( previous, node, 0 );
+      previous = node;
+    }
+
+    final CountingDfs dfs = new CountingDfs();
+    dfs.setDirectedMode( true );
+    dfs.start( graph, 0 );
+
+    assertEquals( length, dfs.visited );
+    assertEquals( length, dfs.maxDfsNumber );
+    assertEquals( length, dfs.maxCompNumber );
+    // the last node of the path is completed first
+    assertEquals( length - 1, dfs.firstCompleted );
+  }
+
+  @Test
+  public void testReuse() {
+    final Graph large = new Graph();
+    for ( int i = 0; i < 200; i++ ) {
+      final int node = large.createNode();
+      if ( i > 0 ) {
+        large.createEdge( node - 1, node, 0 );
+      }
+    }
+    final Graph small = new Graph();
+    final int a = small.createNode();
+    final int b = small.createNode();
+    small.createEdge( a, b, 0 );
+
+    final CountingDfs dfs = new CountingDfs();
+    for ( int pass = 0; pass < 2; pass++ ) {
+      dfs.setDirectedMode( pass == 0 );
+
+      dfs.reset();
+      dfs.start( large, 0 );
+      assertEquals( 200, dfs.visited );
+
+      // the node states left by the larger graph must not leak into this search
+      dfs.reset();
+      dfs.start( small, a );
+      assertEquals( 2, dfs.visited );
+      assertEquals( 2, dfs.maxCompNumber );
+
+      dfs.reset();
+      dfs.start( large, 100 );
+      assertEquals( pass == 0 ? 100 : 200, dfs.visited );
+    }
+  }
+
+  private static class RecordingDfs extends Dfs {
+    final StringBuilder events = new StringBuilder();
+
+    protected void preVisit( final int node, final int dfsNumber ) {
+      events.append( "pre(" ).append( name( node ) ).append( ',' ).append( dfsNumber ).append( ") " );
+    }
+
+    protected void postVisit( final int node, final int dfsNumber, final int compNumber ) {
+      events.append( "post(" ).append( name( node ) ).append( ',' ).append( dfsNumber ).append( ',' )
+          .append( compNumber ).append( ") " );
+    }
+
+    protected boolean preTraverse( final int edge, final int node, final boolean treeEdge ) {
+      events.append( treeEdge ? "tree(" : "back(" ).append( name( node ) ).append( ") " );
+      return true;
+    }
+
+    protected void postTraverse( final int edge, final int node ) {
+      events.append( "up(" ).append( name( node ) ).append( ") " );
+    }
+
+    private static char name( final int node ) {
+      return (char) ( 'a' + node );
+    }
+  }
+
+  private static class CountingDfs extends Dfs {
+    int visited;
+    int maxDfsNumber;
+    int maxCompNumber;
+    int firstCompleted;
+
+    void reset() {
+      visited = 0;
+      maxDfsNumber = 0;
+      maxCompNumber = 0;
+      firstCompleted = Graph.NONE;
+    }
+
+    protected void preVisit( final int node, final int dfsNumber ) {
+      visited++;
+      maxDfsNumber = Math.max( maxDfsNumber, dfsNumber );
+    }
+
+    protected void postVisit( final int node, final int dfsNumber, final int compNumber ) {
+      if ( compNumber == 1 ) {
+        firstCompleted = node;
+      }
+      maxCompNumber = Math.max( maxCompNumber, compNumber );
+    }
+  }
+}